@@ -0,0 +1,24 @@
+description = "JMH benchmarks for Apollo Federation JVM support"
+
+plugins {
+    // benchmarks share the compiler and formatting conventions but are never published
+    id("com.apollographql.federation.java-base-conventions")
+    // external plugin versions are specified in the buildSrc dependencies
+    id("me.champeau.jmh")
+}
+
+dependencies {
+    jmh(project(":federation-graphql-java-support"))
+}
+
+jmh {
+    jmhVersion.set(project.property("jmhVersion").toString())
+    // run selected benchmarks with e.g. ./gradlew :federation-jmh:jmh -PjmhIncludes=SchemaTransformation
+    project.findProperty("jmhIncludes")?.let { includes.set(listOf(it.toString())) }
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // report allocation rates next to the timings
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+}
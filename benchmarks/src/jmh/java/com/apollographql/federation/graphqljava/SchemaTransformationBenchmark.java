@@ -0,0 +1,91 @@
+package com.apollographql.federation.graphqljava;
+
+import com.apollographql.federation.graphqljava.directives.LinkDirectiveProcessor;
+import com.apollographql.federation.graphqljava.printer.ServiceSDLPrinter;
+import graphql.language.SDLNamedDefinition;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup cost of making a schema federation compatible, measured over synthetic subgraphs of
+ * increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SchemaTransformationBenchmark {
+
+  @Param({"100", "1000", "5000", "20000"})
+  public int typeCount;
+
+  private String sdl;
+  private TypeDefinitionRegistry typeDefinitionRegistry;
+  private SchemaTransformer transformer;
+  private GraphQLSchema federatedSchema;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    sdl = SyntheticSchemas.federatedSdl(typeCount);
+    typeDefinitionRegistry = new SchemaParser().parse(sdl);
+    transformer = newTransformer();
+    federatedSchema = transformer.build();
+  }
+
+  private SchemaTransformer newTransformer() {
+    return Federation.transform(sdl).resolveEntityType(env -> null).fetchEntities(env -> null);
+  }
+
+  /** Parse, generate and federate the schema, including eager SDL generation. */
+  @Benchmark
+  public GraphQLSchema transformAndBuild() {
+    return newTransformer().build();
+  }
+
+  /** Same as {@link #transformAndBuild()} but <code>_service { sdl }</code> is generated lazily. */
+  @Benchmark
+  public GraphQLSchema transformAndBuildLazySdl() {
+    return newTransformer().lazyServiceSdl(true).build();
+  }
+
+  /** Federate already generated schema. */
+  @Benchmark
+  public GraphQLSchema build() {
+    return transformer.build();
+  }
+
+  @Benchmark
+  public String generateServiceSDLV2() {
+    return ServiceSDLPrinter.generateServiceSDLV2(federatedSchema);
+  }
+
+  @Benchmark
+  public List<SDLNamedDefinition> loadFederationImportedDefinitions() {
+    return LinkDirectiveProcessor.loadFederationImportedDefinitions(typeDefinitionRegistry)
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public Set<String> getFederatedEntities() {
+    return transformer.getFederatedEntities();
+  }
+}
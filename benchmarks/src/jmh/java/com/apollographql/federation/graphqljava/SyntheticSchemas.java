@@ -0,0 +1,52 @@
+package com.apollographql.federation.graphqljava;
+
+/** Generates synthetic Federation 2 subgraph schemas of configurable size. */
+final class SyntheticSchemas {
+
+  private SyntheticSchemas() {}
+
+  /**
+   * Generate subgraph SDL with the given number of object types. Three out of every four types are
+   * entities with a single <code>@key</code>, every type references the next one so the schema
+   * forms a single connected graph.
+   *
+   * @param typeCount number of object types, excluding the query type
+   * @return subgraph SDL
+   */
+  static String federatedSdl(int typeCount) {
+    final StringBuilder sdl = new StringBuilder(typeCount * 160);
+    sdl.append("extend schema @link(url: \"")
+        .append(Federation.FEDERATION_SPEC_V2_12)
+        .append("\", import: [\"@key\", \"@shareable\"])\n\n");
+
+    sdl.append("type Query {\n  node(id: ID!): ")
+        .append(typeName(0))
+        .append("\n  nodes(first: Int = 10): [")
+        .append(typeName(0))
+        .append("!]!\n}\n");
+
+    for (int i = 0; i < typeCount; i++) {
+      sdl.append("\ntype ").append(typeName(i));
+      if (isEntity(i)) {
+        sdl.append(" @key(fields: \"id\")");
+      }
+      sdl.append(" {\n")
+          .append("  id: ID!\n")
+          .append("  name: String @shareable\n")
+          .append("  description(locale: String = \"en\"): String\n")
+          .append("  tags: [String!]!\n")
+          .append("  next: ")
+          .append(typeName((i + 1) % typeCount))
+          .append("\n}\n");
+    }
+    return sdl.toString();
+  }
+
+  static String typeName(int index) {
+    return "Type" + index;
+  }
+
+  static boolean isEntity(int index) {
+    return index % 4 != 3;
+  }
+}
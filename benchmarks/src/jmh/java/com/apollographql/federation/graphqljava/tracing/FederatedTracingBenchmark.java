@@ -0,0 +1,72 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of query execution with and without {@link FederatedTracingInstrumentation}. Run with
+ * the <code>gc</code> profiler (enabled by default in the build) to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FederatedTracingBenchmark {
+  private static final int WIDE_LEAF_FIELDS = 10_000;
+  private static final int DEEP_DEPTH = 100;
+
+  @Param({"false", "true"})
+  public boolean tracing;
+
+  private GraphQL graphQL;
+  private String wideQuery;
+  private String deepQuery;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    graphQL =
+        TracingBenchmarkSchema.graphQL(
+            TracingBenchmarkSchema.schema(
+                WIDE_LEAF_FIELDS / TracingBenchmarkSchema.ITEM_LEAF_FIELDS, DEEP_DEPTH),
+            tracing);
+    wideQuery = TracingBenchmarkSchema.wideQuery(WIDE_LEAF_FIELDS);
+    deepQuery = TracingBenchmarkSchema.deepQuery(DEEP_DEPTH);
+  }
+
+  @Benchmark
+  public ExecutionResult wideQuery() {
+    return graphQL.execute(executionInput(wideQuery));
+  }
+
+  @Benchmark
+  public ExecutionResult deepQuery() {
+    return graphQL.execute(executionInput(deepQuery));
+  }
+
+  private ExecutionInput executionInput(String query) {
+    return ExecutionInput.newExecutionInput()
+        .query(query)
+        .graphQLContext(
+            Map.of(
+                FederatedTracingInstrumentation.FEDERATED_TRACING_HEADER_NAME,
+                FederatedTracingInstrumentation.FEDERATED_TRACING_HEADER_VALUE))
+        .build();
+  }
+}
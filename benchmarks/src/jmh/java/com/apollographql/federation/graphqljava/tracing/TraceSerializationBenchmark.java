@@ -0,0 +1,128 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import mdg.engine.proto.Reports;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning collected field timings into the base64 encoded <code>ftv1</code> extension,
+ * i.e. building the trace node tree, serializing it and encoding the bytes. Compares building
+ * <code>Reports.Trace</code> messages with writing the wire format directly using {@link
+ * TraceEncoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TraceSerializationBenchmark {
+
+  private static final Instant START_TIME = Instant.ofEpochSecond(1_700_000_000);
+  private static final Instant END_TIME = START_TIME.plusNanos(5_000);
+
+  @Param({"1000", "10000"})
+  public int leafFields;
+
+  private int items;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    items = leafFields / TracingBenchmarkSchema.ITEM_LEAF_FIELDS;
+  }
+
+  /** Build the trace tree for the wide query of the given size. */
+  @Benchmark
+  public Reports.Trace buildTrace() {
+    return trace(items);
+  }
+
+  /** Build, serialize and base64 encode the trace, as done for every traced request. */
+  @Benchmark
+  public String buildAndEncodeTrace() {
+    return Base64.getEncoder().encodeToString(trace(items).toByteArray());
+  }
+
+  /** Write the same trace directly to the wire format, as done by the instrumentation. */
+  @Benchmark
+  public String encodeTrace() {
+    return TraceEncoder.encode(START_TIME, END_TIME, 5_000, traceNode(items)).toBase64();
+  }
+
+  private static TraceNode traceNode(int items) {
+    final TraceNode itemsNode = node(TraceNode.field("items"), "Query", "[Item!]!", 1_000);
+    long time = 2_000;
+    for (int i = 0; i < items; i++) {
+      final TraceNode itemNode = TraceNode.index(i);
+      itemNode.addChild(node(TraceNode.field("id"), "Item", "ID!", time));
+      itemNode.addChild(node(TraceNode.field("name"), "Item", "String!", time + 10));
+      itemNode.addChild(node(TraceNode.field("price"), "Item", "Float!", time + 20));
+      itemNode.addChild(node(TraceNode.field("inStock"), "Item", "Boolean!", time + 30));
+      itemsNode.addChild(itemNode);
+      time += 40;
+    }
+    final TraceNode root = TraceNode.root();
+    root.addChild(itemsNode);
+    return root;
+  }
+
+  private static TraceNode node(TraceNode node, String parentType, String type, long startTime) {
+    node.parentType = parentType;
+    node.type = type;
+    node.startTime = startTime;
+    node.endTime = startTime + 5;
+    return node;
+  }
+
+  private static Reports.Trace trace(int items) {
+    final Reports.Trace.Node.Builder itemsNode =
+        Reports.Trace.Node.newBuilder()
+            .setResponseName("items")
+            .setParentType("Query")
+            .setType("[Item!]!")
+            .setStartTime(1_000)
+            .setEndTime(2_000);
+
+    long time = 2_000;
+    for (int i = 0; i < items; i++) {
+      final Reports.Trace.Node.Builder itemNode = Reports.Trace.Node.newBuilder().setIndex(i);
+      itemNode.addChild(leaf("id", "ID!", time));
+      itemNode.addChild(leaf("name", "String!", time + 10));
+      itemNode.addChild(leaf("price", "Float!", time + 20));
+      itemNode.addChild(leaf("inStock", "Boolean!", time + 30));
+      itemsNode.addChild(itemNode.build());
+      time += 40;
+    }
+
+    return Reports.Trace.newBuilder()
+        .setStartTime(Timestamp.newBuilder().setSeconds(1_700_000_000))
+        .setEndTime(Timestamp.newBuilder().setSeconds(1_700_000_000).setNanos(5_000))
+        .setDurationNs(time)
+        .setRoot(Reports.Trace.Node.newBuilder().addChild(itemsNode.build()))
+        .build();
+  }
+
+  private static Reports.Trace.Node leaf(String responseName, String type, long startTime) {
+    return Reports.Trace.Node.newBuilder()
+        .setResponseName(responseName)
+        .setParentType("Item")
+        .setType(type)
+        .setStartTime(startTime)
+        .setEndTime(startTime + 5)
+        .build();
+  }
+}
@@ -0,0 +1,97 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeRuntimeWiring;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Schema, data and queries shared by the tracing benchmarks. */
+final class TracingBenchmarkSchema {
+  /** Number of leaf fields selected on each list item by {@link #wideQuery(int)}. */
+  static final int ITEM_LEAF_FIELDS = 4;
+
+  private static final String SDL =
+      "type Query {\n"
+          + "  items(count: Int!): [Item!]!\n"
+          + "  deep: Deep\n"
+          + "}\n"
+          + "type Item {\n"
+          + "  id: ID!\n"
+          + "  name: String!\n"
+          + "  price: Float!\n"
+          + "  inStock: Boolean!\n"
+          + "}\n"
+          + "type Deep {\n"
+          + "  value: Int!\n"
+          + "  child: Deep\n"
+          + "}\n";
+
+  private TracingBenchmarkSchema() {}
+
+  static GraphQLSchema schema(int maxItems, int maxDepth) {
+    final List<Map<String, Object>> items = new ArrayList<>(maxItems);
+    for (int i = 0; i < maxItems; i++) {
+      final Map<String, Object> item = new HashMap<>();
+      item.put("id", String.valueOf(i));
+      item.put("name", "item-" + i);
+      item.put("price", i * 1.5);
+      item.put("inStock", i % 2 == 0);
+      items.add(item);
+    }
+
+    Map<String, Object> deep = null;
+    for (int depth = maxDepth; depth > 0; depth--) {
+      final Map<String, Object> parent = new HashMap<>();
+      parent.put("value", depth);
+      parent.put("child", deep);
+      deep = parent;
+    }
+    final Map<String, Object> root = deep;
+
+    final RuntimeWiring runtimeWiring =
+        RuntimeWiring.newRuntimeWiring()
+            .type(
+                TypeRuntimeWiring.newTypeWiring("Query")
+                    .dataFetcher(
+                        "items",
+                        env -> {
+                          final int count = env.getArgument("count");
+                          return items.subList(0, Math.min(count, maxItems));
+                        })
+                    .dataFetcher("deep", env -> root))
+            .build();
+    return new SchemaGenerator()
+        .makeExecutableSchema(new SchemaParser().parse(SDL), runtimeWiring);
+  }
+
+  static GraphQL graphQL(GraphQLSchema schema, boolean tracing) {
+    final GraphQL.Builder builder = GraphQL.newGraphQL(schema);
+    if (tracing) {
+      builder.instrumentation(new FederatedTracingInstrumentation());
+    }
+    return builder.build();
+  }
+
+  /** List of objects query selecting <code>leafFields</code> leaf fields in total. */
+  static String wideQuery(int leafFields) {
+    return "{ items(count: " + leafFields / ITEM_LEAF_FIELDS + ") { id name price inStock } }";
+  }
+
+  /** Query nesting <code>depth</code> levels of objects. */
+  static String deepQuery(int depth) {
+    final StringBuilder query = new StringBuilder("{ deep { value");
+    for (int i = 1; i < depth; i++) {
+      query.append(" child { value");
+    }
+    for (int i = 0; i < depth; i++) {
+      query.append(" }");
+    }
+    return query.append(" }").toString();
+  }
+}
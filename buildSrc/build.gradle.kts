@@ -10,4 +10,5 @@ repositories {
 
 dependencies {
     implementation("com.diffplug.spotless:spotless-plugin-gradle:7.0.1")
+    implementation("me.champeau.jmh:jmh-gradle-plugin:0.7.2")
 }
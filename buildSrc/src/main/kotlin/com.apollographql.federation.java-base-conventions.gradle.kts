@@ -0,0 +1,31 @@
+plugins {
+    java
+
+    // external plugin versions are specified in the buildSrc dependencies
+    id("com.diffplug.spotless")
+}
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+spotless {
+    java {
+        importOrder()
+        removeUnusedImports()
+        googleJavaFormat("1.17.0")
+        // exclude generated proto
+        targetExclude("build/generated/**/*.java")
+    }
+}
+
+tasks {
+    withType<JavaCompile>().configureEach {
+        options.encoding = "UTF-8"
+    }
+}
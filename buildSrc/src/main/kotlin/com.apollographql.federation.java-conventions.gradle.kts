@@ -1,15 +1,12 @@
 plugins {
+    id("com.apollographql.federation.java-base-conventions")
     jacoco
     `java-library`
     `maven-publish`
     signing
-
-    // external plugin versions are specified in the buildSrc dependencies
-    id("com.diffplug.spotless")
 }
 
 repositories {
-    mavenCentral()
     mavenLocal {
         content {
             includeGroup("com.apollographql.federation")
@@ -23,9 +20,6 @@ dependencies {
 }
 
 java {
-    sourceCompatibility = JavaVersion.VERSION_11
-    targetCompatibility = JavaVersion.VERSION_11
-
     if (!version.toString().endsWith("SNAPSHOT")) {
         withJavadocJar()
         withSourcesJar()
@@ -79,21 +73,7 @@ publishing {
     }
 }
 
-spotless {
-    java {
-        importOrder()
-        removeUnusedImports()
-        googleJavaFormat("1.17.0")
-        // exclude generated proto
-        targetExclude("build/generated/**/*.java")
-    }
-}
-
 tasks {
-    withType<JavaCompile>().configureEach {
-        options.encoding = "UTF-8"
-    }
-
     withType<Javadoc>().configureEach {
         (options as StandardJavadocDocletOptions).let { docletOptions ->
             docletOptions.noTimestamp(true)
@@ -0,0 +1,14 @@
+description = "Micrometer metrics for Apollo Federation GraphQL Java server support"
+
+plugins {
+    id("com.apollographql.federation.java-conventions")
+}
+
+val annotationsVersion: String by project
+val micrometerVersion: String by project
+dependencies {
+    compileOnly("org.jetbrains:annotations:$annotationsVersion")
+    api(project(":federation-graphql-java-support"))
+    api("io.micrometer:micrometer-core:$micrometerVersion")
+    testCompileOnly("org.jetbrains:annotations:$annotationsVersion")
+}
@@ -0,0 +1,245 @@
+package com.apollographql.federation.graphqljava.micrometer;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
+
+import com.apollographql.federation.graphqljava._Entity;
+import com.apollographql.federation.graphqljava._Service;
+import com.apollographql.federation.graphqljava.caching.CacheControlHint;
+import com.apollographql.federation.graphqljava.caching.CacheControlInstrumentation;
+import graphql.ExecutionResult;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Instrumentation that records Micrometer metrics of the federation specific operations.
+ *
+ * <ul>
+ *   <li><code>federation.entities.batch.size</code> - number of representations of each type
+ *       within a single <code>_entities</code> call
+ *   <li><code>federation.entities.duration</code> - latency of the <code>_entities</code> calls
+ *       that resolved the given type
+ *   <li><code>federation.entities.missing</code> - number of representations of each type that
+ *       resolved to null
+ *   <li><code>federation.service.sdl</code> - latency of the <code>_service</code> SDL requests
+ *   <li><code>federation.cache.control</code> - number of responses by the cache control policy
+ *       computed by {@link CacheControlInstrumentation} (<code>public</code>, <code>private</code>
+ *       or <code>uncacheable</code>), only recorded when enabled
+ * </ul>
+ *
+ * Entity meters are tagged with the <code>typename</code> of the representations. Type names that
+ * do not exist in the schema are reported as <code>unknown</code> to keep the number of meters
+ * bounded.
+ */
+public class FederationMetricsInstrumentation extends SimplePerformantInstrumentation {
+  static final String TYPENAME_TAG = "typename";
+  static final String UNKNOWN_TYPENAME = "unknown";
+
+  private final MeterRegistry registry;
+  private final Tags tags;
+  private final ConcurrentMap<String, EntityMeters> entityMeters = new ConcurrentHashMap<>();
+  private final Timer serviceSdlTimer;
+  private final @Nullable Counter publicResponses;
+  private final @Nullable Counter privateResponses;
+  private final @Nullable Counter uncacheableResponses;
+
+  public FederationMetricsInstrumentation(@NotNull MeterRegistry registry) {
+    this(newBuilder(registry));
+  }
+
+  private FederationMetricsInstrumentation(Builder builder) {
+    this.registry = builder.registry;
+    this.tags = builder.tags;
+    this.serviceSdlTimer =
+        Timer.builder("federation.service.sdl")
+            .description("Latency of the _service SDL requests")
+            .tags(tags)
+            .register(registry);
+    if (builder.cacheControlMetrics) {
+      this.publicResponses = cacheControlCounter("public");
+      this.privateResponses = cacheControlCounter("private");
+      this.uncacheableResponses = cacheControlCounter("uncacheable");
+    } else {
+      this.publicResponses = null;
+      this.privateResponses = null;
+      this.uncacheableResponses = null;
+    }
+  }
+
+  public static @NotNull Builder newBuilder(@NotNull MeterRegistry registry) {
+    return new Builder(registry);
+  }
+
+  @Override
+  public InstrumentationContext<Object> beginFieldFetch(
+      InstrumentationFieldFetchParameters parameters, InstrumentationState state) {
+    final DataFetchingEnvironment environment = parameters.getEnvironment();
+    if (environment.getParentType() != environment.getGraphQLSchema().getQueryType()) {
+      return super.beginFieldFetch(parameters, state);
+    }
+
+    final String fieldName = environment.getField().getName();
+    if (_Entity.fieldName.equals(fieldName)) {
+      return beginEntitiesFetch(environment);
+    } else if (_Service.fieldName.equals(fieldName)) {
+      final long startNanos = System.nanoTime();
+      return whenCompleted(
+          (result, throwable) ->
+              serviceSdlTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+    }
+    return super.beginFieldFetch(parameters, state);
+  }
+
+  @Override
+  public @NotNull CompletableFuture<ExecutionResult> instrumentExecutionResult(
+      ExecutionResult executionResult,
+      InstrumentationExecutionParameters parameters,
+      InstrumentationState state) {
+    if (uncacheableResponses != null) {
+      // cache control policy is attached to the context before the result is instrumented
+      final CacheControlHint hint =
+          CacheControlInstrumentation.cacheControlHintFromGraphQLContext(
+              parameters.getGraphQLContext());
+      if (hint == null) {
+        uncacheableResponses.increment();
+      } else if (hint.isPrivate()) {
+        privateResponses.increment();
+      } else {
+        publicResponses.increment();
+      }
+    }
+    return super.instrumentExecutionResult(executionResult, parameters, state);
+  }
+
+  private InstrumentationContext<Object> beginEntitiesFetch(DataFetchingEnvironment environment) {
+    final List<?> representations =
+        environment.getArgumentOrDefault(_Entity.argumentName, List.of());
+    final EntityMeters[] metersByIndex = new EntityMeters[representations.size()];
+    final Map<EntityMeters, Integer> batchSizes = new LinkedHashMap<>();
+    for (int i = 0; i < metersByIndex.length; i++) {
+      // _Any accepts any value, representations that are not objects have an unknown type
+      final Object representation = representations.get(i);
+      final Object typename =
+          representation instanceof Map ? ((Map<?, ?>) representation).get("__typename") : null;
+      metersByIndex[i] = entityMeters(environment.getGraphQLSchema(), typename);
+      batchSizes.merge(metersByIndex[i], 1, Integer::sum);
+    }
+    batchSizes.forEach((meters, batchSize) -> meters.batchSize.record(batchSize));
+
+    final long startNanos = System.nanoTime();
+    return whenCompleted(
+        (result, throwable) -> {
+          final long duration = System.nanoTime() - startNanos;
+          for (EntityMeters meters : batchSizes.keySet()) {
+            meters.duration.record(duration, TimeUnit.NANOSECONDS);
+          }
+
+          Object data = result;
+          if (data instanceof DataFetcherResult<?>) {
+            data = ((DataFetcherResult<?>) data).getData();
+          }
+          final List<?> entities =
+              throwable == null && data instanceof List ? (List<?>) data : null;
+          for (int i = 0; i < metersByIndex.length; i++) {
+            if (entities == null || i >= entities.size() || entities.get(i) == null) {
+              metersByIndex[i].missing.increment();
+            }
+          }
+        });
+  }
+
+  private Counter cacheControlCounter(String policy) {
+    return Counter.builder("federation.cache.control")
+        .description("Number of responses by the computed cache control policy")
+        .tags(tags)
+        .tag("policy", policy)
+        .register(registry);
+  }
+
+  private EntityMeters entityMeters(GraphQLSchema schema, @Nullable Object typename) {
+    final String tag =
+        typename instanceof String && schema.getType((String) typename) != null
+            ? (String) typename
+            : UNKNOWN_TYPENAME;
+    final EntityMeters meters = entityMeters.get(tag);
+    if (meters != null) {
+      return meters;
+    }
+    return entityMeters.computeIfAbsent(tag, (ignored) -> new EntityMeters(tag));
+  }
+
+  /** Meters of a single entity type. */
+  private final class EntityMeters {
+    private final DistributionSummary batchSize;
+    private final Timer duration;
+    private final Counter missing;
+
+    private EntityMeters(String typename) {
+      final Tags entityTags = tags.and(TYPENAME_TAG, typename);
+      this.batchSize =
+          DistributionSummary.builder("federation.entities.batch.size")
+              .description("Number of representations of the type within a single _entities call")
+              .tags(entityTags)
+              .register(registry);
+      this.duration =
+          Timer.builder("federation.entities.duration")
+              .description("Latency of the _entities calls that resolved the type")
+              .tags(entityTags)
+              .register(registry);
+      this.missing =
+          Counter.builder("federation.entities.missing")
+              .description("Number of representations of the type that resolved to null")
+              .tags(entityTags)
+              .register(registry);
+    }
+  }
+
+  public static class Builder {
+    private final MeterRegistry registry;
+    private Tags tags = Tags.empty();
+    private boolean cacheControlMetrics = false;
+
+    private Builder(MeterRegistry registry) {
+      this.registry = registry;
+    }
+
+    /** Common tags added to all the meters (default: none). */
+    public @NotNull Builder tags(@NotNull Iterable<Tag> tags) {
+      this.tags = Tags.of(tags);
+      return this;
+    }
+
+    /**
+     * Record the cache control policy computed by {@link CacheControlInstrumentation}, which has
+     * to be registered as well (default: false).
+     */
+    public @NotNull Builder cacheControlMetrics(boolean cacheControlMetrics) {
+      this.cacheControlMetrics = cacheControlMetrics;
+      return this;
+    }
+
+    public @NotNull FederationMetricsInstrumentation build() {
+      return new FederationMetricsInstrumentation(this);
+    }
+  }
+}
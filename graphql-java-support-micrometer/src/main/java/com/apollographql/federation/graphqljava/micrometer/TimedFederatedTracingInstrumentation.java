@@ -0,0 +1,77 @@
+package com.apollographql.federation.graphqljava.micrometer;
+
+import com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation;
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link FederatedTracingInstrumentation} that records the overhead of the generated traces.
+ *
+ * <ul>
+ *   <li><code>federation.tracing.encode</code> - time spent assembling and serializing the traces,
+ *       its count is the number of traced requests
+ *   <li><code>federation.tracing.size</code> - size of the base64 encoded <code>ftv1</code>
+ *       extension
+ * </ul>
+ */
+public class TimedFederatedTracingInstrumentation extends FederatedTracingInstrumentation {
+  private static final String EXTENSION_KEY = "ftv1";
+
+  private final Timer encodeTimer;
+  private final DistributionSummary traceSize;
+
+  public TimedFederatedTracingInstrumentation(@NotNull MeterRegistry registry) {
+    this(Options.newOptions(), registry, List.of());
+  }
+
+  public TimedFederatedTracingInstrumentation(
+      @NotNull Options options, @NotNull MeterRegistry registry, @NotNull Iterable<Tag> tags) {
+    super(options);
+    this.encodeTimer =
+        Timer.builder("federation.tracing.encode")
+            .description("Time spent assembling and serializing federated traces")
+            .tags(tags)
+            .register(registry);
+    this.traceSize =
+        DistributionSummary.builder("federation.tracing.size")
+            .description("Size of the base64 encoded federated traces")
+            .baseUnit("bytes")
+            .tags(tags)
+            .register(registry);
+  }
+
+  @Override
+  public @NotNull CompletableFuture<ExecutionResult> instrumentExecutionResult(
+      ExecutionResult executionResult,
+      InstrumentationExecutionParameters parameters,
+      InstrumentationState state) {
+    if (state == null) {
+      // request is not traced
+      return super.instrumentExecutionResult(executionResult, parameters, state);
+    }
+
+    final long startNanos = System.nanoTime();
+    final CompletableFuture<ExecutionResult> tracedResult =
+        super.instrumentExecutionResult(executionResult, parameters, state);
+    encodeTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    return tracedResult.thenApply(
+        result -> {
+          final Map<Object, Object> extensions = result.getExtensions();
+          final Object trace = extensions != null ? extensions.get(EXTENSION_KEY) : null;
+          if (trace instanceof String) {
+            traceSize.record(((String) trace).length());
+          }
+          return result;
+        });
+  }
+}
@@ -0,0 +1,190 @@
+package com.apollographql.federation.graphqljava.micrometer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.apollographql.federation.graphqljava.Federation;
+import com.apollographql.federation.graphqljava._Entity;
+import com.apollographql.federation.graphqljava.caching.CacheControlInstrumentation;
+import com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.RequiredSearch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class FederationMetricsInstrumentationTest {
+  private static final String SDL =
+      "type Query { product(id: ID!): Product }\n"
+          + "type Product @key(fields: \"id\") { id: ID! name: String }";
+
+  private static final String ENTITIES_QUERY =
+      "query ($representations: [_Any!]!) {\n"
+          + "  _entities(representations: $representations) { ... on Product { name } }\n"
+          + "}";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final GraphQLSchema schema =
+      Federation.transform(SDL)
+          .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+          .fetchEntities(
+              env ->
+                  env.<List<?>>getArgument(_Entity.argumentName).stream()
+                      .map(
+                          representation ->
+                              representation instanceof Map
+                                      && "1".equals(((Map<?, ?>) representation).get("id"))
+                                  ? Map.of("name", "federation")
+                                  : null)
+                      .collect(Collectors.toList()))
+          .build();
+
+  @Test
+  void recordsEntitiesMetrics() {
+    final ExecutionResult result =
+        execute(
+            new FederationMetricsInstrumentation(registry),
+            ExecutionInput.newExecutionInput(ENTITIES_QUERY)
+                .variables(
+                    Map.of(
+                        "representations",
+                        List.of(
+                            Map.of("__typename", "Product", "id", "1"),
+                            Map.of("__typename", "Product", "id", "2"),
+                            Map.of("__typename", "Bogus", "id", "3"))))
+                .build());
+    assertTrue(result.getErrors().isEmpty());
+
+    final DistributionSummary productBatch = entityMeter("batch.size", "Product").summary();
+    assertEquals(1, productBatch.count());
+    assertEquals(2, productBatch.totalAmount());
+    assertEquals(1, entityMeter("batch.size", "unknown").summary().totalAmount());
+    assertEquals(1, entityMeter("duration", "Product").timer().count());
+    assertEquals(1, entityMeter("missing", "Product").counter().count());
+    assertEquals(1, entityMeter("missing", "unknown").counter().count());
+  }
+
+  @Test
+  void recordsNonObjectRepresentationsAsUnknown() {
+    final ExecutionResult result =
+        execute(
+            new FederationMetricsInstrumentation(registry),
+            ExecutionInput.newExecutionInput(ENTITIES_QUERY)
+                .variables(
+                    Map.of(
+                        "representations",
+                        List.of("x", Map.of("__typename", "Product", "id", "1"))))
+                .build());
+    assertTrue(result.getErrors().isEmpty());
+
+    assertEquals(1, entityMeter("batch.size", "Product").summary().totalAmount());
+    assertEquals(1, entityMeter("batch.size", "unknown").summary().totalAmount());
+    assertEquals(0, entityMeter("missing", "Product").counter().count());
+    assertEquals(1, entityMeter("missing", "unknown").counter().count());
+  }
+
+  @Test
+  void recordsServiceAndCacheControlMetrics() {
+    final Instrumentation instrumentation =
+        new ChainedInstrumentation(
+            new CacheControlInstrumentation(),
+            FederationMetricsInstrumentation.newBuilder(registry)
+                .tags(Tags.of("service", "products"))
+                .cacheControlMetrics(true)
+                .build());
+
+    execute(instrumentation, ExecutionInput.newExecutionInput("{ _service { sdl } }").build());
+    execute(instrumentation, ExecutionInput.newExecutionInput("{ _service { sdl } }").build());
+
+    final Timer serviceTimer =
+        registry.get("federation.service.sdl").tag("service", "products").timer();
+    assertEquals(2, serviceTimer.count());
+    assertEquals(2, cacheControlCounter("uncacheable").count());
+    assertEquals(0, cacheControlCounter("public").count());
+  }
+
+  @Test
+  void recordsPrivateStaleCacheControlPolicies() {
+    final GraphQLSchema cachedSchema =
+        Federation.transform(
+                "enum CacheControlScope { PUBLIC PRIVATE }\n"
+                    + "directive @cacheControl(maxAge: Int scope: CacheControlScope"
+                    + " inheritMaxAge: Boolean staleWhileRevalidate: Int staleIfError: Int)"
+                    + " on FIELD_DEFINITION | OBJECT | INTERFACE | UNION\n"
+                    + "type Query {\n"
+                    + "  me: User"
+                    + " @cacheControl(maxAge: 30, scope: PRIVATE, staleWhileRevalidate: 60)\n"
+                    + "}\n"
+                    + "type User { name: String }",
+                RuntimeWiring.newRuntimeWiring()
+                    .type(
+                        "Query",
+                        builder -> builder.dataFetcher("me", env -> Map.of("name", "me")))
+                    .build())
+            .build();
+    final Instrumentation instrumentation =
+        new ChainedInstrumentation(
+            new CacheControlInstrumentation(),
+            FederationMetricsInstrumentation.newBuilder(registry)
+                .cacheControlMetrics(true)
+                .build());
+
+    final ExecutionInput input = ExecutionInput.newExecutionInput("{ me { name } }").build();
+    GraphQL.newGraphQL(cachedSchema).instrumentation(instrumentation).build().execute(input);
+
+    // stale directives follow the scope in the header value
+    assertEquals(
+        "max-age=30, private, stale-while-revalidate=60",
+        CacheControlInstrumentation.cacheControlHeaderFromGraphQLContext(
+            input.getGraphQLContext()));
+    assertEquals(1, cacheControlCounter("private").count());
+    assertEquals(0, cacheControlCounter("public").count());
+  }
+
+  @Test
+  void recordsTracingMetrics() {
+    final TimedFederatedTracingInstrumentation instrumentation =
+        new TimedFederatedTracingInstrumentation(registry);
+
+    execute(instrumentation, ExecutionInput.newExecutionInput("{ _service { sdl } }").build());
+    final ExecutionResult traced =
+        execute(
+            instrumentation,
+            ExecutionInput.newExecutionInput("{ _service { sdl } }")
+                .graphQLContext(
+                    Map.of(
+                        FederatedTracingInstrumentation.FEDERATED_TRACING_HEADER_NAME,
+                        FederatedTracingInstrumentation.FEDERATED_TRACING_HEADER_VALUE))
+                .build());
+
+    assertTrue(traced.getExtensions().containsKey("ftv1"));
+    assertEquals(1, registry.get("federation.tracing.encode").timer().count());
+    final DistributionSummary size = registry.get("federation.tracing.size").summary();
+    assertEquals(1, size.count());
+    assertEquals(traced.getExtensions().get("ftv1").toString().length(), size.totalAmount());
+  }
+
+  private RequiredSearch entityMeter(String name, String typename) {
+    return registry.get("federation.entities." + name).tag("typename", typename);
+  }
+
+  private Counter cacheControlCounter(String policy) {
+    return registry.get("federation.cache.control").tag("policy", policy).counter();
+  }
+
+  private ExecutionResult execute(Instrumentation instrumentation, ExecutionInput input) {
+    return GraphQL.newGraphQL(schema).instrumentation(instrumentation).build().execute(input);
+  }
+}
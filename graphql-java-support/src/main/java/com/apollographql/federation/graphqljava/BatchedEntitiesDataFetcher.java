@@ -0,0 +1,227 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherResult;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <code>_entities</code> data fetcher that groups representations by their <code>__typename</code>
+ * and resolves each group with a single {@link EntityBatchResolver} call.
+ *
+ * <p>Results are returned in the order of the original representations. Failures are reported
+ * per representation, i.e. a failing batch only nulls out the representations of its own type.
+ *
+ * <p>When configured with an {@link Executor}, batches of different entity types are resolved
+ * concurrently and the data fetcher returns a {@link CompletableFuture} that completes once the
+ * slowest batch completes.
+ */
+final class BatchedEntitiesDataFetcher implements DataFetcher<Object> {
+  static final String TYPENAME_KEY = "__typename";
+
+  private final Map<String, Registration<?, ?>> registrations;
+  private final @Nullable Executor executor;
+
+  BatchedEntitiesDataFetcher(
+      Map<String, Registration<?, ?>> registrations, @Nullable Executor executor) {
+    this.registrations = new HashMap<>(registrations);
+    this.executor = executor;
+  }
+
+  @Override
+  public Object get(DataFetchingEnvironment environment) {
+    final List<?> representations = environment.getArgument(_Entity.argumentName);
+    final Object[] entities = new Object[representations.size()];
+    final List<GraphQLError> errors = new ArrayList<>();
+
+    final Map<String, Batch<?, ?>> batches =
+        groupByTypename(representations, environment, errors);
+    if (executor == null || batches.size() < 2) {
+      // nothing to parallelize
+      for (Batch<?, ?> batch : batches.values()) {
+        batch.resolve(environment);
+        batch.collect(environment, entities, errors);
+      }
+      return result(entities, errors);
+    }
+
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[batches.size()];
+    int i = 0;
+    for (Batch<?, ?> batch : batches.values()) {
+      futures[i++] = CompletableFuture.runAsync(() -> batch.resolve(environment), executor);
+    }
+    // batches capture their own failures, so allOf always completes normally
+    return CompletableFuture.allOf(futures)
+        .thenApply(
+            (ignored) -> {
+              for (Batch<?, ?> batch : batches.values()) {
+                batch.collect(environment, entities, errors);
+              }
+              return result(entities, errors);
+            });
+  }
+
+  private static DataFetcherResult<List<Object>> result(
+      Object[] entities, List<GraphQLError> errors) {
+    return DataFetcherResult.<List<Object>>newResult()
+        .data(Arrays.asList(entities))
+        .errors(errors)
+        .build();
+  }
+
+  /** Group representations by their typename, reporting unresolvable representations as errors. */
+  private Map<String, Batch<?, ?>> groupByTypename(
+      List<?> representations, DataFetchingEnvironment environment, List<GraphQLError> errors) {
+    final Map<String, Batch<?, ?>> batches = new LinkedHashMap<>();
+    for (int index = 0; index < representations.size(); index++) {
+      final Object representation = representations.get(index);
+      final Object typename =
+          representation instanceof Map ? ((Map<?, ?>) representation).get(TYPENAME_KEY) : null;
+      if (typename == null) {
+        errors.add(
+            slotError(environment, index, "Entity representation is missing __typename field"));
+        continue;
+      }
+
+      Batch<?, ?> batch = batches.get(typename.toString());
+      if (batch == null) {
+        final Registration<?, ?> registration = registrations.get(typename.toString());
+        if (registration == null) {
+          errors.add(
+              slotError(
+                  environment, index, "No entity batch resolver registered for type " + typename));
+          continue;
+        }
+        batch = registration.newBatch(typename.toString());
+        batches.put(typename.toString(), batch);
+      }
+      batch.add(index, (Map<?, ?>) representation, environment, errors);
+    }
+    return batches;
+  }
+
+  static GraphQLError slotError(DataFetchingEnvironment environment, int index, String message) {
+    return GraphqlErrorBuilder.newError(environment)
+        .path(environment.getExecutionStepInfo().getPath().segment(index))
+        .message(message)
+        .build();
+  }
+
+  /** Batch resolver registered for a single entity type. */
+  static final class Registration<K, V> {
+    private final Function<Map<String, Object>, K> keyMapper;
+    private final EntityBatchResolver<K, V> resolver;
+
+    Registration(Function<Map<String, Object>, K> keyMapper, EntityBatchResolver<K, V> resolver) {
+      this.keyMapper = keyMapper;
+      this.resolver = resolver;
+    }
+
+    Batch<K, V> newBatch(String typeName) {
+      return new Batch<>(typeName, this);
+    }
+  }
+
+  /** Representations of a single entity type collected from the current request. */
+  static final class Batch<K, V> {
+    private final String typeName;
+    private final Registration<K, V> registration;
+    private final Set<K> distinctKeys = new LinkedHashSet<>();
+    private final List<K> slotKeys = new ArrayList<>();
+    private int[] slots = new int[8];
+    private @Nullable Map<K, V> resolved;
+    private @Nullable Throwable failure;
+
+    private Batch(String typeName, Registration<K, V> registration) {
+      this.typeName = typeName;
+      this.registration = registration;
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(
+        int index,
+        Map<?, ?> representation,
+        DataFetchingEnvironment environment,
+        List<GraphQLError> errors) {
+      final K key;
+      try {
+        key = registration.keyMapper.apply((Map<String, Object>) representation);
+      } catch (RuntimeException e) {
+        errors.add(
+            slotError(
+                environment,
+                index,
+                String.format("Unable to extract %s entity key: %s", typeName, e.getMessage())));
+        return;
+      }
+      if (key == null) {
+        errors.add(
+            slotError(environment, index, String.format("Unable to extract %s key", typeName)));
+        return;
+      }
+
+      if (slotKeys.size() == slots.length) {
+        slots = Arrays.copyOf(slots, slots.length * 2);
+      }
+      slots[slotKeys.size()] = index;
+      slotKeys.add(key);
+      distinctKeys.add(key);
+    }
+
+    /** Invoke the batch resolver. May run on an executor thread, so it only updates this batch. */
+    void resolve(DataFetchingEnvironment environment) {
+      if (slotKeys.isEmpty()) {
+        return;
+      }
+      final EntitiesResolutionEvent event = new EntitiesResolutionEvent();
+      event.begin();
+      try {
+        resolved = registration.resolver.resolve(new ArrayList<>(distinctKeys), environment);
+      } catch (Throwable e) {
+        // errors are reported per representation too, so a failed batch never fails the others
+        failure = e;
+      }
+      event.end();
+      if (event.shouldCommit()) {
+        event.typeName = typeName;
+        event.representations = slotKeys.size();
+        event.distinctKeys = distinctKeys.size();
+        event.resolved = resolved != null ? resolved.size() : 0;
+        event.failed = failure != null;
+        event.commit();
+      }
+    }
+
+    /** Copy resolved entities (or failures) into their original representation slots. */
+    void collect(
+        DataFetchingEnvironment environment,
+        @NotNull Object[] entities,
+        @NotNull List<GraphQLError> errors) {
+      if (failure != null) {
+        final String message =
+            String.format("Failed to resolve %s entities: %s", typeName, failure.getMessage());
+        for (int i = 0; i < slotKeys.size(); i++) {
+          errors.add(slotError(environment, slots[i], message));
+        }
+      } else if (resolved != null) {
+        for (int i = 0; i < slotKeys.size(); i++) {
+          entities[slots[i]] = resolved.get(slotKeys.get(i));
+        }
+      }
+    }
+  }
+}
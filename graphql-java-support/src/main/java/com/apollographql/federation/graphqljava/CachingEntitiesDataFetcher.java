@@ -0,0 +1,310 @@
+package com.apollographql.federation.graphqljava;
+
+import com.apollographql.federation.graphqljava.caching.CacheTagTemplate;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherResult;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import graphql.schema.GraphQLAppliedDirective;
+import graphql.schema.GraphQLAppliedDirectiveArgument;
+import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <code>_entities</code> data fetcher that serves representations from an {@link EntityCache} and
+ * only passes the cache misses to the wrapped data fetcher. Resolved entities are spliced back in
+ * the order of the original representations and errors reported for the cache misses are remapped
+ * to the paths of the original representations.
+ */
+final class CachingEntitiesDataFetcher implements DataFetcher<Object> {
+  static final String CACHE_CONTROL_DIRECTIVE = "cacheControl";
+
+  private final DataFetcher<?> delegate;
+  private final EntityCache cache;
+  private final Map<String, CachedType> cachedTypes;
+
+  CachingEntitiesDataFetcher(
+      DataFetcher<?> delegate, EntityCache cache, Map<String, CachedType> cachedTypes) {
+    this.delegate = delegate;
+    this.cache = cache;
+    this.cachedTypes = cachedTypes;
+  }
+
+  /**
+   * Compile cache policies of the entity types that can be cached, i.e. types with a positive
+   * <code>@cacheControl(maxAge:)</code> that is not <code>PRIVATE</code>, together with the
+   * <code>@cacheTag</code> formats of these types.
+   *
+   * <p>Cached entities carry the values of all their fields, so the field level hints apply too:
+   * types with <code>PRIVATE</code> fields are never cached and the max age of the type is capped
+   * by the smallest <code>maxAge</code> of its fields. Types with <code>@requires</code> fields are
+   * never cached either, their representations also carry the required <code>@external</code>
+   * fields, so their entities depend on more than their key.
+   */
+  static Map<String, CachedType> cachedTypes(
+      GraphQLSchema schema, Map<String, RepresentationDecoder> decoders) {
+    final Map<String, CachedType> cachedTypes = new HashMap<>();
+    decoders.forEach(
+        (typeName, decoder) -> {
+          final GraphQLType type = schema.getType(typeName);
+          if (!(type instanceof GraphQLDirectiveContainer)) {
+            return;
+          }
+          final int maxAge = maxAge((GraphQLDirectiveContainer) type);
+          if (maxAge > 0) {
+            cachedTypes.put(
+                typeName,
+                new CachedType(
+                    decoder,
+                    maxAge,
+                    CacheTagTemplate.fromDirectives((GraphQLDirectiveContainer) type)));
+          }
+        });
+    return cachedTypes;
+  }
+
+  /** Max age of the entities of the type, or 0 if they should not be cached. */
+  private static int maxAge(GraphQLDirectiveContainer type) {
+    final GraphQLAppliedDirective cacheControl = type.getAppliedDirective(CACHE_CONTROL_DIRECTIVE);
+    if (cacheControl == null || isPrivate(cacheControl)) {
+      return 0;
+    }
+    final Object typeMaxAge = argumentValue(cacheControl, "maxAge");
+    int maxAge = typeMaxAge instanceof Integer ? (Integer) typeMaxAge : 0;
+    if (!(type instanceof GraphQLFieldsContainer)) {
+      return maxAge;
+    }
+    for (GraphQLFieldDefinition field : ((GraphQLFieldsContainer) type).getFieldDefinitions()) {
+      if (field.getAllAppliedDirectivesByName().containsKey(FederationDirectives.requiresName)
+          || field.getAllDirectivesByName().containsKey(FederationDirectives.requiresName)) {
+        return 0;
+      }
+      final GraphQLAppliedDirective fieldCacheControl =
+          field.getAppliedDirective(CACHE_CONTROL_DIRECTIVE);
+      if (fieldCacheControl == null) {
+        continue;
+      }
+      if (isPrivate(fieldCacheControl)) {
+        return 0;
+      }
+      final Object fieldMaxAge = argumentValue(fieldCacheControl, "maxAge");
+      if (fieldMaxAge instanceof Integer) {
+        maxAge = Math.min(maxAge, (Integer) fieldMaxAge);
+      }
+    }
+    return maxAge;
+  }
+
+  private static boolean isPrivate(GraphQLAppliedDirective cacheControl) {
+    return "PRIVATE".equals(argumentValue(cacheControl, "scope"));
+  }
+
+  private static @Nullable Object argumentValue(GraphQLAppliedDirective directive, String name) {
+    final GraphQLAppliedDirectiveArgument argument = directive.getArgument(name);
+    return argument != null ? argument.getValue() : null;
+  }
+
+  @Override
+  public Object get(DataFetchingEnvironment environment) throws Exception {
+    final List<?> representations = environment.getArgument(_Entity.argumentName);
+    final Object[] entities = new Object[representations.size()];
+    final EntityKey[] keys = new EntityKey[representations.size()];
+    final CachedType[] types = new CachedType[representations.size()];
+
+    for (int index = 0; index < representations.size(); index++) {
+      final Object representation = representations.get(index);
+      final Object typename =
+          representation instanceof Map
+              ? ((Map<?, ?>) representation).get(BatchedEntitiesDataFetcher.TYPENAME_KEY)
+              : null;
+      types[index] = typename != null ? cachedTypes.get(typename.toString()) : null;
+      keys[index] = types[index] != null ? types[index].decoder.decode(representation) : null;
+    }
+
+    // captured before resolving the misses, tags may be invalidated before they are indexed
+    final long tagGeneration = cache.tagGeneration();
+    final Object[] cached = cache.getAll(keys);
+    final List<Object> misses = new ArrayList<>();
+    final List<Integer> missIndexes = new ArrayList<>();
+    for (int index = 0; index < representations.size(); index++) {
+      if (cached[index] != null) {
+        entities[index] = cached[index];
+      } else {
+        misses.add(representations.get(index));
+        missIndexes.add(index);
+      }
+    }
+
+    if (misses.isEmpty()) {
+      return Arrays.asList(entities);
+    }
+
+    final Map<String, Object> arguments = new HashMap<>(environment.getArguments());
+    arguments.put(_Entity.argumentName, misses);
+    final Object result =
+        delegate.get(
+            DataFetchingEnvironmentImpl.newDataFetchingEnvironment(environment)
+                .arguments(arguments)
+                .build());
+    final Splice splice =
+        new Splice(environment, entities, keys, types, missIndexes, tagGeneration);
+    if (result instanceof CompletionStage) {
+      return ((CompletionStage<?>) result).thenApply(splice::apply);
+    }
+    return splice.apply(result);
+  }
+
+  /** Cache policy of a single entity type. */
+  static final class CachedType {
+    private final RepresentationDecoder decoder;
+    private final int maxAge;
+    private final List<CacheTagTemplate> tags;
+
+    CachedType(RepresentationDecoder decoder, int maxAge, List<CacheTagTemplate> tags) {
+      this.decoder = decoder;
+      this.maxAge = maxAge;
+      this.tags = tags;
+    }
+
+    /** Evaluate the <code>@cacheTag</code> formats of this type against the entity key. */
+    private List<String> tags(EntityKey key) {
+      if (tags.isEmpty()) {
+        return List.of();
+      }
+      final List<String> rendered = new ArrayList<>(tags.size());
+      for (CacheTagTemplate template : tags) {
+        final String tag = template.render(key, null);
+        if (tag != null) {
+          rendered.add(tag);
+        }
+      }
+      return rendered;
+    }
+  }
+
+  /** Merges entities resolved by the wrapped data fetcher with the cached ones. */
+  private final class Splice {
+    private final DataFetchingEnvironment environment;
+    private final Object[] entities;
+    private final EntityKey[] keys;
+    private final CachedType[] types;
+    private final List<Integer> missIndexes;
+    private final long tagGeneration;
+
+    private Splice(
+        DataFetchingEnvironment environment,
+        Object[] entities,
+        EntityKey[] keys,
+        CachedType[] types,
+        List<Integer> missIndexes,
+        long tagGeneration) {
+      this.environment = environment;
+      this.entities = entities;
+      this.keys = keys;
+      this.types = types;
+      this.missIndexes = missIndexes;
+      this.tagGeneration = tagGeneration;
+    }
+
+    private Object apply(@Nullable Object result) {
+      final Object data;
+      final List<GraphQLError> errors;
+      final Object localContext;
+      if (result instanceof DataFetcherResult) {
+        final DataFetcherResult<?> dataFetcherResult = (DataFetcherResult<?>) result;
+        data = dataFetcherResult.getData();
+        errors = remapErrors(dataFetcherResult.getErrors());
+        localContext = dataFetcherResult.getLocalContext();
+      } else {
+        data = result;
+        errors = List.of();
+        localContext = null;
+      }
+
+      if (data instanceof List) {
+        final List<?> resolved = (List<?>) data;
+        final boolean[] failed = failedIndexes(errors);
+        for (int i = 0; i < missIndexes.size() && i < resolved.size(); i++) {
+          final int index = missIndexes.get(i);
+          final Object entity = resolved.get(i);
+          entities[index] = entity;
+          if (entity != null && keys[index] != null && !failed[index]) {
+            final CachedType type = types[index];
+            cache.put(keys[index], entity, type.maxAge, type.tags(keys[index]), tagGeneration);
+          }
+        }
+      }
+
+      if (errors.isEmpty() && localContext == null) {
+        return Arrays.asList(entities);
+      }
+      return DataFetcherResult.<List<Object>>newResult()
+          .data(Arrays.asList(entities))
+          .errors(errors)
+          .localContext(localContext)
+          .build();
+    }
+
+    /** Replace the indexes of the cache misses in the error paths with the original indexes. */
+    private List<GraphQLError> remapErrors(List<GraphQLError> errors) {
+      if (errors.isEmpty()) {
+        return errors;
+      }
+      final int indexPosition = environment.getExecutionStepInfo().getPath().getLevel();
+      final List<GraphQLError> remapped = new ArrayList<>(errors.size());
+      for (GraphQLError error : errors) {
+        final List<Object> path = error.getPath();
+        if (path == null
+            || path.size() <= indexPosition
+            || !(path.get(indexPosition) instanceof Integer)
+            || (Integer) path.get(indexPosition) >= missIndexes.size()) {
+          remapped.add(error);
+          continue;
+        }
+        final List<Object> originalPath = new ArrayList<>(path);
+        originalPath.set(indexPosition, missIndexes.get((Integer) path.get(indexPosition)));
+        final GraphqlErrorBuilder<?> builder =
+            GraphqlErrorBuilder.newError()
+                .message(error.getMessage())
+                .locations(error.getLocations())
+                .extensions(error.getExtensions())
+                .path(originalPath);
+        if (error.getErrorType() != null) {
+          builder.errorType(error.getErrorType());
+        }
+        remapped.add(builder.build());
+      }
+      return remapped;
+    }
+
+    private boolean[] failedIndexes(List<GraphQLError> errors) {
+      final boolean[] failed = new boolean[entities.length];
+      final int indexPosition = environment.getExecutionStepInfo().getPath().getLevel();
+      for (GraphQLError error : errors) {
+        final List<Object> path = error.getPath();
+        if (path != null
+            && path.size() > indexPosition
+            && path.get(indexPosition) instanceof Integer
+            && (Integer) path.get(indexPosition) < failed.length) {
+          failed[(Integer) path.get(indexPosition)] = true;
+        } else {
+          // errors without a representation path may apply to any entity
+          Arrays.fill(failed, true);
+        }
+      }
+      return failed;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.apollographql.federation.graphqljava;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event recorded for every entity batch resolved by {@link BatchedEntitiesDataFetcher}. */
+@Name("com.apollographql.federation.EntitiesResolution")
+@Label("Entities Resolution")
+@Category("Apollo Federation")
+@Description("Resolution of a single entity type requested by the _entities query")
+final class EntitiesResolutionEvent extends Event {
+  @Label("Type Name")
+  String typeName;
+
+  @Label("Representations")
+  @Description("Number of representations of the type within the _entities query")
+  int representations;
+
+  @Label("Distinct Keys")
+  @Description("Number of distinct keys passed to the batch resolver")
+  int distinctKeys;
+
+  @Label("Resolved Entities")
+  int resolved;
+
+  @Label("Failed")
+  boolean failed;
+}
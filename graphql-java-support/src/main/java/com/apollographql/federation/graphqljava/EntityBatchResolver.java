@@ -0,0 +1,35 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.schema.DataFetchingEnvironment;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Resolves all representations of a single entity type with a single bulk lookup.
+ *
+ * <p>Batch resolvers are registered per entity type through {@link
+ * SchemaTransformer#resolveEntities(String, java.util.function.Function, EntityBatchResolver)}.
+ * The generated <code>_entities</code> data fetcher groups incoming representations by their
+ * <code>__typename</code>, invokes each batch resolver once with the distinct keys of its type and
+ * reassembles the results in the order of the original representations.
+ *
+ * @param <K> key extracted from the entity representation
+ * @param <V> resolved entity
+ */
+@FunctionalInterface
+public interface EntityBatchResolver<K, V> {
+
+  /**
+   * Resolve entities for the given keys.
+   *
+   * @param keys distinct entity keys, in the order they were first seen in the representations
+   * @param environment data fetching environment of the <code>_entities</code> query
+   * @return resolved entities mapped by their key, keys missing from the map resolve to null
+   * @throws Exception if entities could not be resolved, reported as an error for every
+   *     representation of this batch
+   */
+  @NotNull
+  Map<K, V> resolve(@NotNull List<K> keys, @NotNull DataFetchingEnvironment environment)
+      throws Exception;
+}
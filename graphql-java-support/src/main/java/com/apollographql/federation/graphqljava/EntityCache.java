@@ -0,0 +1,213 @@
+package com.apollographql.federation.graphqljava;
+
+import com.apollographql.federation.graphqljava.caching.BoundedExpiringMap;
+import com.apollographql.federation.graphqljava.caching.CacheTagIndex;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In-memory cache of resolved entities, keyed by the {@link EntityKey}s decoded from their <code>
+ * _entities</code> representations.
+ *
+ * <p>Entities are cached for the <code>maxAge</code> of the <code>@cacheControl</code> directive
+ * applied on their type, capped by the smallest <code>maxAge</code> of its fields. Types without a
+ * positive <code>maxAge</code> or with the <code>PRIVATE</code> scope on the type or any of its
+ * fields are never cached, neither are types with <code>@requires</code> fields, whose entities
+ * depend on more than their key. Only the representations that miss the cache are passed to the
+ * configured <code>_entities</code> data fetcher or entity batch resolvers.
+ *
+ * <pre>{@code
+ * EntityCache entityCache = EntityCache.newBuilder().maximumSize(100_000).build();
+ * GraphQLSchema schema =
+ *     Federation.transform(sdl, runtimeWiring)
+ *         .resolveEntities("Product", productResolver)
+ *         .cacheEntities(entityCache)
+ *         .build();
+ * }</pre>
+ *
+ * Entity values are shared by all the requests that hit the cache, so they should not be mutated
+ * by the data fetchers of the entity fields.
+ *
+ * <p>When configured with a {@link CacheTagIndex}, entities are tagged with the <code>@cacheTag
+ * </code> formats of their type evaluated against their keys, e.g. <code>product-{$key.id}</code>,
+ * and can be evicted with {@link CacheTagIndex#invalidateTags(Collection)}. Entities whose tags
+ * were invalidated while they were being resolved are not cached.
+ */
+public final class EntityCache {
+  private final Clock clock;
+  private final @Nullable CacheTagIndex tagIndex;
+  private final Consumer<EntityKey> tagInvalidator = this::invalidate;
+  private final BoundedExpiringMap<EntityKey, Entry> entries;
+
+  private EntityCache(Builder builder) {
+    this.clock = builder.clock;
+    this.tagIndex = builder.tagIndex;
+    this.entries = new BoundedExpiringMap<>(builder.maximumSize, this::tag, this::untag);
+  }
+
+  public static @NotNull Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Retrieve cached entity.
+   *
+   * @param key entity key
+   * @return cached entity, or null if entity is not cached or it has expired
+   */
+  @Nullable
+  public Object get(@NotNull EntityKey key) {
+    final Entry entry = entries.get(key, clock.millis());
+    return entry != null ? entry.value : null;
+  }
+
+  /**
+   * Retrieve cached entities of a batch of keys, e.g. of all the representations of an <code>
+   * _entities</code> query.
+   *
+   * @param keys entity keys, null keys are skipped
+   * @return cached entities in the order of the keys, with nulls for the entities that are not
+   *     cached or have expired
+   */
+  @NotNull
+  public Object[] getAll(@NotNull EntityKey[] keys) {
+    final long now = clock.millis();
+    final Object[] values = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      final Entry entry = keys[i] != null ? entries.get(keys[i], now) : null;
+      values[i] = entry != null ? entry.value : null;
+    }
+    return values;
+  }
+
+  /**
+   * Cache resolved entity.
+   *
+   * @param key entity key
+   * @param value resolved entity
+   * @param maxAgeSeconds how long the entity is cached
+   */
+  public void put(@NotNull EntityKey key, @NotNull Object value, int maxAgeSeconds) {
+    put(key, value, maxAgeSeconds, List.of());
+  }
+
+  /**
+   * Cache resolved entity and index it under the given cache tags.
+   *
+   * @param key entity key
+   * @param value resolved entity
+   * @param maxAgeSeconds how long the entity is cached
+   * @param tags cache tags of the entity, ignored if the cache has no {@link CacheTagIndex}
+   */
+  public void put(
+      @NotNull EntityKey key,
+      @NotNull Object value,
+      int maxAgeSeconds,
+      @NotNull Collection<String> tags) {
+    put(key, value, maxAgeSeconds, tags, tagGeneration());
+  }
+
+  /**
+   * Cache entity resolved after the given tag generation was captured, the entity is dropped if any
+   * of its tags was invalidated since then.
+   */
+  void put(
+      EntityKey key, Object value, int maxAgeSeconds, Collection<String> tags, long tagGeneration) {
+    if (maxAgeSeconds <= 0) {
+      return;
+    }
+    final long now = clock.millis();
+    final Entry entry =
+        new Entry(value, tagIndex != null && !tags.isEmpty() ? List.copyOf(tags) : List.of());
+    entries.put(key, entry, now + maxAgeSeconds * 1000L, now);
+    if (tagIndex != null && tagIndex.invalidatedSince(tagGeneration, entry.tags)) {
+      entries.remove(key);
+    }
+  }
+
+  /** Current generation of the tag index, to be captured before the entities are resolved. */
+  long tagGeneration() {
+    return tagIndex != null ? tagIndex.generation() : 0;
+  }
+
+  /**
+   * Remove cached entity.
+   *
+   * @param key entity key
+   */
+  public void invalidate(@NotNull EntityKey key) {
+    entries.remove(key);
+  }
+
+  /** Remove all the cached entities. */
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  /** Number of cached entities, including the expired entities that were not evicted yet. */
+  public int size() {
+    return entries.size();
+  }
+
+  private void tag(EntityKey key, Entry entry) {
+    if (tagIndex != null) {
+      tagIndex.tag(tagInvalidator, key, entry.tags);
+    }
+  }
+
+  private void untag(EntityKey key, Entry entry) {
+    if (tagIndex != null) {
+      tagIndex.untag(tagInvalidator, key, entry.tags);
+    }
+  }
+
+  private static final class Entry {
+    private final Object value;
+    private final List<String> tags;
+
+    private Entry(Object value, List<String> tags) {
+      this.value = value;
+      this.tags = tags;
+    }
+  }
+
+  public static class Builder {
+    private int maximumSize = 10_000;
+    private Clock clock = Clock.systemUTC();
+    private CacheTagIndex tagIndex = null;
+
+    private Builder() {}
+
+    /** Maximum number of cached entities, least recently used entities are evicted first. */
+    public @NotNull Builder maximumSize(int maximumSize) {
+      if (maximumSize <= 0) {
+        throw new IllegalArgumentException("maximumSize has to be positive, got " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /** Clock used to expire the cached entities (default: system clock). */
+    public @NotNull Builder clock(@NotNull Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Index of the entity cache tags, may be shared with other caches (default: null, i.e. cache
+     * tags are not indexed).
+     */
+    public @NotNull Builder tagIndex(@Nullable CacheTagIndex tagIndex) {
+      this.tagIndex = tagIndex;
+      return this;
+    }
+
+    public @NotNull EntityCache build() {
+      return new EntityCache(this);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.apollographql.federation.graphqljava;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compact, immutable key of a federated entity decoded from its <code>_entities</code>
+ * representation by a {@link RepresentationDecoder}.
+ *
+ * <p>Key holds only the values of the <code>@key(fields:)</code> selection that matched the
+ * representation, in selection order, and caches its hash code, so it can be used directly as a
+ * lookup key in maps and caches.
+ */
+public final class EntityKey {
+  private final String typeName;
+  private final RepresentationDecoder.KeyFields keyFields;
+  private final Object[] values;
+  private final int hash;
+
+  EntityKey(
+      @NotNull String typeName,
+      @NotNull RepresentationDecoder.KeyFields keyFields,
+      @NotNull Object[] values) {
+    this.typeName = typeName;
+    this.keyFields = keyFields;
+    this.values = values;
+    this.hash =
+        31 * (31 * typeName.hashCode() + keyFields.fieldSet.hashCode()) + Arrays.hashCode(values);
+  }
+
+  /** Entity type name. */
+  @NotNull
+  public String getTypeName() {
+    return typeName;
+  }
+
+  /** The <code>@key(fields:)</code> selection that was used to decode this key. */
+  @NotNull
+  public String getFieldSet() {
+    return keyFields.fieldSet;
+  }
+
+  /** Number of leaf fields in this key. */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Retrieve key value by its position.
+   *
+   * @param index leaf field index, in the order leaf fields appear in the key selection
+   * @return key value at the given index
+   */
+  @Nullable
+  public Object get(int index) {
+    return values[index];
+  }
+
+  /**
+   * Retrieve key value by its path, e.g. <code>id</code> or <code>variation.id</code> for
+   * <code>@key(fields: "id variation { id }")</code>.
+   *
+   * @param path dot separated path to the leaf key field
+   * @return key value or null if key does not contain the given path
+   */
+  @Nullable
+  public Object get(@NotNull String path) {
+    final int index = keyFields.indexOf(path);
+    return index < 0 ? null : values[index];
+  }
+
+  /** Leaf field paths of this key, in the same order as key values. */
+  @NotNull
+  public List<String> getPaths() {
+    return keyFields.paths;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof EntityKey)) {
+      return false;
+    }
+    final EntityKey other = (EntityKey) o;
+    return hash == other.hash
+        && typeName.equals(other.typeName)
+        && keyFields.fieldSet.equals(other.keyFields.fieldSet)
+        && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder(typeName).append('{');
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(keyFields.paths.get(i)).append('=').append(Objects.toString(values[i]));
+    }
+    return builder.append('}').toString();
+  }
+}
@@ -0,0 +1,211 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.StringValue;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLAppliedDirective;
+import graphql.schema.GraphQLAppliedDirectiveArgument;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Decodes <code>_entities</code> representations of a single entity type into compact {@link
+ * EntityKey}s.
+ *
+ * <p>Decoder is compiled once from the <code>@key(fields:)</code> selections of the entity type.
+ * Decoding a representation only walks the precomputed leaf field paths, i.e. it does not parse the
+ * field sets or inspect any representation fields that are not part of the key.
+ *
+ * <p>Entities with multiple keys are decoded using the first key (in the order of <code>@key
+ * </code> directives) whose fields are all present in the representation.
+ */
+public final class RepresentationDecoder {
+  private final String typeName;
+  private final List<KeyFields> keys;
+
+  private RepresentationDecoder(String typeName, List<KeyFields> keys) {
+    this.typeName = typeName;
+    this.keys = keys;
+  }
+
+  /**
+   * Compile decoder for the given entity type.
+   *
+   * @param schema schema containing the entity type
+   * @param typeName entity type name
+   * @return decoder for the entity type, or null if schema does not contain the given type
+   */
+  @Nullable
+  public static RepresentationDecoder forEntity(
+      @NotNull GraphQLSchema schema, @NotNull String typeName) {
+    final GraphQLType type = schema.getType(typeName);
+    if (type instanceof GraphQLDirectiveContainer) {
+      return forEntity((GraphQLDirectiveContainer) type);
+    }
+    return null;
+  }
+
+  /**
+   * Compile decoder for the given entity type.
+   *
+   * @param entityType type annotated with <code>@key</code> directives
+   * @return decoder for the entity type
+   */
+  @NotNull
+  public static RepresentationDecoder forEntity(@NotNull GraphQLDirectiveContainer entityType) {
+    final Set<String> fieldSets = new LinkedHashSet<>();
+    for (GraphQLAppliedDirective key :
+        entityType.getAppliedDirectives(FederationDirectives.keyName)) {
+      final GraphQLAppliedDirectiveArgument fields =
+          key.getArgument(FederationDirectives.fieldsArgumentName);
+      if (fields != null) {
+        addFieldSet(fieldSets, fields.getArgumentValue().getValue());
+      }
+    }
+    // fallback to also verify old directive definitions
+    for (GraphQLDirective key : entityType.getDirectives(FederationDirectives.keyName)) {
+      final GraphQLArgument fields = key.getArgument(FederationDirectives.fieldsArgumentName);
+      if (fields != null) {
+        addFieldSet(fieldSets, fields.getArgumentValue().getValue());
+      }
+    }
+
+    final List<KeyFields> keys = new ArrayList<>(fieldSets.size());
+    for (String fieldSet : fieldSets) {
+      keys.add(KeyFields.parse(fieldSet));
+    }
+    return new RepresentationDecoder(entityType.getName(), keys);
+  }
+
+  private static void addFieldSet(Set<String> fieldSets, @Nullable Object value) {
+    if (value instanceof StringValue) {
+      fieldSets.add(((StringValue) value).getValue());
+    } else if (value instanceof String) {
+      fieldSets.add((String) value);
+    }
+  }
+
+  /** Entity type name handled by this decoder. */
+  @NotNull
+  public String getTypeName() {
+    return typeName;
+  }
+
+  /**
+   * Decode entity key from its representation.
+   *
+   * @param representation <code>_entities</code> representation of this entity type
+   * @return decoded key, or null if representation does not specify values for any of the keys
+   */
+  @Nullable
+  public EntityKey decode(@Nullable Object representation) {
+    if (!(representation instanceof Map)) {
+      return null;
+    }
+    for (KeyFields key : keys) {
+      final Object[] values = key.extract((Map<?, ?>) representation);
+      if (values != null) {
+        return new EntityKey(typeName, key, values);
+      }
+    }
+    return null;
+  }
+
+  /** Names of all the fields, including the nested ones, referenced by the keys of this type. */
+  Set<String> fieldNames() {
+    final Set<String> names = new HashSet<>();
+    for (KeyFields key : keys) {
+      for (String[] path : key.segments) {
+        Collections.addAll(names, path);
+      }
+    }
+    return names;
+  }
+
+  /** Leaf field paths of a single <code>@key(fields:)</code> selection. */
+  static final class KeyFields {
+    final String fieldSet;
+    final List<String> paths;
+    private final String[][] segments;
+
+    private KeyFields(String fieldSet, List<String[]> segments) {
+      this.fieldSet = fieldSet;
+      this.segments = segments.toArray(new String[0][]);
+
+      final List<String> paths = new ArrayList<>(segments.size());
+      for (String[] path : segments) {
+        paths.add(String.join(".", path));
+      }
+      this.paths = Collections.unmodifiableList(paths);
+    }
+
+    static KeyFields parse(String fieldSet) {
+      final Document document = Parser.parse("{" + fieldSet + "}");
+      final OperationDefinition selection =
+          document.getDefinitionsOfType(OperationDefinition.class).get(0);
+
+      final List<String[]> segments = new ArrayList<>();
+      collectLeafPaths(selection.getSelectionSet(), new ArrayList<>(), segments);
+      return new KeyFields(fieldSet, segments);
+    }
+
+    private static void collectLeafPaths(
+        SelectionSet selectionSet, List<String> parent, List<String[]> leafPaths) {
+      for (Selection<?> selection : selectionSet.getSelections()) {
+        if (!(selection instanceof Field)) {
+          continue;
+        }
+        final Field field = (Field) selection;
+        parent.add(field.getName());
+        if (field.getSelectionSet() == null || field.getSelectionSet().getSelections().isEmpty()) {
+          leafPaths.add(parent.toArray(new String[0]));
+        } else {
+          collectLeafPaths(field.getSelectionSet(), parent, leafPaths);
+        }
+        parent.remove(parent.size() - 1);
+      }
+    }
+
+    int indexOf(String path) {
+      return paths.indexOf(path);
+    }
+
+    /** Extract key values from the representation, or null if any key field is missing. */
+    @Nullable
+    Object[] extract(Map<?, ?> representation) {
+      final Object[] values = new Object[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        final String[] path = segments[i];
+        Object current = representation;
+        for (String segment : path) {
+          if (!(current instanceof Map)) {
+            return null;
+          }
+          final Map<?, ?> map = (Map<?, ?>) current;
+          current = map.get(segment);
+          if (current == null && !map.containsKey(segment)) {
+            return null;
+          }
+        }
+        values[i] = current;
+      }
+      return values;
+    }
+  }
+}
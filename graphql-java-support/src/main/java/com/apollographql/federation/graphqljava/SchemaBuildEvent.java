@@ -0,0 +1,24 @@
+package com.apollographql.federation.graphqljava;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event recorded by {@link SchemaTransformer#build()}. */
+@Name("com.apollographql.federation.SchemaBuild")
+@Label("Federated Schema Build")
+@Category("Apollo Federation")
+@Description("Transformation of a schema into a federated schema")
+final class SchemaBuildEvent extends Event {
+  @Label("Federation 2")
+  boolean federation2;
+
+  @Label("Type Count")
+  @Description("Number of types in the federated schema")
+  int typeCount;
+
+  @Label("Entity Type Count")
+  int entityTypeCount;
+}
@@ -3,6 +3,7 @@ package com.apollographql.federation.graphqljava;
 import static com.apollographql.federation.graphqljava.printer.ServiceSDLPrinter.generateServiceSDL;
 import static com.apollographql.federation.graphqljava.printer.ServiceSDLPrinter.generateServiceSDLV2;
 
+import com.apollographql.federation.graphqljava.caching.CacheTagTemplate;
 import com.apollographql.federation.graphqljava.exceptions.MissingKeyException;
 import graphql.GraphQLError;
 import graphql.language.BooleanValue;
@@ -15,6 +16,8 @@ import graphql.schema.GraphQLAppliedDirectiveArgument;
 import graphql.schema.GraphQLArgument;
 import graphql.schema.GraphQLCodeRegistry;
 import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
 import graphql.schema.GraphQLInterfaceType;
 import graphql.schema.GraphQLNamedType;
 import graphql.schema.GraphQLObjectType;
@@ -23,12 +26,19 @@ import graphql.schema.GraphQLType;
 import graphql.schema.TypeResolver;
 import graphql.schema.idl.errors.SchemaProblem;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class SchemaTransformer {
   private static final Object serviceObject = new Object();
@@ -37,6 +47,14 @@ public final class SchemaTransformer {
   private TypeResolver entityTypeResolver = null;
   private DataFetcher entitiesDataFetcher = null;
   private DataFetcherFactory entitiesDataFetcherFactory = null;
+  private final Map<String, BatchedEntitiesDataFetcher.Registration<?, ?>> entityBatchResolvers =
+      new LinkedHashMap<>();
+  private Executor entityBatchExecutor = null;
+  private EntityCache entityCache = null;
+  private final Map<String, RepresentationDecoder> representationDecoders = new LinkedHashMap<>();
+  private ServiceSdlCache serviceSdlCache = null;
+  private boolean lazyServiceSdl = false;
+  private Executor serviceSdlExecutor = null;
   private Coercing coercingForAny = _Any.type.getCoercing();
   private boolean isFederation2 = false;
 
@@ -55,6 +73,7 @@ public final class SchemaTransformer {
   public SchemaTransformer fetchEntities(DataFetcher entitiesDataFetcher) {
     this.entitiesDataFetcher = entitiesDataFetcher;
     this.entitiesDataFetcherFactory = null;
+    this.entityBatchResolvers.clear();
     return this;
   }
 
@@ -62,6 +81,108 @@ public final class SchemaTransformer {
   public SchemaTransformer fetchEntitiesFactory(DataFetcherFactory entitiesDataFetcherFactory) {
     this.entitiesDataFetcher = null;
     this.entitiesDataFetcherFactory = entitiesDataFetcherFactory;
+    this.entityBatchResolvers.clear();
+    return this;
+  }
+
+  /**
+   * Register batch resolver for the given entity type. Representations passed to the <code>
+   * _entities</code> query are grouped by their <code>__typename</code> and each entity type is
+   * resolved with a single {@link EntityBatchResolver} call.
+   *
+   * <p>Registering batch resolvers replaces any previously configured <code>_entities</code> data
+   * fetcher.
+   *
+   * @param typeName entity type name
+   * @param keyMapper function extracting entity key from its representation
+   * @param resolver batch resolver invoked with all distinct keys of the given type
+   * @return this transformer
+   */
+  @NotNull
+  public <K, V> SchemaTransformer resolveEntities(
+      @NotNull String typeName,
+      @NotNull Function<Map<String, Object>, K> keyMapper,
+      @NotNull EntityBatchResolver<K, V> resolver) {
+    this.entitiesDataFetcher = null;
+    this.entitiesDataFetcherFactory = null;
+    this.entityBatchResolvers.put(
+        typeName, new BatchedEntitiesDataFetcher.Registration<>(keyMapper, resolver));
+    return this;
+  }
+
+  /**
+   * Register batch resolver for the given entity type that is invoked with {@link EntityKey}s
+   * decoded from the representations using the <code>@key(fields:)</code> selections of the
+   * entity type.
+   *
+   * @param typeName entity type name
+   * @param resolver batch resolver invoked with all distinct keys of the given type
+   * @return this transformer
+   * @see RepresentationDecoder
+   */
+  @NotNull
+  public <V> SchemaTransformer resolveEntities(
+      @NotNull String typeName, @NotNull EntityBatchResolver<EntityKey, V> resolver) {
+    final RepresentationDecoder decoder = representationDecoder(typeName);
+    return resolveEntities(
+        typeName, decoder != null ? decoder::decode : representation -> null, resolver);
+  }
+
+  /**
+   * Resolve batches of different entity types concurrently on the given executor. By default,
+   * entity batches registered through {@link #resolveEntities(String, Function,
+   * EntityBatchResolver)} are resolved sequentially on the calling thread.
+   *
+   * @param executor executor used to run entity batch resolvers, null to resolve them sequentially
+   * @return this transformer
+   */
+  @NotNull
+  public SchemaTransformer resolveEntitiesConcurrently(Executor executor) {
+    this.entityBatchExecutor = executor;
+    return this;
+  }
+
+  /**
+   * Serve <code>_entities</code> representations from the given cache, so only the cache misses
+   * are passed to the {@link #fetchEntities(DataFetcher)} data fetcher or the entity batch
+   * resolvers. Entities are cached for the <code>@cacheControl(maxAge:)</code> of their types, see
+   * {@link EntityCache}. Data fetchers created by {@link #fetchEntitiesFactory(DataFetcherFactory)}
+   * are not cached.
+   *
+   * @param entityCache entity cache, null to disable caching
+   * @return this transformer
+   */
+  @NotNull
+  public SchemaTransformer cacheEntities(EntityCache entityCache) {
+    this.entityCache = entityCache;
+    return this;
+  }
+
+  /**
+   * Defer generation of the <code>_service { sdl }</code> response until it is first requested.
+   * By default, SDL is generated eagerly by {@link #build()}.
+   *
+   * @param lazyServiceSdl whether SDL should be generated on first access
+   * @return this transformer
+   */
+  @NotNull
+  public SchemaTransformer lazyServiceSdl(boolean lazyServiceSdl) {
+    this.lazyServiceSdl = lazyServiceSdl;
+    return this;
+  }
+
+  /**
+   * Generate the <code>_service { sdl }</code> response on the given executor, so {@link #build()}
+   * returns without waiting for the SDL to be printed. Requests that arrive before the background
+   * generation completes wait for it (or generate the SDL themselves if the task has not started
+   * yet).
+   *
+   * @param executor executor used to generate the SDL, null to generate it on the calling thread
+   * @return this transformer
+   */
+  @NotNull
+  public SchemaTransformer precomputeServiceSdl(Executor executor) {
+    this.serviceSdlExecutor = executor;
     return this;
   }
 
@@ -77,6 +198,15 @@ public final class SchemaTransformer {
 
   @NotNull
   public GraphQLSchema build() throws SchemaProblem {
+    final SchemaBuildEvent event = new SchemaBuildEvent();
+    event.begin();
+
+    // invalid @cacheTag formats would otherwise fail every request once they are compiled
+    final List<GraphQLError> cacheTagErrors = validateCacheTags();
+    if (!cacheTagErrors.isEmpty()) {
+      throw new SchemaProblem(cacheTagErrors);
+    }
+
     // Make new Schema
     final GraphQLSchema.Builder newSchema = GraphQLSchema.newSchema(originalSchema);
 
@@ -87,13 +217,21 @@ public final class SchemaTransformer {
     newQueryType.field(_Service.field);
 
     final Set<String> entityTypeNames = getFederatedEntities();
+    // compile representation decoders upfront so they are not built on the request path
+    entityTypeNames.forEach(this::representationDecoder);
     // If there are entity types install: Query._entities(representations: [_Any!]!): [_Entity]!
     if (!entityTypeNames.isEmpty()) {
       newQueryType.field(_Entity.field(entityTypeNames));
 
       final GraphQLType originalAnyType = originalSchema.getType(_Any.typeName);
       if (originalAnyType == null) {
-        newSchema.additionalType(_Any.type.transform((it) -> it.coercing(coercingForAny)));
+        // representations mostly consist of the key fields, share their names between literals
+        final Set<String> keyFieldNames = new HashSet<>();
+        for (RepresentationDecoder decoder : representationDecoders.values()) {
+          keyFieldNames.addAll(decoder.fieldNames());
+        }
+        final Coercing coercing = _Any.internKeys(coercingForAny, keyFieldNames);
+        newSchema.additionalType(_Any.type.transform((it) -> it.coercing(coercing)));
       }
     }
     newSchema.query(newQueryType.build());
@@ -105,18 +243,69 @@ public final class SchemaTransformer {
     newCodeRegistry.dataFetcher(
         FieldCoordinates.coordinates(originalQueryType.getName(), _Service.fieldName),
         (DataFetcher<Object>) environment -> serviceObject);
-    final String sdl;
+    // SDL is generated from the final schema (data fetchers do not affect the printed SDL), so
+    // there is no need to build an intermediate schema just to print it
+    final AtomicReference<GraphQLSchema> federatedSchema = new AtomicReference<>();
+    final ServiceSdlCache sdlCache;
     if (isFederation2) {
-      sdl = generateServiceSDLV2(newSchema.codeRegistry(newCodeRegistry.build()).build());
+      sdlCache = ServiceSdlCache.lazy(() -> generateServiceSDLV2(federatedSchema.get()));
     } else {
       // For Federation1, we filter out the federation definitions
-      sdl = sdl(originalSchema, queryTypeShouldBeEmpty);
+      sdlCache = ServiceSdlCache.lazy(() -> sdl(originalSchema, queryTypeShouldBeEmpty));
     }
     newCodeRegistry.dataFetcher(
         FieldCoordinates.coordinates(_Service.typeName, _Service.sdlFieldName),
-        (DataFetcher<String>) environment -> sdl);
+        (DataFetcher<String>) environment -> sdlCache.getSdl());
+
+    final GraphQLSchema schema = newSchema.codeRegistry(newCodeRegistry.build()).build();
+    federatedSchema.set(schema);
+    this.serviceSdlCache = sdlCache;
+    if (serviceSdlExecutor != null) {
+      sdlCache.precompute(serviceSdlExecutor);
+    } else if (!lazyServiceSdl) {
+      sdlCache.getSdl();
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.federation2 = isFederation2;
+      event.typeCount = schema.getAllTypesAsList().size();
+      event.entityTypeCount = entityTypeNames.size();
+      event.commit();
+    }
+    return schema;
+  }
+
+  /**
+   * Precomputed <code>_service { sdl }</code> response of the last schema created by {@link
+   * #build()}.
+   *
+   * @return SDL cache or null if schema was not built yet
+   */
+  @Nullable
+  public ServiceSdlCache getServiceSdlCache() {
+    return serviceSdlCache;
+  }
+
+  /**
+   * Representation decoders of all federated entity types, compiled by {@link #build()}.
+   *
+   * @return decoders mapped by the entity type name
+   */
+  @NotNull
+  public Map<String, RepresentationDecoder> getRepresentationDecoders() {
+    return Collections.unmodifiableMap(representationDecoders);
+  }
 
-    return newSchema.codeRegistry(newCodeRegistry.build()).build();
+  private RepresentationDecoder representationDecoder(String typeName) {
+    RepresentationDecoder decoder = representationDecoders.get(typeName);
+    if (decoder == null) {
+      decoder = RepresentationDecoder.forEntity(originalSchema, typeName);
+      if (decoder != null) {
+        representationDecoders.put(typeName, decoder);
+      }
+    }
+    return decoder;
   }
 
   /**
@@ -207,6 +396,14 @@ public final class SchemaTransformer {
     final GraphQLCodeRegistry.Builder newCodeRegistry =
         GraphQLCodeRegistry.newCodeRegistry(originalSchema.getCodeRegistry());
 
+    for (String batchedTypeName : entityBatchResolvers.keySet()) {
+      if (!entityTypeNames.contains(batchedTypeName)) {
+        errors.add(
+            new FederationError(
+                "Entity batch resolver registered for unknown entity type " + batchedTypeName));
+      }
+    }
+
     if (!entityTypeNames.isEmpty()) {
       final boolean areEntitiesResolvable = resolvableEntitiesExist(entityTypeNames);
       if (entityTypeResolver != null) {
@@ -229,9 +426,14 @@ public final class SchemaTransformer {
             FieldCoordinates.coordinates(
                 originalSchema.getQueryType().getName(), _Entity.fieldName);
         if (entitiesDataFetcher != null) {
-          newCodeRegistry.dataFetcher(_entities, entitiesDataFetcher);
+          newCodeRegistry.dataFetcher(_entities, cachingEntities(entitiesDataFetcher));
         } else if (entitiesDataFetcherFactory != null) {
           newCodeRegistry.dataFetcher(_entities, entitiesDataFetcherFactory);
+        } else if (!entityBatchResolvers.isEmpty()) {
+          newCodeRegistry.dataFetcher(
+              _entities,
+              cachingEntities(
+                  new BatchedEntitiesDataFetcher(entityBatchResolvers, entityBatchExecutor)));
         } else if (!newCodeRegistry.hasDataFetcher(_entities)) {
           errors.add(new FederationError("Missing a data fetcher for _entities"));
         }
@@ -245,6 +447,41 @@ public final class SchemaTransformer {
     return newCodeRegistry;
   }
 
+  private List<GraphQLError> validateCacheTags() {
+    final List<GraphQLError> errors = new ArrayList<>();
+    for (GraphQLNamedType type : originalSchema.getAllTypesAsList()) {
+      if (type instanceof GraphQLObjectType) {
+        validateCacheTags((GraphQLObjectType) type, type.getName(), errors);
+      }
+      if (type instanceof GraphQLFieldsContainer) {
+        for (GraphQLFieldDefinition field : ((GraphQLFieldsContainer) type).getFieldDefinitions()) {
+          validateCacheTags(field, type.getName() + "." + field.getName(), errors);
+        }
+      }
+    }
+    return errors;
+  }
+
+  private static void validateCacheTags(
+      GraphQLDirectiveContainer container, String coordinates, List<GraphQLError> errors) {
+    try {
+      CacheTagTemplate.fromDirectives(container);
+    } catch (IllegalArgumentException e) {
+      errors.add(
+          new FederationError("Invalid @cacheTag on " + coordinates + ": " + e.getMessage()));
+    }
+  }
+
+  private DataFetcher<?> cachingEntities(DataFetcher<?> entitiesDataFetcher) {
+    if (entityCache == null) {
+      return entitiesDataFetcher;
+    }
+    return new CachingEntitiesDataFetcher(
+        entitiesDataFetcher,
+        entityCache,
+        CachingEntitiesDataFetcher.cachedTypes(originalSchema, representationDecoders));
+  }
+
   private boolean resolvableEntitiesExist(Set<String> entityNames) {
     return entityNames.stream()
         .anyMatch(
@@ -0,0 +1,313 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.ExecutionResult;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Precomputed <code>_service { sdl }</code> response.
+ *
+ * <p>Federation routers poll the subgraph SDL on every composition and health check cycle. As the
+ * SDL never changes for a given schema, this cache holds the SDL together with its UTF-8 encoded
+ * JSON response, a gzip compressed variant of that response and a content hash that can be used
+ * as an HTTP <code>ETag</code>. The compressed variant and the hash are only computed on their
+ * first use, as most routers request neither of them. HTTP integrations can use {@link
+ * #matches(String)} to detect the introspection query and serve the precomputed response without
+ * going through GraphQL parsing, validation and execution.
+ *
+ * <p>SDL can also be generated lazily, see {@link #lazy(Supplier)}, so printing large schemas does
+ * not delay application startup.
+ *
+ * <pre>{@code
+ * ServiceSdlCache sdlCache = transformer.getServiceSdlCache();
+ * if (sdlCache.matches(request.getQuery())) {
+ *   response.setHeader("ETag", sdlCache.getETag());
+ *   return sdlCache.getResponseBytes();
+ * }
+ * }</pre>
+ */
+public final class ServiceSdlCache {
+  private static final List<String> SERVICE_SDL_SELECTION =
+      List.of("{", _Service.fieldName, "{", _Service.sdlFieldName, "}", "}");
+  // long enough for any reasonable formatting of the introspection query, including comments
+  private static final int MAX_QUERY_LENGTH = 1024;
+
+  private final Supplier<String> sdlSupplier;
+  private volatile Response response;
+
+  private ServiceSdlCache(Supplier<String> sdlSupplier) {
+    this.sdlSupplier = sdlSupplier;
+  }
+
+  /**
+   * Precompute <code>_service { sdl }</code> response for the given SDL.
+   *
+   * @param sdl service SDL
+   * @return SDL cache
+   */
+  @NotNull
+  public static ServiceSdlCache of(@NotNull String sdl) {
+    final ServiceSdlCache cache = new ServiceSdlCache(() -> sdl);
+    cache.response();
+    return cache;
+  }
+
+  /**
+   * Create cache that generates the SDL on first access. Supplier is invoked at most once, unless
+   * it throws in which case it will be retried on next access.
+   *
+   * @param sdlSupplier generates service SDL
+   * @return SDL cache
+   */
+  @NotNull
+  public static ServiceSdlCache lazy(@NotNull Supplier<String> sdlSupplier) {
+    return new ServiceSdlCache(sdlSupplier);
+  }
+
+  /**
+   * Generate the SDL and precompute the responses on the given executor, so they are ready before
+   * the first <code>_service</code> query arrives. Failures are not reported here, they are
+   * rethrown on the next access instead.
+   *
+   * @param executor executor used to generate the SDL
+   * @return this cache
+   */
+  @NotNull
+  public ServiceSdlCache precompute(@NotNull Executor executor) {
+    if (response == null) {
+      executor.execute(
+          () -> {
+            try {
+              response();
+            } catch (RuntimeException e) {
+              // retried and rethrown on next access
+            }
+          });
+    }
+    return this;
+  }
+
+  /** Whether the SDL was already generated. */
+  public boolean isComputed() {
+    return response != null;
+  }
+
+  /** Service SDL returned from the <code>_service { sdl }</code> query. */
+  @NotNull
+  public String getSdl() {
+    return response().sdl;
+  }
+
+  /** Read-only view of the UTF-8 encoded JSON response of the <code>_service</code> query. */
+  @NotNull
+  public ByteBuffer getResponseBytes() {
+    return ByteBuffer.wrap(response().responseBytes).asReadOnlyBuffer();
+  }
+
+  /** Read-only view of the gzip compressed JSON response, see {@link #getResponseBytes()}. */
+  @NotNull
+  public ByteBuffer getGzippedResponseBytes() {
+    return ByteBuffer.wrap(response().gzippedResponseBytes()).asReadOnlyBuffer();
+  }
+
+  /** Quoted strong entity tag derived from the SHA-256 hash of the response. */
+  @NotNull
+  public String getETag() {
+    return response().etag();
+  }
+
+  /** Precomputed result of the <code>_service { sdl }</code> query. */
+  @NotNull
+  public ExecutionResult getExecutionResult() {
+    return response().executionResult;
+  }
+
+  private Response response() {
+    Response current = response;
+    if (current == null) {
+      synchronized (this) {
+        current = response;
+        if (current == null) {
+          current = new Response(sdlSupplier.get());
+          response = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Check whether the given query is exactly the <code>_service { sdl }</code> introspection query,
+   * ignoring insignificant whitespace, commas, comments and the optional operation name.
+   *
+   * @param query GraphQL query
+   * @return true if the query only selects <code>_service { sdl }</code>
+   */
+  public boolean matches(@Nullable String query) {
+    if (query == null || query.length() > MAX_QUERY_LENGTH) {
+      return false;
+    }
+
+    final List<String> tokens = new ArrayList<>(SERVICE_SDL_SELECTION.size() + 2);
+    int i = 0;
+    while (i < query.length()) {
+      final char c = query.charAt(i);
+      if (c == '#') {
+        while (i < query.length() && query.charAt(i) != '\n' && query.charAt(i) != '\r') {
+          i++;
+        }
+      } else if (Character.isWhitespace(c) || c == ',' || c == '\uFEFF') {
+        i++;
+      } else if (c == '{' || c == '}') {
+        tokens.add(c == '{' ? "{" : "}");
+        i++;
+      } else if (isNameStart(c)) {
+        // names are only separated by ignored characters or punctuators, never merged
+        final int start = i;
+        while (i < query.length() && isNameContinue(query.charAt(i))) {
+          i++;
+        }
+        tokens.add(query.substring(start, i));
+      } else {
+        return false;
+      }
+      if (tokens.size() > SERVICE_SDL_SELECTION.size() + 2) {
+        return false;
+      }
+    }
+
+    final int prefixLength = tokens.size() - SERVICE_SDL_SELECTION.size();
+    if (prefixLength < 0
+        || !tokens.subList(prefixLength, tokens.size()).equals(SERVICE_SDL_SELECTION)) {
+      return false;
+    }
+    if (prefixLength == 0) {
+      return true;
+    }
+    // otherwise selection has to be preceded by the query keyword and an optional operation name
+    return "query".equals(tokens.get(0)) && (prefixLength == 1 || isName(tokens.get(1)));
+  }
+
+  private static boolean isName(String token) {
+    return isNameStart(token.charAt(0));
+  }
+
+  private static boolean isNameStart(char c) {
+    return c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+  }
+
+  private static boolean isNameContinue(char c) {
+    return isNameStart(c) || (c >= '0' && c <= '9');
+  }
+
+  private static String responseJson(String sdl) {
+    final StringBuilder json = new StringBuilder(sdl.length() + 64);
+    json.append("{\"data\":{\"")
+        .append(_Service.fieldName)
+        .append("\":{\"")
+        .append(_Service.sdlFieldName)
+        .append("\":\"");
+    for (int i = 0; i < sdl.length(); i++) {
+      final char c = sdl.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    return json.append("\"}}}").toString();
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 32);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static String sha256Hex(byte[] bytes) {
+    final byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+    final StringBuilder hex = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  /** Responses precomputed from the generated SDL. */
+  private static final class Response {
+    private final String sdl;
+    private final byte[] responseBytes;
+    private final ExecutionResult executionResult;
+    // derived from the response bytes on first use, concurrent callers compute the same values
+    private volatile byte[] gzippedResponseBytes;
+    private volatile String etag;
+
+    private Response(String sdl) {
+      this.sdl = sdl;
+      this.responseBytes = responseJson(sdl).getBytes(StandardCharsets.UTF_8);
+      this.executionResult =
+          ExecutionResult.newExecutionResult()
+              .data(Map.of(_Service.fieldName, Map.of(_Service.sdlFieldName, sdl)))
+              .build();
+    }
+
+    private byte[] gzippedResponseBytes() {
+      byte[] gzipped = gzippedResponseBytes;
+      if (gzipped == null) {
+        gzipped = gzip(responseBytes);
+        gzippedResponseBytes = gzipped;
+      }
+      return gzipped;
+    }
+
+    private String etag() {
+      String current = etag;
+      if (current == null) {
+        current = "\"" + sha256Hex(responseBytes) + "\"";
+        etag = current;
+      }
+      return current;
+    }
+  }
+}
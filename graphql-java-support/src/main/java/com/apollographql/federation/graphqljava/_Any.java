@@ -17,7 +17,13 @@ import graphql.schema.CoercingParseLiteralException;
 import graphql.schema.CoercingParseValueException;
 import graphql.schema.CoercingSerializeException;
 import graphql.schema.GraphQLScalarType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -87,6 +93,122 @@ public final class _Any {
         }
       };
 
+  /**
+   * Alternative coercing logic for the _Any scalar that is optimized for large literal
+   * representations. Literals are walked without streams into presized {@link ArrayList} and
+   * {@link LinkedHashMap} instances, and the object keys known upfront, i.e. <code>__typename
+   * </code> and the <code>@key</code> field names of the schema, are shared across parsed
+   * literals. Unlike the default coercing, duplicate object keys do not fail the parsing, the last
+   * value wins.
+   *
+   * <p>Use it with {@link SchemaTransformer#coercingForAny(Coercing)}, which shares the <code>@key
+   * </code> field names of the transformed schema.
+   *
+   * @return optimized _Any coercing
+   */
+  public static Coercing optimizedCoercing() {
+    return OptimizedCoercing.INSTANCE;
+  }
+
+  /**
+   * Share the given object keys across the literals parsed by the optimized coercing.
+   *
+   * @param coercing _Any coercing
+   * @param keys object keys, e.g. the <code>@key</code> field names of the schema
+   * @return copy of the optimized coercing that also shares the given keys, or the given coercing
+   *     if it is not the optimized one
+   */
+  static Coercing internKeys(Coercing coercing, Collection<String> keys) {
+    if (!(coercing instanceof OptimizedCoercing) || keys.isEmpty()) {
+      return coercing;
+    }
+    final Map<String, String> internedKeys = new HashMap<>(((OptimizedCoercing) coercing).keys);
+    for (String key : keys) {
+      internedKeys.putIfAbsent(key, key);
+    }
+    return new OptimizedCoercing(internedKeys);
+  }
+
+  private static final class OptimizedCoercing implements Coercing<Object, Object> {
+    private static final String TYPENAME = BatchedEntitiesDataFetcher.TYPENAME_KEY;
+    private static final OptimizedCoercing INSTANCE =
+        new OptimizedCoercing(Map.of(TYPENAME, TYPENAME));
+
+    // only keys known upfront are shared, client provided keys would crowd them out
+    private final Map<String, String> keys;
+
+    private OptimizedCoercing(Map<String, String> keys) {
+      this.keys = keys;
+    }
+
+    @Override
+    public Object serialize(
+        @NotNull Object dataFetcherResult,
+        @NotNull GraphQLContext graphQLContext,
+        @NotNull Locale locale)
+        throws CoercingSerializeException {
+      return dataFetcherResult;
+    }
+
+    @Override
+    public Object parseValue(
+        @NotNull Object input, @NotNull GraphQLContext graphQLContext, @NotNull Locale locale)
+        throws CoercingParseValueException {
+      return input;
+    }
+
+    @Nullable
+    @Override
+    public Object parseLiteral(
+        @NotNull Value<?> input,
+        @NotNull CoercedVariables variables,
+        @NotNull GraphQLContext graphQLContext,
+        @NotNull Locale locale)
+        throws CoercingParseLiteralException {
+      return parse(input);
+    }
+
+    @Nullable
+    private Object parse(Value<?> input) {
+      if (input instanceof StringValue) {
+        return ((StringValue) input).getValue();
+      } else if (input instanceof ObjectValue) {
+        final List<ObjectField> fields = ((ObjectValue) input).getObjectFields();
+        // presize so that the map never rehashes with the default load factor
+        final Map<String, Object> result = new LinkedHashMap<>((int) (fields.size() / 0.75f) + 1);
+        for (int i = 0; i < fields.size(); i++) {
+          final ObjectField field = fields.get(i);
+          result.put(intern(field.getName()), parse(field.getValue()));
+        }
+        return result;
+      } else if (input instanceof ArrayValue) {
+        final List<Value> values = ((ArrayValue) input).getValues();
+        final List<Object> result = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+          result.add(parse(values.get(i)));
+        }
+        return result;
+      } else if (input instanceof IntValue) {
+        return ((IntValue) input).getValue();
+      } else if (input instanceof BooleanValue) {
+        return ((BooleanValue) input).isValue();
+      } else if (input instanceof NullValue) {
+        return null;
+      } else if (input instanceof FloatValue) {
+        return ((FloatValue) input).getValue();
+      } else if (input instanceof EnumValue) {
+        return ((EnumValue) input).getName();
+      } else {
+        throw new CoercingParseLiteralException("Cannot parse input(" + input + ") to Any scalar");
+      }
+    }
+
+    private String intern(String key) {
+      final String interned = keys.get(key);
+      return interned != null ? interned : key;
+    }
+  }
+
   public static GraphQLScalarType type =
       GraphQLScalarType.newScalar().name(typeName).coercing(coercing).build();
 }
@@ -0,0 +1,193 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Concurrent map of expiring entries bounded by the number of entries, backing {@link
+ * ResponseCache} and {@link com.apollographql.federation.graphqljava.EntityCache}.
+ *
+ * <p>Lookups never lock the whole map, they only record the access order of the entry. Once the map
+ * outgrows its maximum size, a single thread sweeps it and evicts the expired entries and the least
+ * recently used ones. Sweeps evict 1/16 of the maximum size on top of the excess, so that the map
+ * is not swept on every insert, i.e. the eviction order is only approximately LRU under concurrent
+ * inserts.
+ *
+ * <p>Listeners are notified while holding the lock of the entry key, so the insertion and removal
+ * of the same key, e.g. the corresponding {@link CacheTagIndex} updates, are never reordered.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class BoundedExpiringMap<K, V> {
+  private final int maximumSize;
+  private final BiConsumer<K, V> onInsert;
+  private final BiConsumer<K, V> onRemoval;
+  private final ConcurrentMap<K, Node<V>> nodes = new ConcurrentHashMap<>();
+  private final AtomicLong accessOrder = new AtomicLong();
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+
+  /**
+   * Create map without insertion and removal listeners.
+   *
+   * @param maximumSize maximum number of entries
+   */
+  public BoundedExpiringMap(int maximumSize) {
+    this(maximumSize, (key, value) -> {}, (key, value) -> {});
+  }
+
+  /**
+   * Create map that notifies the given listeners, e.g. to index the entries by their cache tags.
+   *
+   * @param maximumSize maximum number of entries
+   * @param onInsert called when an entry is inserted
+   * @param onRemoval called when an entry is replaced, invalidated, expired or evicted
+   */
+  public BoundedExpiringMap(
+      int maximumSize, @NotNull BiConsumer<K, V> onInsert, @NotNull BiConsumer<K, V> onRemoval) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize has to be positive, got " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+    this.onInsert = onInsert;
+    this.onRemoval = onRemoval;
+  }
+
+  /**
+   * Retrieve the value of the key, expired entries are removed.
+   *
+   * @param key entry key
+   * @param nowMillis current time
+   * @return value, or null if the key is not present or it has expired
+   */
+  public @Nullable V get(@NotNull K key, long nowMillis) {
+    final Node<V> node = nodes.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (node.expiresAtMillis <= nowMillis) {
+      remove(key, node);
+      return null;
+    }
+    node.lastAccess = accessOrder.incrementAndGet();
+    return node.value;
+  }
+
+  /**
+   * Insert or replace the value of the key, and evict the least recently used entries if the map
+   * outgrew its maximum size.
+   *
+   * @param key entry key
+   * @param value entry value
+   * @param expiresAtMillis time the entry expires at
+   * @param nowMillis current time
+   */
+  public void put(@NotNull K key, @NotNull V value, long expiresAtMillis, long nowMillis) {
+    final Node<V> node = new Node<>(value, expiresAtMillis, accessOrder.incrementAndGet());
+    nodes.compute(
+        key,
+        (k, previous) -> {
+          if (previous != null) {
+            onRemoval.accept(k, previous.value);
+          }
+          onInsert.accept(k, value);
+          return node;
+        });
+    if (nodes.size() > maximumSize) {
+      sweep(nowMillis);
+    }
+  }
+
+  /**
+   * Remove the entry of the key, if present.
+   *
+   * @param key entry key
+   */
+  public void remove(@NotNull K key) {
+    nodes.computeIfPresent(
+        key,
+        (k, node) -> {
+          onRemoval.accept(k, node.value);
+          return null;
+        });
+  }
+
+  /** Remove all the entries. */
+  public void clear() {
+    for (K key : nodes.keySet()) {
+      remove(key);
+    }
+  }
+
+  /** Number of entries, including the expired entries that were not removed yet. */
+  public int size() {
+    return nodes.size();
+  }
+
+  private void remove(K key, Node<V> expected) {
+    // entry may have been replaced since it was read
+    nodes.computeIfPresent(
+        key,
+        (k, node) -> {
+          if (node != expected) {
+            return node;
+          }
+          onRemoval.accept(k, node.value);
+          return null;
+        });
+  }
+
+  private void sweep(long nowMillis) {
+    if (!sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      int excess = nodes.size() - maximumSize + maximumSize / 16;
+      final long[] accesses = new long[nodes.size()];
+      int live = 0;
+      for (Map.Entry<K, Node<V>> entry : nodes.entrySet()) {
+        final Node<V> node = entry.getValue();
+        if (node.expiresAtMillis <= nowMillis) {
+          remove(entry.getKey(), node);
+          excess--;
+        } else if (live < accesses.length) {
+          accesses[live++] = node.lastAccess;
+        }
+      }
+      if (excess <= 0 || live == 0) {
+        return;
+      }
+
+      // access order is unique, so exactly the excess entries are at or below the threshold
+      Arrays.sort(accesses, 0, live);
+      final long threshold = accesses[Math.min(excess, live) - 1];
+      for (Map.Entry<K, Node<V>> entry : nodes.entrySet()) {
+        final Node<V> node = entry.getValue();
+        if (node.lastAccess <= threshold) {
+          remove(entry.getKey(), node);
+        }
+      }
+    } finally {
+      sweeping.set(false);
+    }
+  }
+
+  private static final class Node<V> {
+    private final V value;
+    private final long expiresAtMillis;
+    private volatile long lastAccess;
+
+    private Node(V value, long expiresAtMillis, long lastAccess) {
+      this.value = value;
+      this.expiresAtMillis = expiresAtMillis;
+      this.lastAccess = lastAccess;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache policy of an executed operation computed by {@link CacheControlInstrumentation}, i.e. the
+ * most restrictive <code>maxAge</code>, <code>scope</code>, <code>staleWhileRevalidate</code> and
+ * <code>staleIfError</code> of all the resolved fields.
+ */
+public final class CacheControlHint {
+  private final int maxAge;
+  private final boolean privateScope;
+  private final @Nullable Integer staleWhileRevalidate;
+  private final @Nullable Integer staleIfError;
+
+  CacheControlHint(
+      int maxAge,
+      boolean privateScope,
+      @Nullable Integer staleWhileRevalidate,
+      @Nullable Integer staleIfError) {
+    this.maxAge = maxAge;
+    this.privateScope = privateScope;
+    this.staleWhileRevalidate = staleWhileRevalidate;
+    this.staleIfError = staleIfError;
+  }
+
+  /** Max age in seconds. */
+  public int getMaxAge() {
+    return maxAge;
+  }
+
+  /** Whether the response is specific to the user that requested it. */
+  public boolean isPrivate() {
+    return privateScope;
+  }
+
+  /**
+   * How long in seconds caches may serve the response after it became stale while they revalidate
+   * it in the background, null if not specified.
+   */
+  @Nullable
+  public Integer getStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  /**
+   * How long in seconds caches may serve the response after it became stale if revalidation fails,
+   * null if not specified.
+   */
+  @Nullable
+  public Integer getStaleIfError() {
+    return staleIfError;
+  }
+
+  /** Hint with the same scope and stale directives and the given max age. */
+  @NotNull
+  CacheControlHint withMaxAge(int maxAge) {
+    return new CacheControlHint(maxAge, privateScope, staleWhileRevalidate, staleIfError);
+  }
+
+  /**
+   * <code>Cache-Control</code> header value, e.g. <code>max-age=60, public</code> or <code>
+   * max-age=60, public, stale-while-revalidate=30, stale-if-error=600</code>.
+   */
+  @NotNull
+  public String toHeaderValue() {
+    final StringBuilder header = new StringBuilder("max-age=").append(maxAge);
+    header.append(privateScope ? ", private" : ", public");
+    if (staleWhileRevalidate != null) {
+      header.append(", stale-while-revalidate=").append(staleWhileRevalidate);
+    }
+    if (staleIfError != null) {
+      header.append(", stale-if-error=").append(staleIfError);
+    }
+    return header.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CacheControlHint)) {
+      return false;
+    }
+    final CacheControlHint other = (CacheControlHint) o;
+    return maxAge == other.maxAge
+        && privateScope == other.privateScope
+        && Objects.equals(staleWhileRevalidate, other.staleWhileRevalidate)
+        && Objects.equals(staleIfError, other.staleIfError);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(maxAge, privateScope, staleWhileRevalidate, staleIfError);
+  }
+
+  @Override
+  public String toString() {
+    return "CacheControlHint{" + toHeaderValue() + "}";
+  }
+}
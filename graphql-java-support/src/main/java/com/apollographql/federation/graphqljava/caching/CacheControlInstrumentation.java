@@ -11,8 +11,12 @@ import graphql.execution.instrumentation.parameters.InstrumentationExecutionPara
 import graphql.execution.instrumentation.parameters.InstrumentationFieldParameters;
 import graphql.schema.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A GraphQL Java Instrumentation that computes a max age for an operation based on @cacheControl
@@ -22,9 +26,23 @@ import org.jetbrains.annotations.Nullable;
  * int value is provided. If you would rather want to return explicit `max-age=0` values, you need
  * to explicitly opt-in to this behavior by specifying `allowZeroMaxAge=true` constructor value.
  *
+ * <p>Besides the standard arguments, <code>@cacheControl</code> may specify <code>
+ * staleWhileRevalidate: Int</code> and <code>staleIfError: Int</code> seconds. They are aggregated
+ * like <code>maxAge</code>, i.e. the smallest value of all the resolved fields wins, and emitted as
+ * <code>stale-while-revalidate</code> and <code>stale-if-error</code> header directives. Fields
+ * with a max age but without stale arguments do not allow serving stale responses at all.
+ *
  * <p>You can retrieve the "max-age=..." header value with a {@link GraphQLContext}: <code>
  * String cacheControlHeader = CacheControlInstrumentation.cacheControlContext(context);
- * </code>
+ * </code>, or the computed policy with {@link #cacheControlHintFromGraphQLContext(GraphQLContext)}.
+ * {@link ResponseCache} uses the computed policy to cache whole responses.
+ *
+ * <p>Values of the <code>@cacheTag</code> directives touched by the operation, i.e. formats applied
+ * on the executed fields evaluated against the field arguments and formats applied on the entity
+ * types evaluated against the <code>_entities</code> representations, are exposed with {@link
+ * #cacheTagsFromGraphQLContext(GraphQLContext)} and as a space separated <code>Surrogate-Key
+ * </code> header value with {@link #surrogateKeyHeaderFromGraphQLContext(GraphQLContext)}, so CDNs
+ * can purge the cached responses by tag.
  *
  * <p>See <a
  * href="https://www.apollographql.com/docs/apollo-server/performance/caching/">@cacheControl
@@ -33,14 +51,26 @@ import org.jetbrains.annotations.Nullable;
  * implementation.
  */
 public class CacheControlInstrumentation extends SimplePerformantInstrumentation {
+  /** Default maximum length of the surrogate key header value, the limit of Fastly. */
+  public static final int DEFAULT_MAX_SURROGATE_KEY_HEADER_LENGTH = 16_384;
+
+  private static final Logger logger = LoggerFactory.getLogger(CacheControlInstrumentation.class);
+
   private final int defaultMaxAge;
   private final boolean allowZeroMaxAge;
+  private final int maxSurrogateKeyHeaderLength;
+  private volatile @Nullable CachePolicyTable policyTable;
 
   private static final Object CONTEXT_KEY = new Object();
+  private static final Object HINT_CONTEXT_KEY = new Object();
+  private static final Object CACHE_TAGS_CONTEXT_KEY = new Object();
+  private static final Object SURROGATE_KEY_CONTEXT_KEY = new Object();
   private static final String DIRECTIVE_NAME = "cacheControl";
   private static final String MAX_AGE = "maxAge";
   private static final String SCOPE = "scope";
   private static final String INHERIT_MAX_AGE = "inheritMaxAge";
+  private static final String STALE_WHILE_REVALIDATE = "staleWhileRevalidate";
+  private static final String STALE_IF_ERROR = "staleIfError";
 
   public CacheControlInstrumentation() {
     this(0, false);
@@ -51,8 +81,24 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
   }
 
   public CacheControlInstrumentation(int defaultMaxAge, boolean allowZeroMaxAge) {
+    this(defaultMaxAge, allowZeroMaxAge, DEFAULT_MAX_SURROGATE_KEY_HEADER_LENGTH);
+  }
+
+  /**
+   * @param defaultMaxAge max age of the root and composite fields without explicit max age
+   * @param allowZeroMaxAge whether to return explicit <code>max-age=0</code> header values
+   * @param maxSurrogateKeyHeaderLength maximum length of the surrogate key header value, cache
+   *     tags that do not fit are left out of the header
+   */
+  public CacheControlInstrumentation(
+      int defaultMaxAge, boolean allowZeroMaxAge, int maxSurrogateKeyHeaderLength) {
+    if (maxSurrogateKeyHeaderLength <= 0) {
+      throw new IllegalArgumentException(
+          "maxSurrogateKeyHeaderLength has to be positive, got " + maxSurrogateKeyHeaderLength);
+    }
     this.defaultMaxAge = defaultMaxAge;
     this.allowZeroMaxAge = allowZeroMaxAge;
+    this.maxSurrogateKeyHeaderLength = maxSurrogateKeyHeaderLength;
   }
 
   @Nullable
@@ -60,9 +106,80 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
     return context.get(CONTEXT_KEY);
   }
 
+  @Nullable
+  public static CacheControlHint cacheControlHintFromGraphQLContext(GraphQLContext context) {
+    return context.get(HINT_CONTEXT_KEY);
+  }
+
+  /**
+   * Retrieve the space separated <code>Surrogate-Key</code> header value of the cache tags touched
+   * by the operation.
+   *
+   * @param context operation context
+   * @return header value, or null if the operation did not touch any cache tag
+   */
+  @Nullable
+  public static String surrogateKeyHeaderFromGraphQLContext(GraphQLContext context) {
+    return context.get(SURROGATE_KEY_CONTEXT_KEY);
+  }
+
+  /**
+   * Retrieve the sorted values of the <code>@cacheTag</code> directives touched by the operation.
+   *
+   * @param context operation context
+   * @return cache tags, empty if the operation did not touch any cache tag
+   */
+  public static Set<String> cacheTagsFromGraphQLContext(GraphQLContext context) {
+    return context.getOrDefault(CACHE_TAGS_CONTEXT_KEY, Collections.emptySortedSet());
+  }
+
+  static void attachCacheControlHint(GraphQLContext context, CacheControlHint hint) {
+    context.put(CONTEXT_KEY, hint.toHeaderValue());
+    context.put(HINT_CONTEXT_KEY, hint);
+  }
+
+  static void attachCacheTags(GraphQLContext context, Set<String> tags, String surrogateKeyHeader) {
+    context.put(CACHE_TAGS_CONTEXT_KEY, tags);
+    if (!surrogateKeyHeader.isEmpty()) {
+      context.put(SURROGATE_KEY_CONTEXT_KEY, surrogateKeyHeader);
+    }
+  }
+
+  /**
+   * Join the cache tags into a header value, skipping the tags that contain whitespace or do not
+   * fit into the maximum length.
+   */
+  static String surrogateKeyHeader(Set<String> tags, int maxLength) {
+    StringBuilder header = new StringBuilder();
+    for (String tag : tags) {
+      if (tag.isEmpty() || tag.chars().anyMatch(Character::isWhitespace)) {
+        continue;
+      }
+      int length = header.length() == 0 ? tag.length() : header.length() + 1 + tag.length();
+      if (length > maxLength) {
+        continue;
+      }
+      if (header.length() > 0) {
+        header.append(' ');
+      }
+      header.append(tag);
+    }
+    return header.toString();
+  }
+
   @Override
   public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
-    return new CacheControlState(allowZeroMaxAge);
+    return new CacheControlState(allowZeroMaxAge, policyTable(parameters.getSchema()));
+  }
+
+  private CachePolicyTable policyTable(GraphQLSchema schema) {
+    CachePolicyTable table = policyTable;
+    if (table == null || table.schema != schema) {
+      // instrumentation is normally used with a single schema, so only the last table is kept
+      table = new CachePolicyTable(schema);
+      policyTable = table;
+    }
+    return table;
   }
 
   @Override
@@ -82,8 +199,18 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
         // Attach the policy to the context object
         cacheControlState
             .overallPolicy
-            .maybeAsString()
-            .ifPresent(s -> parameters.getGraphQLContext().put(CONTEXT_KEY, s));
+            .maybeAsHint()
+            .ifPresent(hint -> attachCacheControlHint(parameters.getGraphQLContext(), hint));
+
+        Set<String> cacheTags = cacheControlState.cacheTags;
+        if (cacheTags != null && !cacheTags.isEmpty()) {
+          SortedSet<String> sortedTags =
+              Collections.unmodifiableSortedSet(new TreeSet<>(cacheTags));
+          attachCacheTags(
+              parameters.getGraphQLContext(),
+              sortedTags,
+              surrogateKeyHeader(sortedTags, maxSurrogateKeyHeaderLength));
+        }
       }
     };
   }
@@ -92,66 +219,16 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
   public @Nullable InstrumentationContext<Object> beginFieldExecution(
       InstrumentationFieldParameters parameters, InstrumentationState state) {
     CacheControlState cacheControlState = (CacheControlState) state;
-    CacheControlPolicy fieldPolicy = new CacheControlPolicy(allowZeroMaxAge);
-    boolean inheritMaxAge = false;
-
-    GraphQLUnmodifiedType unwrappedFieldType =
-        GraphQLTypeUtil.unwrapAll(parameters.getExecutionStepInfo().getType());
-
-    // There's no way to set a cacheControl directive on the _entities field or
-    // the _Entity union in SDL. Instead, we can determine the possible concrete
-    // types from the representations arguments and select the most restrictive
-    // cache policy from those types.
-
-    if (unwrappedFieldType.getName().equals(_Entity.typeName)) {
-      Object representations = parameters.getExecutionStepInfo().getArgument(_Entity.argumentName);
-
-      if (representations instanceof List) {
-        typesFromEntitiesArgument(
-                representations, parameters.getExecutionContext().getGraphQLSchema())
-            .stream()
-            .map(
-                type ->
-                    CacheControlDirective.fromDirectiveContainer((GraphQLDirectiveContainer) type))
-            .filter(Optional::isPresent)
-            .forEach(directive -> fieldPolicy.restrict(directive.get()));
-      }
-    } else if (unwrappedFieldType instanceof GraphQLCompositeType
-        && unwrappedFieldType instanceof GraphQLDirectiveContainer) {
+    CachePolicyTable table = cacheControlState.policyTable;
+    FieldCachePolicy fieldPolicy = table.fieldPolicy(parameters.getField());
 
-      // Cache directive on the return type of this field if it's a composite type
-
-      Optional<CacheControlDirective> directive =
-          CacheControlDirective.fromDirectiveContainer(
-              (GraphQLDirectiveContainer) unwrappedFieldType);
-
-      if (directive.isPresent()) {
-        fieldPolicy.replace(directive.get());
-        inheritMaxAge = directive.get().getInheritMaxAge();
-      }
+    if (cacheControlState.cacheTags != null) {
+      collectCacheTags(parameters, table, fieldPolicy, cacheControlState.cacheTags);
     }
 
-    // Cache directive on the field itself
-
-    Optional<CacheControlDirective> fieldDirective =
-        CacheControlDirective.fromDirectiveContainer(parameters.getField());
-    if (fieldDirective.isPresent()) {
-      CacheControlDirective directive = fieldDirective.get();
-
-      // If inheritMaxAge is true, take note of that to avoid setting the
-      // default max age in the next step. This does allow setting the cache
-      // scope though.
-      //
-      // Note that specifying `@cacheControl(inheritMaxAge: true)` on a
-      // field whose return type defines a `maxAge` gives precedence to
-      // the type's `maxAge`. (Perhaps this should be some sort of
-      // error.)
-      if (directive.getInheritMaxAge() && !fieldPolicy.hasMaxAge()) {
-        inheritMaxAge = true;
-        fieldPolicy.replace(directive.getScope());
-      } else {
-        fieldPolicy.replace(directive);
-      }
+    if (fieldPolicy.entities) {
+      cacheControlState.overallPolicy.restrict(entitiesPolicy(parameters, table, fieldPolicy));
+      return super.beginFieldExecution(parameters, state);
     }
 
     // If this field returns a composite type or is a root field and
@@ -168,49 +245,405 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
     // `@cacheControl(inheritMaxAge: true)` on it. If you do this,
     // then its children will be treated like root paths, since there
     // is no parent maxAge to inherit.
-
-    if (!fieldPolicy.hasMaxAge()
-        && ((unwrappedFieldType instanceof GraphQLCompositeType && !inheritMaxAge)
+    Integer maxAge = fieldPolicy.maxAge;
+    if (maxAge == null
+        && (fieldPolicy.defaultsMaxAge
             || parameters.getExecutionStepInfo().getPath().isRootPath())) {
-      fieldPolicy.restrict(defaultMaxAge);
+      maxAge = defaultMaxAge;
     }
 
-    cacheControlState.overallPolicy.restrict(fieldPolicy);
+    cacheControlState.overallPolicy.restrict(maxAge, fieldPolicy.scope);
+    cacheControlState.overallPolicy.restrictStaleness(
+        staleRestriction(maxAge, fieldPolicy.staleWhileRevalidate),
+        staleRestriction(maxAge, fieldPolicy.staleIfError));
     return super.beginFieldExecution(parameters, state);
   }
 
+  /**
+   * Evaluate the <code>@cacheTag</code> formats of the field against its arguments and, for the
+   * <code>_entities</code> field, the formats of the entity types against their representations.
+   */
+  private static void collectCacheTags(
+      InstrumentationFieldParameters parameters,
+      CachePolicyTable policyTable,
+      FieldCachePolicy fieldPolicy,
+      Set<String> cacheTags) {
+    if (!fieldPolicy.tags.isEmpty()) {
+      Map<String, Object> arguments = parameters.getExecutionStepInfo().getArguments();
+      for (CacheTagTemplate template : fieldPolicy.tags) {
+        String tag = template.render(null, arguments);
+        if (tag != null) {
+          cacheTags.add(tag);
+        }
+      }
+    }
+
+    if (!fieldPolicy.entities) {
+      return;
+    }
+    Object representations = parameters.getExecutionStepInfo().getArgument(_Entity.argumentName);
+    if (representations instanceof List) {
+      for (Object representation : (List<?>) representations) {
+        if (!(representation instanceof Map)) {
+          continue;
+        }
+        Object typename = ((Map<?, ?>) representation).get("__typename");
+        List<CacheTagTemplate> typeTags =
+            typename != null ? policyTable.typeTags(typename.toString()) : List.of();
+        for (CacheTagTemplate template : typeTags) {
+          String tag = template.renderRepresentation((Map<?, ?>) representation);
+          if (tag != null) {
+            cacheTags.add(tag);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Stale directive restriction of a field: fields that specify a max age but no stale directive
+   * do not allow stale responses, fields without max age inherit the restriction of their parents.
+   */
+  @Nullable
+  private static Integer staleRestriction(@Nullable Integer maxAge, @Nullable Integer stale) {
+    return stale != null || maxAge == null ? stale : Integer.valueOf(0);
+  }
+
+  /**
+   * There's no way to set a cacheControl directive on the _entities field or the _Entity union in
+   * SDL. Instead, we can determine the possible concrete types from the representations arguments
+   * and select the most restrictive cache policy from those types.
+   */
+  private CacheControlPolicy entitiesPolicy(
+      InstrumentationFieldParameters parameters,
+      CachePolicyTable policyTable,
+      FieldCachePolicy entitiesFieldPolicy) {
+    CacheControlPolicy fieldPolicy = new CacheControlPolicy();
+
+    Object representations = parameters.getExecutionStepInfo().getArgument(_Entity.argumentName);
+    if (representations instanceof List) {
+      for (GraphQLType type :
+          typesFromEntitiesArgument(
+              representations, parameters.getExecutionContext().getGraphQLSchema())) {
+        CacheControlDirective directive =
+            policyTable.typeDirective(((GraphQLNamedType) type).getName());
+        if (directive != null) {
+          fieldPolicy.restrict(directive);
+        }
+      }
+    }
+
+    boolean inheritMaxAge = false;
+    CacheControlDirective directive = entitiesFieldPolicy.fieldDirective;
+    if (directive != null) {
+      if (directive.getInheritMaxAge() && !fieldPolicy.hasMaxAge()) {
+        inheritMaxAge = true;
+        fieldPolicy.replace(directive.getScope());
+      } else {
+        fieldPolicy.replace(directive);
+      }
+    }
+
+    if (!fieldPolicy.hasMaxAge()) {
+      if (!inheritMaxAge || parameters.getExecutionStepInfo().getPath().isRootPath()) {
+        fieldPolicy.restrict(defaultMaxAge);
+      }
+    }
+    return fieldPolicy;
+  }
+
   enum CacheControlScope {
     PUBLIC,
     PRIVATE
   }
 
   private static class CacheControlState implements InstrumentationState {
-    public final CacheControlPolicy overallPolicy;
+    public final OverallCachePolicy overallPolicy;
+    public final CachePolicyTable policyTable;
 
-    public CacheControlState(boolean allowZeroMaxAge) {
-      this.overallPolicy = new CacheControlPolicy(allowZeroMaxAge);
+    /** Cache tags touched by concurrently executed fields, null if schema has no cache tags. */
+    @Nullable public final Set<String> cacheTags;
+
+    public CacheControlState(boolean allowZeroMaxAge, CachePolicyTable policyTable) {
+      this.overallPolicy = new OverallCachePolicy(allowZeroMaxAge);
+      this.policyTable = policyTable;
+      this.cacheTags = policyTable.hasCacheTags ? ConcurrentHashMap.newKeySet() : null;
     }
   }
 
-  private static class CacheControlPolicy {
-    @Nullable private Integer maxAge;
-    @Nullable private CacheControlScope scope = CacheControlScope.PUBLIC;
+  /**
+   * Most restrictive policy of all the executed fields. Fields can be executed concurrently, so the
+   * policy is packed into a single atomic long that is updated without locking or allocating: the
+   * lower 32 bits hold the minimum max age, followed by a bit telling whether the max age was set
+   * and a bit telling whether the scope is private. Stale directives are packed the same way into a
+   * second atomic long, 31 bits of value and a bit telling whether it was set for each directive.
+   */
+  private static final class OverallCachePolicy {
+    private static final long MAX_AGE_MASK = 0xFFFFFFFFL;
+    private static final long HAS_MAX_AGE = 1L << 32;
+    private static final long PRIVATE_SCOPE = 1L << 33;
+    private static final long STALE_MASK = 0x7FFFFFFFL;
+    private static final long HAS_STALE = 1L << 31;
+    private static final int STALE_WHILE_REVALIDATE_SHIFT = 0;
+    private static final int STALE_IF_ERROR_SHIFT = 32;
+
+    private final AtomicLong policy = new AtomicLong();
+    private final AtomicLong staleness = new AtomicLong();
     private final boolean allowZeroMaxAge;
 
-    public CacheControlPolicy(boolean allowZeroMaxAge) {
+    OverallCachePolicy(boolean allowZeroMaxAge) {
       this.allowZeroMaxAge = allowZeroMaxAge;
     }
 
-    void restrict(CacheControlPolicy policy) {
-      if (policy.maxAge != null && (maxAge == null || policy.maxAge < maxAge)) {
-        this.maxAge = policy.maxAge;
+    void restrict(CacheControlPolicy fieldPolicy) {
+      restrict(fieldPolicy.maxAge, fieldPolicy.scope);
+      restrictStaleness(
+          staleRestriction(fieldPolicy.maxAge, fieldPolicy.staleWhileRevalidate),
+          staleRestriction(fieldPolicy.maxAge, fieldPolicy.staleIfError));
+    }
+
+    void restrictStaleness(@Nullable Integer staleWhileRevalidate, @Nullable Integer staleIfError) {
+      if (staleWhileRevalidate == null && staleIfError == null) {
+        return;
+      }
+      long current;
+      long next;
+      do {
+        current = staleness.get();
+        next = restrictStale(current, staleWhileRevalidate, STALE_WHILE_REVALIDATE_SHIFT);
+        next = restrictStale(next, staleIfError, STALE_IF_ERROR_SHIFT);
+      } while (next != current && !staleness.compareAndSet(current, next));
+    }
+
+    private static long restrictStale(long staleness, @Nullable Integer value, int shift) {
+      if (value == null) {
+        return staleness;
+      }
+      long current = staleness >>> shift;
+      if ((current & HAS_STALE) != 0 && value >= (current & STALE_MASK)) {
+        return staleness;
+      }
+      long next = HAS_STALE | (Math.max(value, 0) & STALE_MASK);
+      return (staleness & ~((HAS_STALE | STALE_MASK) << shift)) | (next << shift);
+    }
+
+    /** Stale directive value, null if it was not set or stale responses are not allowed. */
+    @Nullable
+    private static Integer stale(long staleness, int shift) {
+      long value = staleness >>> shift;
+      if ((value & HAS_STALE) == 0 || (value & STALE_MASK) == 0) {
+        return null;
+      }
+      return (int) (value & STALE_MASK);
+    }
+
+    void restrict(@Nullable Integer maxAge, @Nullable CacheControlScope scope) {
+      long current;
+      long next;
+      do {
+        current = policy.get();
+        next = current;
+        if (maxAge != null && ((current & HAS_MAX_AGE) == 0 || maxAge < maxAge(current))) {
+          next = (next & ~MAX_AGE_MASK) | HAS_MAX_AGE | (maxAge & MAX_AGE_MASK);
+        }
+        // private scope is never relaxed back to public
+        if (scope == CacheControlScope.PRIVATE) {
+          next |= PRIVATE_SCOPE;
+        }
+      } while (next != current && !policy.compareAndSet(current, next));
+    }
+
+    Optional<CacheControlHint> maybeAsHint() {
+      long current = policy.get();
+      if ((current & HAS_MAX_AGE) == 0 || (!allowZeroMaxAge && maxAge(current) == 0)) {
+        return Optional.empty();
+      }
+      long stale = staleness.get();
+      return Optional.of(
+          new CacheControlHint(
+              maxAge(current),
+              (current & PRIVATE_SCOPE) != 0,
+              stale(stale, STALE_WHILE_REVALIDATE_SHIFT),
+              stale(stale, STALE_IF_ERROR_SHIFT)));
+    }
+
+    private static int maxAge(long policy) {
+      return (int) (policy & MAX_AGE_MASK);
+    }
+  }
+
+  /**
+   * Static cache policies of a single schema, compiled once so that the per-field work is a single
+   * identity lookup.
+   */
+  private static final class CachePolicyTable {
+    private final GraphQLSchema schema;
+    private final Map<GraphQLFieldDefinition, FieldCachePolicy> fieldPolicies =
+        new IdentityHashMap<>();
+    private final Map<String, CacheControlDirective> typeDirectives = new HashMap<>();
+    private final Map<String, List<CacheTagTemplate>> typeTags = new HashMap<>();
+    private final boolean hasCacheTags;
+
+    private CachePolicyTable(GraphQLSchema schema) {
+      this.schema = schema;
+      for (GraphQLNamedType type : schema.getAllTypesAsList()) {
+        if (type instanceof GraphQLCompositeType && type instanceof GraphQLDirectiveContainer) {
+          CacheControlDirective.fromDirectiveContainer((GraphQLDirectiveContainer) type)
+              .ifPresent(directive -> typeDirectives.put(type.getName(), directive));
+        }
+        if (type instanceof GraphQLObjectType) {
+          List<CacheTagTemplate> tags = cacheTags((GraphQLObjectType) type, type.getName());
+          if (!tags.isEmpty()) {
+            typeTags.put(type.getName(), tags);
+          }
+        }
+      }
+      boolean fieldTags = false;
+      for (GraphQLNamedType type : schema.getAllTypesAsList()) {
+        if (type instanceof GraphQLFieldsContainer) {
+          for (GraphQLFieldDefinition field :
+              ((GraphQLFieldsContainer) type).getFieldDefinitions()) {
+            fieldTags |= !fieldPolicies.computeIfAbsent(field, this::compile).tags.isEmpty();
+          }
+        }
+      }
+      this.hasCacheTags = fieldTags || !typeTags.isEmpty();
+    }
+
+    FieldCachePolicy fieldPolicy(GraphQLFieldDefinition field) {
+      FieldCachePolicy policy = fieldPolicies.get(field);
+      // introspection meta fields are not part of any type
+      return policy != null ? policy : compile(field);
+    }
+
+    @Nullable
+    CacheControlDirective typeDirective(String typeName) {
+      return typeDirectives.get(typeName);
+    }
+
+    List<CacheTagTemplate> typeTags(String typeName) {
+      return typeTags.getOrDefault(typeName, List.of());
+    }
+
+    /**
+     * Schemas built by {@link com.apollographql.federation.graphqljava.SchemaTransformer} reject
+     * invalid <code>@cacheTag</code> formats, other schemas ignore the directives of the type or
+     * field instead of failing every request.
+     */
+    private static List<CacheTagTemplate> cacheTags(
+        GraphQLDirectiveContainer container, String name) {
+      try {
+        return CacheTagTemplate.fromDirectives(container);
+      } catch (IllegalArgumentException e) {
+        logger.warn("Ignoring @cacheTag directives of {}: {}", name, e.getMessage());
+        return List.of();
       }
+    }
 
-      if (policy.scope != null && (scope == null || !scope.equals(CacheControlScope.PRIVATE))) {
-        this.scope = policy.scope;
+    private FieldCachePolicy compile(GraphQLFieldDefinition field) {
+      GraphQLUnmodifiedType unwrappedFieldType = GraphQLTypeUtil.unwrapAll(field.getType());
+      Optional<CacheControlDirective> fieldDirective =
+          CacheControlDirective.fromDirectiveContainer(field);
+      List<CacheTagTemplate> tags = cacheTags(field, field.getName());
+      if (unwrappedFieldType.getName().equals(_Entity.typeName)) {
+        return FieldCachePolicy.entities(fieldDirective.orElse(null), tags);
       }
+
+      CacheControlPolicy fieldPolicy = new CacheControlPolicy();
+      boolean inheritMaxAge = false;
+
+      // Cache directive on the return type of this field if it's a composite type
+      CacheControlDirective typeDirective = typeDirectives.get(unwrappedFieldType.getName());
+      if (unwrappedFieldType instanceof GraphQLCompositeType && typeDirective != null) {
+        fieldPolicy.replace(typeDirective);
+        inheritMaxAge = typeDirective.getInheritMaxAge();
+      }
+
+      // Cache directive on the field itself
+      if (fieldDirective.isPresent()) {
+        CacheControlDirective directive = fieldDirective.get();
+
+        // If inheritMaxAge is true, take note of that to avoid setting the
+        // default max age in the next step. This does allow setting the cache
+        // scope though.
+        //
+        // Note that specifying `@cacheControl(inheritMaxAge: true)` on a
+        // field whose return type defines a `maxAge` gives precedence to
+        // the type's `maxAge`. (Perhaps this should be some sort of
+        // error.)
+        if (directive.getInheritMaxAge() && !fieldPolicy.hasMaxAge()) {
+          inheritMaxAge = true;
+          fieldPolicy.replace(directive.getScope());
+        } else {
+          fieldPolicy.replace(directive);
+        }
+      }
+
+      return new FieldCachePolicy(
+          fieldPolicy.maxAge,
+          fieldPolicy.scope,
+          fieldPolicy.staleWhileRevalidate,
+          fieldPolicy.staleIfError,
+          unwrappedFieldType instanceof GraphQLCompositeType && !inheritMaxAge,
+          false,
+          null,
+          tags);
+    }
+  }
+
+  /** Static cache policy of a single field definition. */
+  private static final class FieldCachePolicy {
+    /** Max age from the field or its return type directives, null if not specified. */
+    @Nullable private final Integer maxAge;
+
+    @Nullable private final CacheControlScope scope;
+
+    @Nullable private final Integer staleWhileRevalidate;
+
+    @Nullable private final Integer staleIfError;
+
+    /** Whether the default max age applies if no max age was specified. */
+    private final boolean defaultsMaxAge;
+
+    /** Whether the policy depends on the representations of the <code>_entities</code> query. */
+    private final boolean entities;
+
+    @Nullable private final CacheControlDirective fieldDirective;
+
+    /** Compiled <code>@cacheTag</code> formats of the field. */
+    private final List<CacheTagTemplate> tags;
+
+    private FieldCachePolicy(
+        @Nullable Integer maxAge,
+        @Nullable CacheControlScope scope,
+        @Nullable Integer staleWhileRevalidate,
+        @Nullable Integer staleIfError,
+        boolean defaultsMaxAge,
+        boolean entities,
+        @Nullable CacheControlDirective fieldDirective,
+        List<CacheTagTemplate> tags) {
+      this.maxAge = maxAge;
+      this.scope = scope;
+      this.staleWhileRevalidate = staleWhileRevalidate;
+      this.staleIfError = staleIfError;
+      this.defaultsMaxAge = defaultsMaxAge;
+      this.entities = entities;
+      this.fieldDirective = fieldDirective;
+      this.tags = tags;
     }
 
+    static FieldCachePolicy entities(
+        @Nullable CacheControlDirective fieldDirective, List<CacheTagTemplate> tags) {
+      return new FieldCachePolicy(null, null, null, null, false, true, fieldDirective, tags);
+    }
+  }
+
+  private static class CacheControlPolicy {
+    @Nullable private Integer maxAge;
+    @Nullable private CacheControlScope scope = CacheControlScope.PUBLIC;
+    @Nullable private Integer staleWhileRevalidate;
+    @Nullable private Integer staleIfError;
+
     void restrict(CacheControlDirective directive) {
       if (directive.maxAge != null && (maxAge == null || directive.maxAge < maxAge)) {
         this.maxAge = directive.maxAge;
@@ -219,6 +652,13 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
       if (directive.scope != null && (scope == null || !scope.equals(CacheControlScope.PRIVATE))) {
         this.scope = directive.scope;
       }
+
+      this.staleWhileRevalidate =
+          min(
+              staleWhileRevalidate,
+              staleRestriction(directive.maxAge, directive.staleWhileRevalidate));
+      this.staleIfError =
+          min(staleIfError, staleRestriction(directive.maxAge, directive.staleIfError));
     }
 
     void restrict(Integer maxAge) {
@@ -235,38 +675,41 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
       if (directive.scope != null) {
         this.scope = directive.scope;
       }
-    }
 
-    void replace(@Nullable CacheControlScope scope) {
-      if (scope != null) {
-        this.scope = scope;
+      if (directive.staleWhileRevalidate != null) {
+        this.staleWhileRevalidate = directive.staleWhileRevalidate;
       }
-    }
 
-    public Optional<String> maybeAsString() {
-      if (maxAge == null || (!allowZeroMaxAge && maxAge.equals(0))) {
-        return Optional.empty();
+      if (directive.staleIfError != null) {
+        this.staleIfError = directive.staleIfError;
       }
+    }
 
-      CacheControlScope scopeValue = scope == null ? CacheControlScope.PUBLIC : scope;
+    @Nullable
+    private static Integer min(@Nullable Integer current, @Nullable Integer restriction) {
+      if (restriction != null && (current == null || restriction < current)) {
+        return restriction;
+      }
+      return current;
+    }
 
-      return Optional.of(
-          String.format("max-age=%d, %s", maxAge, scopeValue.toString().toLowerCase()));
+    void replace(@Nullable CacheControlScope scope) {
+      if (scope != null) {
+        this.scope = scope;
+      }
     }
 
     public boolean hasMaxAge() {
       return maxAge != null;
     }
-
-    public boolean hasScope() {
-      return scope != null;
-    }
   }
 
   private static class CacheControlDirective {
     @Nullable private final Integer maxAge;
     @Nullable private final CacheControlScope scope;
     @Nullable private final Boolean inheritMaxAge;
+    @Nullable private final Integer staleWhileRevalidate;
+    @Nullable private final Integer staleIfError;
 
     public static Optional<CacheControlDirective> fromDirectiveContainer(
         GraphQLDirectiveContainer container) {
@@ -297,16 +740,35 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
               .map(Boolean.class::cast)
               .orElse(null);
 
-      return Optional.of(new CacheControlDirective(maxAge, scope, inheritMaxAge));
+      return Optional.of(
+          new CacheControlDirective(
+              maxAge,
+              scope,
+              inheritMaxAge,
+              intArgument(directive, STALE_WHILE_REVALIDATE),
+              intArgument(directive, STALE_IF_ERROR)));
+    }
+
+    @Nullable
+    private static Integer intArgument(GraphQLAppliedDirective directive, String name) {
+      return Optional.ofNullable(directive.getArgument(name))
+          .map(GraphQLAppliedDirectiveArgument::getValue)
+          .filter(v -> v instanceof Integer)
+          .map(Integer.class::cast)
+          .orElse(null);
     }
 
     public CacheControlDirective(
         @Nullable Integer maxAge,
         @Nullable CacheControlScope scope,
-        @Nullable Boolean inheritMaxAge) {
+        @Nullable Boolean inheritMaxAge,
+        @Nullable Integer staleWhileRevalidate,
+        @Nullable Integer staleIfError) {
       this.maxAge = maxAge;
       this.scope = scope;
       this.inheritMaxAge = inheritMaxAge;
+      this.staleWhileRevalidate = staleWhileRevalidate;
+      this.staleIfError = staleIfError;
     }
 
     public boolean isRestricted() {
@@ -341,7 +803,9 @@ public class CacheControlInstrumentation extends SimplePerformantInstrumentation
 
     public String toString() {
       return String.format(
-          "@cacheControl(maxAge: %s, scope: %s, inheritMaxAge: %s)", maxAge, scope, inheritMaxAge);
+          "@cacheControl(maxAge: %s, scope: %s, inheritMaxAge: %s, staleWhileRevalidate: %s,"
+              + " staleIfError: %s)",
+          maxAge, scope, inheritMaxAge, staleWhileRevalidate, staleIfError);
     }
   }
 
@@ -0,0 +1,193 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reverse index of cache tags, computed from <code>@cacheTag</code> directives, to the cache
+ * entries that were tagged with them. Single index can be shared by multiple caches, e.g. by
+ * {@link com.apollographql.federation.graphqljava.EntityCache} and {@link ResponseCache}, so that
+ * a single {@link #invalidateTags(Collection)} call evicts all the entries that depend on the
+ * invalidated data.
+ *
+ * <pre>{@code
+ * CacheTagIndex tagIndex = new CacheTagIndex();
+ * EntityCache entityCache = EntityCache.newBuilder().tagIndex(tagIndex).build();
+ * ...
+ * // product was updated
+ * tagIndex.invalidateTags(List.of("product-" + productId));
+ * }</pre>
+ *
+ * Caches register their entries with {@link #tag(Consumer, Object, Collection)} and have to
+ * {@link #untag(Consumer, Object, Collection) untag} them once they are evicted, so the index
+ * never outgrows the caches.
+ *
+ * <p>Invalidation only evicts the entries that are already indexed, while a request that resolved
+ * its data before the invalidation may store it only afterwards. Caches therefore capture the
+ * {@link #generation()} before resolving the data and, once the entry is tagged, drop it if
+ * {@link #invalidatedSince(long, Collection)} reports that any of its tags was invalidated in
+ * between. Invalidations are tracked per hash stripe of the tag, so an unrelated invalidation may
+ * occasionally prevent an entry from being cached, but a stale entry is never kept.
+ */
+public final class CacheTagIndex {
+  // power of two, the invalidations of tags that share a stripe are indistinguishable
+  private static final int INVALIDATION_STRIPES = 256;
+
+  private final ConcurrentMap<String, Set<TaggedEntry>> entriesByTag = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLongArray invalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+
+  /**
+   * Index cache entry under the given tags.
+   *
+   * @param invalidator callback that evicts the entry from its cache, has to be the same instance
+   *     for all the entries of a cache
+   * @param key cache key of the entry
+   * @param tags entry tags
+   * @param <K> cache key type
+   */
+  public <K> void tag(
+      @NotNull Consumer<K> invalidator, @NotNull K key, @NotNull Collection<String> tags) {
+    if (tags.isEmpty()) {
+      return;
+    }
+    final TaggedEntry entry = new TaggedEntry(invalidator, key);
+    for (String tag : tags) {
+      // sets are only modified while holding the lock of their mapping
+      entriesByTag.compute(
+          tag,
+          (t, entries) -> {
+            final Set<TaggedEntry> tagged = entries != null ? entries : new HashSet<>(4);
+            tagged.add(entry);
+            return tagged;
+          });
+    }
+  }
+
+  /**
+   * Remove cache entry from the index, e.g. when it expired or was evicted from its cache.
+   *
+   * @param invalidator callback the entry was tagged with
+   * @param key cache key of the entry
+   * @param tags entry tags
+   * @param <K> cache key type
+   */
+  public <K> void untag(
+      @NotNull Consumer<K> invalidator, @NotNull K key, @NotNull Collection<String> tags) {
+    if (tags.isEmpty()) {
+      return;
+    }
+    final TaggedEntry entry = new TaggedEntry(invalidator, key);
+    for (String tag : tags) {
+      entriesByTag.computeIfPresent(
+          tag,
+          (t, entries) -> {
+            entries.remove(entry);
+            return entries.isEmpty() ? null : entries;
+          });
+    }
+  }
+
+  /**
+   * Evict all the cache entries tagged with any of the given tags.
+   *
+   * @param tags invalidated tags
+   * @return number of evicted entries
+   */
+  public int invalidateTags(@NotNull Collection<String> tags) {
+    // generation is advanced before the entries are evicted, so concurrently stored entries are
+    // either evicted below or dropped by the cache that stores them
+    final long invalidation = generation.incrementAndGet();
+    for (String tag : tags) {
+      invalidatedAt.accumulateAndGet(stripe(tag), invalidation, Math::max);
+    }
+    final Set<TaggedEntry> invalidated = new HashSet<>();
+    for (String tag : tags) {
+      final Set<TaggedEntry> entries = entriesByTag.remove(tag);
+      if (entries != null) {
+        invalidated.addAll(entries);
+      }
+    }
+    // caches untag the remaining tags of their entries when they are invalidated
+    invalidated.forEach(TaggedEntry::invalidate);
+    return invalidated.size();
+  }
+
+  /**
+   * Current invalidation generation, captured by the caches before they resolve the data of an
+   * entry.
+   *
+   * @return generation to pass to {@link #invalidatedSince(long, Collection)}
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Check whether any of the tags was invalidated after the given generation was captured, i.e.
+   * whether an entry with these tags may hold stale data. Has to be called after the entry is
+   * tagged, so that an invalidation either evicts it or is reported here.
+   *
+   * @param generation generation captured before the data of the entry was resolved
+   * @param tags entry tags
+   * @return true if the entry should not be cached
+   */
+  public boolean invalidatedSince(long generation, @NotNull Collection<String> tags) {
+    for (String tag : tags) {
+      if (invalidatedAt.get(stripe(tag)) > generation) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Number of distinct tags that have at least one cache entry. */
+  public int size() {
+    return entriesByTag.size();
+  }
+
+  private static int stripe(String tag) {
+    final int hash = tag.hashCode();
+    return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES - 1);
+  }
+
+  private static final class TaggedEntry {
+    private final Consumer<Object> invalidator;
+    private final Object key;
+
+    @SuppressWarnings("unchecked")
+    private TaggedEntry(Consumer<?> invalidator, Object key) {
+      this.invalidator = (Consumer<Object>) invalidator;
+      this.key = key;
+    }
+
+    private void invalidate() {
+      invalidator.accept(key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof TaggedEntry)) {
+        return false;
+      }
+      final TaggedEntry other = (TaggedEntry) o;
+      return invalidator == other.invalidator && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(invalidator), key);
+    }
+  }
+}
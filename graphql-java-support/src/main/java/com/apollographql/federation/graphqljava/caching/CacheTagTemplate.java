@@ -0,0 +1,206 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import com.apollographql.federation.graphqljava.EntityKey;
+import graphql.schema.GraphQLAppliedDirective;
+import graphql.schema.GraphQLAppliedDirectiveArgument;
+import graphql.schema.GraphQLDirectiveContainer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compiled <code>format</code> of the <code>@cacheTag</code> directive, e.g. <code>
+ * product-{$key.id}</code> on entity types or <code>products-{$args.category}</code> on root
+ * fields.
+ *
+ * <p>Templates are made of literal text and <code>{$key.path}</code> placeholders, evaluated
+ * against the {@link EntityKey} of the resolved entity, and <code>{$args.path}</code> placeholders,
+ * evaluated against the field arguments. Nested values are referenced with dot separated paths,
+ * e.g. <code>{$key.variation.id}</code>.
+ *
+ * <pre>
+ * directive @cacheTag(format: String!) repeatable on FIELD_DEFINITION | OBJECT
+ * </pre>
+ */
+public final class CacheTagTemplate {
+  public static final String DIRECTIVE_NAME = "cacheTag";
+  public static final String FORMAT_ARGUMENT_NAME = "format";
+
+  private static final String KEY_PREFIX = "$key.";
+  private static final String ARGUMENTS_PREFIX = "$args.";
+
+  private final String format;
+  // literals surround the placeholders, i.e. there is always one more literal than placeholders
+  private final String[] literals;
+  private final String[] paths;
+  private final boolean[] fromArguments;
+
+  private CacheTagTemplate(
+      String format, String[] literals, String[] paths, boolean[] fromArguments) {
+    this.format = format;
+    this.literals = literals;
+    this.paths = paths;
+    this.fromArguments = fromArguments;
+  }
+
+  /**
+   * Compile <code>@cacheTag</code> format.
+   *
+   * @param format tag format
+   * @return compiled template
+   * @throws IllegalArgumentException if format contains unclosed or unknown placeholders
+   */
+  public static @NotNull CacheTagTemplate parse(@NotNull String format) {
+    final List<String> literals = new ArrayList<>();
+    final List<String> paths = new ArrayList<>();
+    final List<Boolean> fromArguments = new ArrayList<>();
+    int start = 0;
+    int open = format.indexOf('{');
+    while (open >= 0) {
+      final int close = format.indexOf('}', open);
+      if (close < 0) {
+        throw new IllegalArgumentException("Unclosed placeholder in @cacheTag format: " + format);
+      }
+      final String placeholder = format.substring(open + 1, close).trim();
+      final String prefix;
+      if (placeholder.startsWith(KEY_PREFIX)) {
+        prefix = KEY_PREFIX;
+      } else if (placeholder.startsWith(ARGUMENTS_PREFIX)) {
+        prefix = ARGUMENTS_PREFIX;
+      } else {
+        throw new IllegalArgumentException(
+            "Unknown placeholder {" + placeholder + "} in @cacheTag format: " + format);
+      }
+      if (placeholder.length() == prefix.length()) {
+        throw new IllegalArgumentException(
+            "Empty placeholder {" + placeholder + "} in @cacheTag format: " + format);
+      }
+      literals.add(format.substring(start, open));
+      paths.add(placeholder.substring(prefix.length()));
+      fromArguments.add(prefix.equals(ARGUMENTS_PREFIX));
+      start = close + 1;
+      open = format.indexOf('{', start);
+    }
+    literals.add(format.substring(start));
+
+    final boolean[] arguments = new boolean[fromArguments.size()];
+    for (int i = 0; i < arguments.length; i++) {
+      arguments[i] = fromArguments.get(i);
+    }
+    return new CacheTagTemplate(
+        format, literals.toArray(new String[0]), paths.toArray(new String[0]), arguments);
+  }
+
+  /**
+   * Compile formats of all the <code>@cacheTag</code> directives applied on the given type or
+   * field.
+   *
+   * @param container type or field definition
+   * @return compiled templates, empty if there are no <code>@cacheTag</code> directives
+   * @throws IllegalArgumentException if any format contains unclosed or unknown placeholders
+   */
+  public static @NotNull List<CacheTagTemplate> fromDirectives(
+      @NotNull GraphQLDirectiveContainer container) {
+    final List<GraphQLAppliedDirective> directives = container.getAppliedDirectives(DIRECTIVE_NAME);
+    if (directives.isEmpty()) {
+      return List.of();
+    }
+    final List<CacheTagTemplate> templates = new ArrayList<>(directives.size());
+    for (GraphQLAppliedDirective directive : directives) {
+      final GraphQLAppliedDirectiveArgument format = directive.getArgument(FORMAT_ARGUMENT_NAME);
+      if (format != null && format.getValue() instanceof String) {
+        templates.add(parse(format.getValue()));
+      }
+    }
+    return templates;
+  }
+
+  /** Whether this template references field arguments, i.e. applies to root fields. */
+  public boolean usesArguments() {
+    for (boolean argument : fromArguments) {
+      if (argument) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether this template references entity key fields, i.e. applies to entity types. */
+  public boolean usesKey() {
+    for (boolean argument : fromArguments) {
+      if (!argument) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Evaluate this template.
+   *
+   * @param key entity key referenced by <code>{$key.path}</code> placeholders
+   * @param arguments field arguments referenced by <code>{$args.path}</code> placeholders
+   * @return cache tag, or null if any of the referenced values is missing
+   */
+  public @Nullable String render(@Nullable EntityKey key, @Nullable Map<String, ?> arguments) {
+    return render(key, null, arguments);
+  }
+
+  /**
+   * Evaluate this template against an <code>_entities</code> representation, i.e. <code>
+   * {$key.path}</code> placeholders are resolved from the representation fields.
+   *
+   * @param representation entity representation
+   * @return cache tag, or null if any of the referenced values is missing
+   */
+  public @Nullable String renderRepresentation(@NotNull Map<?, ?> representation) {
+    return render(null, representation, null);
+  }
+
+  private @Nullable String render(
+      @Nullable EntityKey key,
+      @Nullable Map<?, ?> representation,
+      @Nullable Map<String, ?> arguments) {
+    if (paths.length == 0) {
+      return literals[0];
+    }
+    final StringBuilder tag = new StringBuilder(format.length() + 16);
+    for (int i = 0; i < paths.length; i++) {
+      final Object value;
+      if (fromArguments[i]) {
+        value = pathValue(arguments, paths[i]);
+      } else if (key != null) {
+        value = key.get(paths[i]);
+      } else {
+        value = pathValue(representation, paths[i]);
+      }
+      if (value == null) {
+        return null;
+      }
+      tag.append(literals[i]).append(value);
+    }
+    return tag.append(literals[paths.length]).toString();
+  }
+
+  private static @Nullable Object pathValue(@Nullable Map<?, ?> values, String path) {
+    Object value = values;
+    int start = 0;
+    while (value instanceof Map) {
+      final int dot = path.indexOf('.', start);
+      final String name = dot < 0 ? path.substring(start) : path.substring(start, dot);
+      value = ((Map<?, ?>) value).get(name);
+      if (dot < 0) {
+        return value;
+      }
+      start = dot + 1;
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return format;
+  }
+}
@@ -0,0 +1,364 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In-memory cache of whole responses, the equivalent of the Apollo Server <a
+ * href="https://github.com/apollographql/apollo-server/tree/main/packages/plugin-response-cache">plugin-response-cache</a>.
+ *
+ * <p>Responses are cached for the max age computed by {@link CacheControlInstrumentation}, which
+ * has to be registered on the executed {@link GraphQL} instance. Responses are keyed by the hash of
+ * the normalized query document, operation name and variables. Only query operations that resolved
+ * without errors and with a positive max age are cached. Responses with the <code>PRIVATE</code>
+ * scope are cached per session, and are not cached at all if the request has no session key.
+ *
+ * <pre>{@code
+ * ResponseCache cache =
+ *     ResponseCache.newBuilder()
+ *         .maximumSize(10_000)
+ *         .sessionKey(input -> input.getGraphQLContext().get("userId"))
+ *         .build();
+ * CompletableFuture<ExecutionResult> result = cache.executeAsync(graphQL, executionInput);
+ * }</pre>
+ *
+ * Cached responses only include the data of the original response, extensions (e.g. federated
+ * traces) are specific to the request that generated them. Responses served from the cache attach
+ * the remaining max age to the {@link graphql.GraphQLContext}, so {@link
+ * CacheControlInstrumentation#cacheControlHeaderFromGraphQLContext} works the same for cached and
+ * executed responses. The same applies to the cache tags of the response.
+ *
+ * <p>When configured with a {@link CacheTagIndex}, responses are indexed by the <code>@cacheTag
+ * </code> values they touched and can be evicted with {@link
+ * CacheTagIndex#invalidateTags(java.util.Collection)}. Responses whose tags were invalidated while
+ * the operation was executing are not cached.
+ */
+public final class ResponseCache {
+  // keeps the document cache bounded when clients send arbitrary queries, documents never expire
+  static final int MAX_CACHED_DOCUMENTS = 10_000;
+
+  private static final CachedDocument UNCACHEABLE_DOCUMENT = new CachedDocument(null);
+
+  private final Clock clock;
+  private final Function<ExecutionInput, String> sessionKey;
+  private final @Nullable CacheTagIndex tagIndex;
+  private final Consumer<Key> tagInvalidator = this::invalidate;
+  private final BoundedExpiringMap<Key, Entry> entries;
+  private final BoundedExpiringMap<String, CachedDocument> documents =
+      new BoundedExpiringMap<>(MAX_CACHED_DOCUMENTS);
+
+  private ResponseCache(Builder builder) {
+    this.clock = builder.clock;
+    this.sessionKey = builder.sessionKey;
+    this.tagIndex = builder.tagIndex;
+    this.entries = new BoundedExpiringMap<>(builder.maximumSize, this::tag, this::untag);
+  }
+
+  public static @NotNull Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Return the cached response of the operation, or execute it and cache its response.
+   *
+   * @param graphQL GraphQL instance with a registered {@link CacheControlInstrumentation}
+   * @param executionInput operation to execute
+   * @return cached or executed response
+   */
+  @NotNull
+  public CompletableFuture<ExecutionResult> executeAsync(
+      @NotNull GraphQL graphQL, @NotNull ExecutionInput executionInput) {
+    final String documentHash = documentHash(executionInput.getQuery());
+    if (documentHash == null) {
+      return graphQL.executeAsync(executionInput);
+    }
+
+    final Key publicKey =
+        new Key(
+            documentHash, executionInput.getOperationName(), executionInput.getVariables(), null);
+    final String session = sessionKey.apply(executionInput);
+    final Key privateKey = session != null ? publicKey.withSession(session) : null;
+
+    final long now = clock.millis();
+    Entry cached = privateKey != null ? entries.get(privateKey, now) : null;
+    if (cached == null) {
+      cached = entries.get(publicKey, now);
+    }
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached.toResult(executionInput, now));
+    }
+
+    // tags invalidated while the operation executes may not be indexed yet
+    final long tagGeneration = tagIndex != null ? tagIndex.generation() : 0;
+    return graphQL
+        .executeAsync(executionInput)
+        .thenApply(
+            result -> {
+              store(executionInput, result, publicKey, privateKey, tagGeneration);
+              return result;
+            });
+  }
+
+  /** Number of cached responses, including the expired responses that were not evicted yet. */
+  public int size() {
+    return entries.size();
+  }
+
+  /** Remove all the cached responses. */
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  private void invalidate(Key key) {
+    entries.remove(key);
+  }
+
+  private void tag(Key key, Entry entry) {
+    if (tagIndex != null) {
+      tagIndex.tag(tagInvalidator, key, entry.tags);
+    }
+  }
+
+  private void untag(Key key, Entry entry) {
+    if (tagIndex != null) {
+      tagIndex.untag(tagInvalidator, key, entry.tags);
+    }
+  }
+
+  private void store(
+      ExecutionInput executionInput,
+      ExecutionResult result,
+      Key publicKey,
+      @Nullable Key privateKey,
+      long tagGeneration) {
+    if (!result.getErrors().isEmpty() || result.getData() == null) {
+      return;
+    }
+    final CacheControlHint hint =
+        CacheControlInstrumentation.cacheControlHintFromGraphQLContext(
+            executionInput.getGraphQLContext());
+    if (hint == null || hint.getMaxAge() <= 0) {
+      return;
+    }
+
+    final Key key = hint.isPrivate() ? privateKey : publicKey;
+    if (key == null) {
+      // private responses are never shared between sessions
+      return;
+    }
+    final long now = clock.millis();
+    final Entry entry =
+        new Entry(
+            result.getData(),
+            hint,
+            CacheControlInstrumentation.cacheTagsFromGraphQLContext(
+                executionInput.getGraphQLContext()),
+            CacheControlInstrumentation.surrogateKeyHeaderFromGraphQLContext(
+                executionInput.getGraphQLContext()),
+            now + hint.getMaxAge() * 1000L);
+    entries.put(key, entry, entry.expiresAtMillis, now);
+    if (tagIndex != null && tagIndex.invalidatedSince(tagGeneration, entry.tags)) {
+      // response was executed before its tags were invalidated
+      entries.remove(key);
+    }
+  }
+
+  /** Hash of the normalized query document, or null if its responses should not be cached. */
+  private @Nullable String documentHash(String query) {
+    final CachedDocument cached = documents.get(query, 0);
+    if (cached != null) {
+      return cached.hash;
+    }
+
+    // least recently used documents are evicted, so new queries are cached once the map is full
+    final CachedDocument document = parse(query);
+    documents.put(query, document, Long.MAX_VALUE, 0);
+    return document.hash;
+  }
+
+  private static CachedDocument parse(String query) {
+    final Document document;
+    try {
+      document = Parser.parse(query);
+    } catch (InvalidSyntaxException e) {
+      return UNCACHEABLE_DOCUMENT;
+    }
+    for (OperationDefinition operation : document.getDefinitionsOfType(OperationDefinition.class)) {
+      if (operation.getOperation() != OperationDefinition.Operation.QUERY) {
+        return UNCACHEABLE_DOCUMENT;
+      }
+    }
+    return new CachedDocument(sha256(AstPrinter.printAstCompact(document)));
+  }
+
+  private static String sha256(String value) {
+    final byte[] digest;
+    try {
+      digest =
+          MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+    final StringBuilder hex = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  /** Parsed query document, null hash marks documents that cannot be cached. */
+  private static final class CachedDocument {
+    private final @Nullable String hash;
+
+    private CachedDocument(@Nullable String hash) {
+      this.hash = hash;
+    }
+  }
+
+  /** Cache key of a single operation, private responses also include the session key. */
+  private static final class Key {
+    private final String documentHash;
+    private final @Nullable String operationName;
+    private final Map<String, Object> variables;
+    private final @Nullable String session;
+    private final int hash;
+
+    private Key(
+        String documentHash,
+        @Nullable String operationName,
+        Map<String, Object> variables,
+        @Nullable String session) {
+      this.documentHash = documentHash;
+      this.operationName = operationName;
+      this.variables = variables;
+      this.session = session;
+      this.hash = Objects.hash(documentHash, operationName, variables, session);
+    }
+
+    private Key withSession(String session) {
+      return new Key(documentHash, operationName, variables, session);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return hash == other.hash
+          && documentHash.equals(other.documentHash)
+          && Objects.equals(operationName, other.operationName)
+          && Objects.equals(session, other.session)
+          && variables.equals(other.variables);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** Cached response data. */
+  private static final class Entry {
+    private final Object data;
+    private final CacheControlHint hint;
+    private final Set<String> tags;
+    private final @Nullable String surrogateKeyHeader;
+    private final long expiresAtMillis;
+
+    private Entry(
+        Object data,
+        CacheControlHint hint,
+        Set<String> tags,
+        @Nullable String surrogateKeyHeader,
+        long expiresAtMillis) {
+      this.data = data;
+      this.hint = hint;
+      this.tags = tags;
+      this.surrogateKeyHeader = surrogateKeyHeader;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    private ExecutionResult toResult(ExecutionInput executionInput, long now) {
+      // remaining max age is rounded up, expired entries are never returned
+      final int remainingMaxAge = (int) ((expiresAtMillis - now + 999) / 1000);
+      CacheControlInstrumentation.attachCacheControlHint(
+          executionInput.getGraphQLContext(), hint.withMaxAge(remainingMaxAge));
+      if (!tags.isEmpty()) {
+        CacheControlInstrumentation.attachCacheTags(
+            executionInput.getGraphQLContext(),
+            tags,
+            surrogateKeyHeader != null ? surrogateKeyHeader : "");
+      }
+      return ExecutionResult.newExecutionResult().data(data).build();
+    }
+  }
+
+  public static class Builder {
+    private int maximumSize = 1_000;
+    private Clock clock = Clock.systemUTC();
+    private Function<ExecutionInput, String> sessionKey = executionInput -> null;
+    private CacheTagIndex tagIndex = null;
+
+    private Builder() {}
+
+    /** Maximum number of cached responses, least recently used responses are evicted first. */
+    public @NotNull Builder maximumSize(int maximumSize) {
+      if (maximumSize <= 0) {
+        throw new IllegalArgumentException("maximumSize has to be positive, got " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Session key of the request, e.g. user ID, used to cache the responses with the <code>PRIVATE
+     * </code> scope. Function may return null for anonymous requests (default: always null, i.e.
+     * private responses are not cached).
+     */
+    public @NotNull Builder sessionKey(@NotNull Function<ExecutionInput, String> sessionKey) {
+      this.sessionKey = sessionKey;
+      return this;
+    }
+
+    /** Clock used to expire the cached responses (default: system clock). */
+    public @NotNull Builder clock(@NotNull Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Index of the response cache tags, may be shared with other caches (default: null, i.e. cache
+     * tags are not indexed).
+     */
+    public @NotNull Builder tagIndex(@Nullable CacheTagIndex tagIndex) {
+      this.tagIndex = tagIndex;
+      return this;
+    }
+
+    public @NotNull ResponseCache build() {
+      return new ResponseCache(this);
+    }
+  }
+}
@@ -44,6 +44,9 @@ public final class ServiceSDLPrinter {
    */
   @Deprecated(since = "05/16/2024")
   public static String generateServiceSDL(GraphQLSchema schema, boolean queryTypeShouldBeEmpty) {
+    final ServiceSdlPrintEvent event = new ServiceSdlPrintEvent();
+    event.begin();
+
     // Gather directive definitions to hide.
     final Set<String> hiddenDirectiveDefinitions = new HashSet<>();
     // Apollo Gateway will fail Federation v1 composition if it sees standard directive definitions.
@@ -113,7 +116,8 @@ public final class ServiceSDLPrinter {
             .includeSchemaDefinition(true)
             .includeSchemaElement(shouldIncludeSchemaElement);
 
-    return new SchemaPrinter(options).print(federatedSchema).trim();
+    final String sdl = new SchemaPrinter(options).print(federatedSchema).trim();
+    return commit(event, false, sdl);
   }
 
   /**
@@ -123,17 +127,32 @@ public final class ServiceSDLPrinter {
    * @return SDL compatible with Federation v2
    */
   public static String generateServiceSDLV2(GraphQLSchema schema) {
+    final ServiceSdlPrintEvent event = new ServiceSdlPrintEvent();
+    event.begin();
+
     // federation v2 SDL does not need to filter federation directive definitions
     final Predicate<GraphQLSchemaElement> excludeBuiltInDirectiveDefinitions =
         element ->
             !(element instanceof GraphQLDirective
                 && DirectiveInfo.isGraphqlSpecifiedDirective((GraphQLDirective) element));
-    return new SchemaPrinter(
-            SchemaPrinter.Options.defaultOptions()
-                .includeSchemaDefinition(true)
-                .includeScalarTypes(true)
-                .includeSchemaElement(excludeBuiltInDirectiveDefinitions))
-        .print(schema)
-        .trim();
+    final String sdl =
+        new SchemaPrinter(
+                SchemaPrinter.Options.defaultOptions()
+                    .includeSchemaDefinition(true)
+                    .includeScalarTypes(true)
+                    .includeSchemaElement(excludeBuiltInDirectiveDefinitions))
+            .print(schema)
+            .trim();
+    return commit(event, true, sdl);
+  }
+
+  private static String commit(ServiceSdlPrintEvent event, boolean federation2, String sdl) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.federation2 = federation2;
+      event.sdlLength = sdl.length();
+      event.commit();
+    }
+    return sdl;
   }
 }
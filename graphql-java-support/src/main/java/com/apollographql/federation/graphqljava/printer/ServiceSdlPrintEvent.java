@@ -0,0 +1,21 @@
+package com.apollographql.federation.graphqljava.printer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event recorded by {@link ServiceSDLPrinter}. */
+@Name("com.apollographql.federation.ServiceSdlPrint")
+@Label("Service SDL Print")
+@Category("Apollo Federation")
+@Description("Generation of the SDL returned by the _service query")
+final class ServiceSdlPrintEvent extends Event {
+  @Label("Federation 2")
+  boolean federation2;
+
+  @Label("SDL Length")
+  @Description("Number of characters, not bytes, of the generated SDL")
+  long sdlLength;
+}
@@ -0,0 +1,214 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Concurrent duration histogram using the bucketing of the Apollo usage reports, i.e. bucket
+ * <code>i</code> counts the durations between <code>1.1^(i-1)</code> and <code>1.1^i</code>
+ * microseconds, with all durations up to 1 microsecond in the first bucket and all durations over
+ * ~6 days in the last one.
+ *
+ * <p>Recording is lock-free and allocation free. Buckets are stored in a single array of atomic
+ * longs until concurrent updates contend repeatedly, at which point the histogram switches to
+ * per-thread stripes that are summed when the histogram is read. Stripes are only allocated for
+ * the threads that actually record durations, so occasional collisions of short-lived histograms
+ * never allocate them.
+ *
+ * <p>Histograms are written directly to the <code>latency_count</code> fields of the <code>
+ * reports.proto</code> messages, without boxing, e.g.
+ *
+ * <pre>{@code
+ * histogram.writeLatencyCounts(fieldStatBuilder::addLatencyCount);
+ * }</pre>
+ */
+public final class DurationHistogram {
+  /** Number of buckets of the Apollo duration histograms. */
+  public static final int BUCKET_COUNT = 384;
+
+  private static final double LOG_BUCKET_BASE = Math.log(1.1);
+  private static final int STRIPE_COUNT =
+      Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+  // failed updates of the base buckets tolerated before switching to stripes
+  private static final int CONTENTION_THRESHOLD = 64;
+
+  private final AtomicLongArray base = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicInteger contention = new AtomicInteger();
+  private volatile AtomicReferenceArray<AtomicLongArray> stripes;
+
+  /**
+   * Bucket of the given duration.
+   *
+   * @param durationNanos duration in nanoseconds
+   * @return bucket index between 0 and {@link #BUCKET_COUNT} - 1
+   */
+  public static int bucket(long durationNanos) {
+    final double bucket = Math.ceil(Math.log(durationNanos / 1000.0) / LOG_BUCKET_BASE);
+    if (!(bucket > 0)) {
+      // covers durations of at most 1 microsecond, including negative durations (NaN)
+      return 0;
+    }
+    return bucket >= BUCKET_COUNT ? BUCKET_COUNT - 1 : (int) bucket;
+  }
+
+  /**
+   * Record single duration.
+   *
+   * @param durationNanos duration in nanoseconds
+   */
+  public void record(long durationNanos) {
+    final int bucket = bucket(durationNanos);
+    AtomicReferenceArray<AtomicLongArray> current = stripes;
+    if (current == null) {
+      final long count = base.get(bucket);
+      if (base.compareAndSet(bucket, count, count + 1)) {
+        return;
+      }
+      if (contention.incrementAndGet() < CONTENTION_THRESHOLD) {
+        base.getAndIncrement(bucket);
+        return;
+      }
+      current = stripes();
+    }
+    stripe(current, (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1))
+        .getAndIncrement(bucket);
+  }
+
+  /** Total number of recorded durations. */
+  public long count() {
+    long count = 0;
+    for (long bucketCount : snapshot()) {
+      count += bucketCount;
+    }
+    return count;
+  }
+
+  /**
+   * Bucket counts recorded so far. Snapshot of a histogram that is concurrently updated is not
+   * atomic, i.e. it may include only some of the concurrently recorded durations.
+   *
+   * @return array of {@link #BUCKET_COUNT} bucket counts
+   */
+  public long @NotNull [] snapshot() {
+    final long[] buckets = new long[BUCKET_COUNT];
+    addTo(base, buckets, false);
+    addStripesTo(buckets, false);
+    return buckets;
+  }
+
+  /**
+   * Bucket counts recorded so far, resetting the histogram. Durations recorded concurrently are
+   * either included in the returned snapshot or kept in the histogram, they are never lost.
+   *
+   * @return array of {@link #BUCKET_COUNT} bucket counts
+   */
+  public long @NotNull [] snapshotAndReset() {
+    final long[] buckets = new long[BUCKET_COUNT];
+    addTo(base, buckets, true);
+    addStripesTo(buckets, true);
+    return buckets;
+  }
+
+  /**
+   * Add all the durations recorded by the other histogram to this histogram.
+   *
+   * @param other histogram to merge
+   */
+  public void merge(@NotNull DurationHistogram other) {
+    merge(other.snapshot());
+  }
+
+  /**
+   * Add the bucket counts to this histogram.
+   *
+   * @param buckets bucket counts, e.g. {@link #snapshot()} of another histogram
+   */
+  public void merge(long @NotNull [] buckets) {
+    if (buckets.length > BUCKET_COUNT) {
+      throw new IllegalArgumentException(
+          "Histogram has " + BUCKET_COUNT + " buckets, got " + buckets.length);
+    }
+    for (int i = 0; i < buckets.length; i++) {
+      if (buckets[i] != 0) {
+        base.getAndAdd(i, buckets[i]);
+      }
+    }
+  }
+
+  /**
+   * Write histogram in the <code>latency_count</code> format, see {@link
+   * #writeLatencyCounts(long[], LongConsumer)}.
+   *
+   * @param out consumer of the encoded values, e.g. <code>FieldStat.Builder::addLatencyCount</code>
+   */
+  public void writeLatencyCounts(@NotNull LongConsumer out) {
+    writeLatencyCounts(snapshot(), out);
+  }
+
+  /**
+   * Write bucket counts in the <code>latency_count</code> format of the <code>reports.proto</code>
+   * messages, i.e. a single empty bucket is written as 0, a run of <code>n</code> empty buckets is
+   * written as <code>-n</code> and the trailing empty buckets are omitted.
+   *
+   * @param buckets bucket counts
+   * @param out consumer of the encoded values
+   */
+  public static void writeLatencyCounts(long @NotNull [] buckets, @NotNull LongConsumer out) {
+    int zeros = 0;
+    for (long count : buckets) {
+      if (count == 0) {
+        zeros++;
+        continue;
+      }
+      if (zeros == 1) {
+        out.accept(0);
+      } else if (zeros > 1) {
+        out.accept(-zeros);
+      }
+      out.accept(count);
+      zeros = 0;
+    }
+  }
+
+  private AtomicReferenceArray<AtomicLongArray> stripes() {
+    synchronized (base) {
+      AtomicReferenceArray<AtomicLongArray> current = stripes;
+      if (current == null) {
+        current = new AtomicReferenceArray<>(STRIPE_COUNT);
+        stripes = current;
+      }
+      return current;
+    }
+  }
+
+  private static AtomicLongArray stripe(AtomicReferenceArray<AtomicLongArray> stripes, int index) {
+    final AtomicLongArray stripe = stripes.get(index);
+    if (stripe != null) {
+      return stripe;
+    }
+    final AtomicLongArray created = new AtomicLongArray(BUCKET_COUNT);
+    return stripes.compareAndSet(index, null, created) ? created : stripes.get(index);
+  }
+
+  private void addStripesTo(long[] buckets, boolean reset) {
+    final AtomicReferenceArray<AtomicLongArray> current = stripes;
+    if (current == null) {
+      return;
+    }
+    for (int i = 0; i < current.length(); i++) {
+      final AtomicLongArray stripe = current.get(i);
+      if (stripe != null) {
+        addTo(stripe, buckets, reset);
+      }
+    }
+  }
+
+  private static void addTo(AtomicLongArray source, long[] buckets, boolean reset) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] += reset ? source.getAndSet(i, 0) : source.get(i);
+    }
+  }
+}
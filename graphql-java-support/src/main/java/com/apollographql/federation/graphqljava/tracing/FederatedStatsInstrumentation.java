@@ -0,0 +1,289 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.InvalidSyntaxError;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.AstPrinter;
+import graphql.language.AstSignature;
+import graphql.validation.ValidationError;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instrumentation that aggregates request and field level stats of all the executed operations in
+ * the <code>Reports.StatsReport</code> format, i.e. request counts, error counts and latency
+ * histograms per operation and per field. Stats are aggregated in-process and periodically flushed
+ * to the configured {@link StatsReportSink}.
+ *
+ * <pre>{@code
+ * FederatedStatsInstrumentation stats =
+ *     new FederatedStatsInstrumentation(
+ *         FederatedStatsInstrumentation.Options.newBuilder()
+ *             .sink(report -> exporter.export(report))
+ *             .flushInterval(Duration.ofSeconds(30))
+ *             .build());
+ * }</pre>
+ *
+ * Instrumentation should be closed when it is no longer used, which stops the periodic flushing
+ * and flushes the remaining stats. Stats of the requests that are still in flight when the stats
+ * are flushed may be omitted from the reports.
+ */
+public class FederatedStatsInstrumentation extends SimplePerformantInstrumentation
+    implements AutoCloseable {
+  static final String PARSE_FAILURE_KEY = "## GraphQLParseFailure\n";
+  static final String VALIDATION_FAILURE_KEY = "## GraphQLValidationFailure\n";
+  static final String UNKNOWN_OPERATION_KEY = "## GraphQLUnknownOperationName\n";
+
+  // keeps the operation key cache bounded when clients send arbitrary queries
+  static final int MAX_CACHED_STATS_KEYS = 10_000;
+
+  private static final Logger logger = LoggerFactory.getLogger(FederatedStatsInstrumentation.class);
+
+  private final Options options;
+  private final AtomicReference<StatsAggregator> aggregator =
+      new AtomicReference<>(new StatsAggregator());
+  private final ConcurrentMap<String, String> statsKeys = new ConcurrentHashMap<>();
+  private final @Nullable ScheduledExecutorService ownedScheduler;
+  private final ScheduledFuture<?> flushTask;
+
+  public FederatedStatsInstrumentation(@NotNull Options options) {
+    this.options = options;
+    final ScheduledExecutorService scheduler;
+    if (options.scheduler != null) {
+      scheduler = options.scheduler;
+      ownedScheduler = null;
+    } else {
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                final Thread thread = new Thread(runnable, "federated-stats-flush");
+                thread.setDaemon(true);
+                return thread;
+              });
+      ownedScheduler = scheduler;
+    }
+    final long intervalNanos = options.flushInterval.toNanos();
+    flushTask =
+        scheduler.scheduleAtFixedRate(
+            this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+    return new FederatedStatsState(aggregator.get());
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+    final @Nullable FederatedStatsState federatedStatsState = (FederatedStatsState) state;
+    if (federatedStatsState != null) {
+      federatedStatsState.operation =
+          federatedStatsState.aggregator.operation(statsKey(parameters.getExecutionContext()));
+    }
+    return super.beginExecuteOperation(parameters, state);
+  }
+
+  @Override
+  public InstrumentationContext<Object> beginFieldFetch(
+      InstrumentationFieldFetchParameters parameters, InstrumentationState state) {
+    final @Nullable FederatedStatsState federatedStatsState = (FederatedStatsState) state;
+    if (federatedStatsState == null || federatedStatsState.operation == null) {
+      return super.beginFieldFetch(parameters, state);
+    }
+
+    final ExecutionStepInfo stepInfo = parameters.getExecutionStepInfo();
+    final StatsAggregator.FieldStats fieldStats =
+        federatedStatsState.operation.field(
+            stepInfo.getObjectType().getName(), stepInfo.getFieldDefinition());
+    final long startNanos = System.nanoTime();
+    return whenCompleted(
+        (result, throwable) -> {
+          final long duration = System.nanoTime() - startNanos;
+          int errors = throwable != null ? 1 : 0;
+          if (result instanceof DataFetcherResult<?>) {
+            errors += ((DataFetcherResult<?>) result).getErrors().size();
+          }
+          fieldStats.record(duration, errors);
+          if (errors > 0) {
+            federatedStatsState.fieldsWithErrors.add(fieldStats);
+          }
+        });
+  }
+
+  @Override
+  public @NotNull CompletableFuture<ExecutionResult> instrumentExecutionResult(
+      ExecutionResult executionResult,
+      InstrumentationExecutionParameters parameters,
+      InstrumentationState state) {
+    final @Nullable FederatedStatsState federatedStatsState = (FederatedStatsState) state;
+    if (federatedStatsState != null) {
+      StatsAggregator.OperationStats operation = federatedStatsState.operation;
+      if (operation == null) {
+        operation = federatedStatsState.aggregator.operation(failureKey(executionResult));
+      }
+      operation.recordRequest(
+          System.nanoTime() - federatedStatsState.startRequestNanos,
+          !executionResult.getErrors().isEmpty());
+      for (StatsAggregator.FieldStats fieldStats : federatedStatsState.fieldsWithErrors) {
+        fieldStats.recordRequestWithErrors();
+      }
+    }
+    return super.instrumentExecutionResult(executionResult, parameters, state);
+  }
+
+  /** Send the stats aggregated since the previous flush to the sink. */
+  public void flush() {
+    final StatsAggregator stats = aggregator.getAndSet(new StatsAggregator());
+    if (stats.isEmpty()) {
+      return;
+    }
+    try {
+      options.sink.send(stats.toReport(options.reportHeader, Instant.now()));
+    } catch (RuntimeException e) {
+      logger.warn("Unable to send federated stats report", e);
+    }
+  }
+
+  /** Stop the periodic flushing and flush the remaining stats. */
+  @Override
+  public void close() {
+    flushTask.cancel(false);
+    if (ownedScheduler != null) {
+      ownedScheduler.shutdown();
+    }
+    flush();
+  }
+
+  private String statsKey(ExecutionContext executionContext) {
+    final String operationName = executionContext.getOperationDefinition().getName();
+    final String cacheKey = executionContext.getExecutionInput().getQuery() + '\0' + operationName;
+    final String cached = statsKeys.get(cacheKey);
+    if (cached != null) {
+      return cached;
+    }
+
+    final String signature =
+        AstPrinter.printAstCompact(
+            new AstSignature().signatureQuery(executionContext.getDocument(), operationName));
+    final String statsKey = "# " + (operationName != null ? operationName : "-") + "\n" + signature;
+    if (statsKeys.size() < MAX_CACHED_STATS_KEYS) {
+      statsKeys.put(cacheKey, statsKey);
+    }
+    return statsKey;
+  }
+
+  private static String failureKey(ExecutionResult executionResult) {
+    for (GraphQLError error : executionResult.getErrors()) {
+      if (error instanceof InvalidSyntaxError) {
+        return PARSE_FAILURE_KEY;
+      } else if (error instanceof ValidationError) {
+        return VALIDATION_FAILURE_KEY;
+      }
+    }
+    return UNKNOWN_OPERATION_KEY;
+  }
+
+  /** Stats recorded for a single request. */
+  private static class FederatedStatsState implements InstrumentationState {
+    private final long startRequestNanos = System.nanoTime();
+    private final StatsAggregator aggregator;
+    private final Set<StatsAggregator.FieldStats> fieldsWithErrors = ConcurrentHashMap.newKeySet();
+    private volatile @Nullable StatsAggregator.OperationStats operation;
+
+    private FederatedStatsState(StatsAggregator aggregator) {
+      this.aggregator = aggregator;
+    }
+  }
+
+  public static class Options {
+    private final StatsReportSink sink;
+    private final Duration flushInterval;
+    private final @Nullable ScheduledExecutorService scheduler;
+    private final @Nullable Reports.ReportHeader reportHeader;
+
+    private Options(Builder builder) {
+      this.sink = builder.sink;
+      this.flushInterval = builder.flushInterval;
+      this.scheduler = builder.scheduler;
+      this.reportHeader = builder.reportHeader;
+    }
+
+    public static @NotNull Builder newBuilder() {
+      return new Builder();
+    }
+
+    public static class Builder {
+      private @Nullable StatsReportSink sink = null;
+      private Duration flushInterval = Duration.ofMinutes(1);
+      private @Nullable ScheduledExecutorService scheduler = null;
+      private @Nullable Reports.ReportHeader reportHeader = null;
+
+      private Builder() {}
+
+      /** Sink that receives the aggregated stats (required). */
+      public @NotNull Builder sink(@NotNull StatsReportSink sink) {
+        this.sink = sink;
+        return this;
+      }
+
+      /** How often the aggregated stats are flushed to the sink (default: 1 minute). */
+      public @NotNull Builder flushInterval(@NotNull Duration flushInterval) {
+        if (flushInterval.isZero() || flushInterval.isNegative()) {
+          throw new IllegalArgumentException(
+              "Flush interval has to be positive, got " + flushInterval);
+        }
+        this.flushInterval = flushInterval;
+        return this;
+      }
+
+      /**
+       * Scheduler used to flush the stats (default: null, i.e. a dedicated daemon thread). Provided
+       * scheduler is not shut down when the instrumentation is closed.
+       */
+      public @NotNull Builder scheduler(@Nullable ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        return this;
+      }
+
+      /** Header included in every stats report (default: null). */
+      public @NotNull Builder reportHeader(@Nullable Reports.ReportHeader reportHeader) {
+        this.reportHeader = reportHeader;
+        return this;
+      }
+
+      public @NotNull Options build() {
+        if (sink == null) {
+          throw new IllegalStateException("Stats report sink has to be specified");
+        }
+        return new Options(this);
+      }
+    }
+  }
+}
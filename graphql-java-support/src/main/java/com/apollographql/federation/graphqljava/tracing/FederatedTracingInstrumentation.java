@@ -1,9 +1,8 @@
 package com.apollographql.federation.graphqljava.tracing;
 
 import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
-import static graphql.schema.GraphQLTypeUtil.simplePrint;
 
-import com.google.protobuf.Timestamp;
+import com.google.protobuf.InvalidProtocolBufferException;
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.ExecutionResultImpl;
@@ -11,7 +10,6 @@ import graphql.GraphQLError;
 import graphql.GraphqlErrorBuilder;
 import graphql.execution.DataFetcherResult;
 import graphql.execution.ExecutionStepInfo;
-import graphql.execution.ResultPath;
 import graphql.execution.instrumentation.InstrumentationContext;
 import graphql.execution.instrumentation.InstrumentationState;
 import graphql.execution.instrumentation.SimplePerformantInstrumentation;
@@ -23,18 +21,12 @@ import graphql.language.Document;
 import graphql.language.SourceLocation;
 import graphql.parser.InvalidSyntaxException;
 import graphql.validation.ValidationError;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Consumer;
 import java.util.function.Predicate;
 import mdg.engine.proto.Reports;
 import org.jetbrains.annotations.NotNull;
@@ -64,7 +56,7 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
   @Override
   public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
     if (options.shouldTrace(parameters.getExecutionInput())) {
-      return new FederatedTracingState();
+      return new FederatedTracingState(options);
     }
     // Note that we interpret null state elsewhere to mean "do not instrument".
     return null;
@@ -80,19 +72,42 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
       return super.instrumentExecutionResult(executionResult, parameters, null);
     }
 
-    Reports.Trace trace = federatedTracingState.toProto();
+    if (options.skipTrivialDataFetchers) {
+      for (GraphQLError error : executionResult.getErrors()) {
+        federatedTracingState.addResultError(error);
+      }
+    }
+    final TraceSerializationEvent event = new TraceSerializationEvent();
+    event.begin();
+    TraceEncoder.EncodedTrace trace = federatedTracingState.encode();
+    final String encodedTrace = trace.toBase64();
+    event.end();
+    if (event.shouldCommit()) {
+      event.traceSize = trace.length;
+      event.encodedSize = encodedTrace.length();
+      event.commit();
+    }
 
     if (options.isDebuggingEnabled()) {
-      logger.debug(trace.toString());
+      logTrace(trace);
     }
 
     return CompletableFuture.completedFuture(
         ExecutionResultImpl.newExecutionResult()
             .from(executionResult)
-            .addExtension(EXTENSION_KEY, Base64.getEncoder().encodeToString(trace.toByteArray()))
+            .addExtension(EXTENSION_KEY, encodedTrace)
             .build());
   }
 
+  private static void logTrace(TraceEncoder.EncodedTrace trace) {
+    try {
+      logger.debug(
+          Reports.Trace.parseFrom(ByteBuffer.wrap(trace.buffer, 0, trace.length)).toString());
+    } catch (InvalidProtocolBufferException e) {
+      logger.debug("Unable to parse generated trace", e);
+    }
+  }
+
   @Override
   public InstrumentationContext<Object> beginFieldFetch(
       InstrumentationFieldFetchParameters parameters, InstrumentationState state) {
@@ -100,6 +115,9 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
     if (federatedTracingState == null) {
       return super.beginFieldFetch(parameters, null);
     }
+    if (options.skipTrivialDataFetchers && parameters.isTrivialDataFetcher()) {
+      return super.beginFieldFetch(parameters, state);
+    }
 
     SourceLocation fieldLocation = parameters.getEnvironment().getField().getSourceLocation();
 
@@ -190,28 +208,34 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
     return graphQLErrors;
   }
 
-  /** Stores timing information and a map of nodes for field information. */
+  /** Stores timing information and field records for a single traced request. */
   private static class FederatedTracingState implements InstrumentationState {
     private final Instant startRequestTime;
     private final long startRequestNanos;
-    private final ProtoBuilderTree protoBuilderTree;
+    private final TraceRecorder traceRecorder;
+    private final @Nullable TraceBudget traceBudget;
 
-    private FederatedTracingState() {
+    private FederatedTracingState(Options options) {
       // record start time when creating instrumentation state for a request
       startRequestTime = Instant.now();
       startRequestNanos = System.nanoTime();
 
-      protoBuilderTree = new ProtoBuilderTree();
+      traceRecorder =
+          options.slowFieldThresholdNanos > 0
+              ? new SlowFieldTraceRecorder(options.slowFieldThresholdNanos)
+              : new TraceRecorder();
+      this.traceBudget = options.traceBudget;
     }
 
     @NotNull
-    Reports.Trace toProto() {
-      return Reports.Trace.newBuilder()
-          .setStartTime(getStartTimestamp())
-          .setEndTime(getNowTimestamp())
-          .setDurationNs(getDuration())
-          .setRoot(protoBuilderTree.toProto())
-          .build();
+    TraceEncoder.EncodedTrace encode() {
+      final Instant endRequestTime = Instant.now();
+      final long duration = getDuration();
+      TraceNode root = traceRecorder.assemble();
+      if (traceBudget != null) {
+        root = traceBudget.apply(root);
+      }
+      return TraceEncoder.encode(startRequestTime, endRequestTime, duration, root);
     }
 
     /** Adds stats data collected from a field fetch. */
@@ -221,242 +245,33 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
         long endFieldNanos,
         List<GraphQLError> errors,
         SourceLocation fieldLocation) {
-      ResultPath path = stepInfo.getPath();
-      protoBuilderTree.editBuilder(
-          path,
-          (builder) -> {
-            builder
-                .setStartTime(startFieldNanos)
-                .setEndTime(endFieldNanos)
-                .setParentType(simplePrint(stepInfo.getParent().getUnwrappedNonNullType()))
-                .setType(stepInfo.simplePrint())
-                .setResponseName(stepInfo.getResultKey());
-
-            // set originalFieldName only when a field alias was used
-            String originalFieldName = stepInfo.getField().getName();
-            if (!originalFieldName.equals(stepInfo.getResultKey())) {
-              builder.setOriginalFieldName(originalFieldName);
-            }
-
-            errors.forEach(
-                error -> {
-                  Reports.Trace.Error.Builder errorBuilder =
-                      builder.addErrorBuilder().setMessage(error.getMessage());
-                  List<SourceLocation> locations = error.getLocations();
-                  if ((locations == null || locations.isEmpty()) && fieldLocation != null) {
-                    errorBuilder
-                        .addLocationBuilder()
-                        .setColumn(fieldLocation.getColumn())
-                        .setLine(fieldLocation.getLine());
-                  } else if (locations != null) {
-                    error
-                        .getLocations()
-                        .forEach(
-                            location ->
-                                errorBuilder
-                                    .addLocationBuilder()
-                                    .setColumn(location.getColumn())
-                                    .setLine(location.getLine()));
-                  }
-                });
-          });
+      traceRecorder.recordField(stepInfo, startFieldNanos, endFieldNanos, errors, fieldLocation);
     }
 
     void addRootError(GraphQLError error) {
-      protoBuilderTree.editBuilder(
-          ResultPath.rootPath(),
-          (builder) -> {
-            Reports.Trace.Error.Builder errorBuilder =
-                builder.addErrorBuilder().setMessage(error.getMessage());
-
-            if (error.getLocations() != null) {
-              error
-                  .getLocations()
-                  .forEach(
-                      location ->
-                          errorBuilder
-                              .addLocationBuilder()
-                              .setColumn(location.getColumn())
-                              .setLine(location.getLine()));
-            }
-          });
+      traceRecorder.recordRootError(error);
     }
 
-    long getStartRequestNanos() {
-      return startRequestNanos;
+    void addResultError(GraphQLError error) {
+      traceRecorder.recordResultError(error);
     }
 
-    @NotNull
-    private static Timestamp instantToTimestamp(@NotNull Instant startRequestTime2) {
-      return Timestamp.newBuilder()
-          .setSeconds(startRequestTime2.getEpochSecond())
-          .setNanos(startRequestTime2.getNano())
-          .build();
-    }
-
-    @NotNull
-    private Timestamp getStartTimestamp() {
-      return instantToTimestamp(startRequestTime);
-    }
-
-    @NotNull
-    private Timestamp getNowTimestamp() {
-      return instantToTimestamp(Instant.now());
+    long getStartRequestNanos() {
+      return startRequestNanos;
     }
 
     private long getDuration() {
       return System.nanoTime() - startRequestNanos;
     }
-
-    /** A thread-safe class for storing field information and converting it to a protobuf. */
-    private static class ProtoBuilderTree {
-      private final Node root;
-      private final ConcurrentMap<ResultPath, Node> nodesByPath;
-      // We use a whole-tree read-write lock to prevent the protobuf conversion step from
-      // having to acquire each node's lock.
-      private final ReadWriteLock treeLock;
-      // This flag is used to ensure protobuf conversion occurs once, and that builders can't
-      // be edited afterwards. We intentionally leave this field to be default initialized as
-      // false.
-      private boolean isFinalized;
-
-      public ProtoBuilderTree() {
-        root = new Node(Reports.Trace.Node.newBuilder());
-        nodesByPath = new ConcurrentHashMap<>();
-        nodesByPath.put(ResultPath.rootPath(), root);
-        treeLock = new ReentrantReadWriteLock();
-      }
-
-      /** Edit builder for the node at the given path (creating it and its parents if needed). */
-      public void editBuilder(
-          ResultPath path, Consumer<Reports.Trace.Node.Builder> builderConsumer) {
-        Lock l = treeLock.readLock();
-        l.lock();
-        try {
-          if (isFinalized) {
-            throw new RuntimeException("Cannot edit builder after protobuf conversion.");
-          }
-          Node node = getOrCreateNode(path);
-          synchronized (node.builder) {
-            builderConsumer.accept(node.builder);
-          }
-        } finally {
-          l.unlock();
-        }
-      }
-
-      /**
-       * Get node for the given path in nodesByPath (creating it and its parents if needed).
-       *
-       * <p>Note that {@link #treeLock}'s read lock must be held when calling this method.
-       */
-      @NotNull
-      private Node getOrCreateNode(ResultPath path) {
-        // Fast path for when the node already exists.
-        Node current = nodesByPath.get(path);
-        if (current != null) {
-          return current;
-        }
-
-        // Find the latest ancestor that exists in the map.
-        List<Object> pathSegments = path.toList();
-        int currentSegmentIndex = pathSegments.size();
-        while (current == null) {
-          if (currentSegmentIndex <= 0) {
-            // The root path's node is inserted at construction time, so this shouldn't
-            // happen.
-            throw new RuntimeException("root path missing from nodesByPath?");
-          }
-          currentSegmentIndex--;
-          ResultPath currentPath =
-              ResultPath.fromList(pathSegments.subList(0, currentSegmentIndex));
-          current = nodesByPath.get(currentPath);
-        }
-
-        // Travel back down to the requested node, creating child nodes along the way as
-        // needed.
-        for (; currentSegmentIndex < pathSegments.size(); currentSegmentIndex++) {
-          Node parent = current;
-          ResultPath childPath =
-              ResultPath.fromList(pathSegments.subList(0, currentSegmentIndex + 1));
-          Object childSegment = pathSegments.get(currentSegmentIndex);
-
-          Reports.Trace.Node.Builder childBuilder = Reports.Trace.Node.newBuilder();
-          if (childSegment instanceof Integer) {
-            childBuilder.setIndex((Integer) childSegment);
-          } else if (currentSegmentIndex < pathSegments.size() - 1) {
-            // We've encountered a field name node that is an ancestor of the requested
-            // node. However, the fetcher for that field name should have ultimately
-            // called getOrCreateNode() on its node before getOrCreateNode() was called
-            // on the requested node, meaning that this field name node should already
-            // be in nodesByPath. Accordingly, we should never encounter such field
-            // name ancestor nodes, and we throw when we do.
-            throw new RuntimeException("Unexpected missing non-index " + childSegment);
-          }
-          Node childNode = new Node(childBuilder);
-
-          // Note that putIfAbsent() here will give the child node if it already existed,
-          // or null if it didn't (in which case the node passed to putIfAbsent() becomes
-          // the child node).
-          current = nodesByPath.putIfAbsent(childPath, childNode);
-          if (current == null) {
-            current = childNode;
-            parent.children.add(childNode);
-          }
-        }
-
-        return current;
-      }
-
-      /**
-       * Convert the entire builder tree to protobuf, forming the parent-child relationships as
-       * needed.
-       *
-       * <p>Note that no builder may be edited after this method is called.
-       */
-      @NotNull
-      public Reports.Trace.Node toProto() {
-        Lock l = treeLock.writeLock();
-        l.lock();
-        try {
-          if (!isFinalized) {
-            buildDescendants(root);
-            isFinalized = true;
-          }
-          return root.builder.build();
-        } finally {
-          l.unlock();
-        }
-      }
-
-      /**
-       * Recursively build the protobuf builder for the given node, forming the parent-child
-       * relationships between builders of descendant nodes as needed.
-       *
-       * <p>Note that {@link #treeLock}'s write lock must be held when calling this method.
-       */
-      private void buildDescendants(Node node) {
-        for (Node childNode : node.children) {
-          buildDescendants(childNode);
-          node.builder.addChild(childNode.builder.build());
-        }
-      }
-
-      private static class Node {
-        public final Reports.Trace.Node.Builder builder;
-        public final ConcurrentLinkedQueue<Node> children;
-
-        public Node(Reports.Trace.Node.Builder builder) {
-          this.builder = builder;
-          this.children = new ConcurrentLinkedQueue<>();
-        }
-      }
-    }
   }
 
   public static class Options {
     private final boolean debuggingEnabled;
     private final @Nullable Predicate<ExecutionInput> shouldTracePredicate;
+    private final @Nullable TraceSampler sampler;
+    private final @Nullable TraceBudget traceBudget;
+    private final long slowFieldThresholdNanos;
+    private final boolean skipTrivialDataFetchers;
 
     /**
      * Configuration options for federated tracing.
@@ -473,23 +288,59 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
      */
     public Options(
         boolean debuggingEnabled, @Nullable Predicate<ExecutionInput> shouldTracePredicate) {
-      this.debuggingEnabled = debuggingEnabled;
-      this.shouldTracePredicate = shouldTracePredicate;
+      this(
+          newBuilder()
+              .debuggingEnabled(debuggingEnabled)
+              .shouldTracePredicate(shouldTracePredicate));
     }
 
     public Options(boolean debuggingEnabled) {
       this(debuggingEnabled, null);
     }
 
+    private Options(Builder builder) {
+      this.debuggingEnabled = builder.debuggingEnabled;
+      this.shouldTracePredicate = builder.shouldTracePredicate;
+      this.sampler = builder.sampler;
+      final TraceBudget budget =
+          new TraceBudget(
+              builder.maxTraceNodes,
+              builder.maxTraceBytes,
+              builder.listElementThreshold,
+              builder.minLeafFieldDuration.toNanos());
+      this.traceBudget = budget.isUnlimited() ? null : budget;
+      this.slowFieldThresholdNanos = builder.slowFieldThreshold.toNanos();
+      this.skipTrivialDataFetchers = builder.skipTrivialDataFetchers;
+    }
+
     public static @NotNull Options newOptions() {
       return new Options(false);
     }
 
+    public static @NotNull Builder newBuilder() {
+      return new Builder();
+    }
+
     public boolean isDebuggingEnabled() {
       return debuggingEnabled;
     }
 
+    /**
+     * Whether to generate a trace for the given request. Requests that asked for a trace (see
+     * {@link #Options(boolean, Predicate)}) are traced only if they are also accepted by the
+     * configured {@link TraceSampler}.
+     *
+     * @param executionInput request
+     * @return true if request should be traced
+     */
     public boolean shouldTrace(ExecutionInput executionInput) {
+      if (!isTraceRequested(executionInput)) {
+        return false;
+      }
+      return sampler == null || sampler.sample(executionInput);
+    }
+
+    private boolean isTraceRequested(ExecutionInput executionInput) {
       if (shouldTracePredicate != null) {
         return shouldTracePredicate.test(executionInput);
       }
@@ -501,5 +352,113 @@ public class FederatedTracingInstrumentation extends SimplePerformantInstrumenta
       }
       return false;
     }
+
+    public static class Builder {
+      private boolean debuggingEnabled = false;
+      private @Nullable Predicate<ExecutionInput> shouldTracePredicate = null;
+      private @Nullable TraceSampler sampler = null;
+      private int maxTraceNodes = TraceBudget.UNLIMITED;
+      private int maxTraceBytes = TraceBudget.UNLIMITED;
+      private int listElementThreshold = TraceBudget.UNLIMITED;
+      private Duration minLeafFieldDuration = Duration.ZERO;
+      private Duration slowFieldThreshold = Duration.ZERO;
+      private boolean skipTrivialDataFetchers = false;
+
+      private Builder() {}
+
+      /** Enables debug logging of the generated trace (default: false). */
+      public @NotNull Builder debuggingEnabled(boolean debuggingEnabled) {
+        this.debuggingEnabled = debuggingEnabled;
+        return this;
+      }
+
+      /**
+       * Predicate that controls whether a trace was requested for a given request, see {@link
+       * Options#Options(boolean, Predicate)}.
+       */
+      public @NotNull Builder shouldTracePredicate(
+          @Nullable Predicate<ExecutionInput> shouldTracePredicate) {
+        this.shouldTracePredicate = shouldTracePredicate;
+        return this;
+      }
+
+      /**
+       * Sampler that decides which of the requests that asked for a trace are actually traced
+       * (default: null, i.e. all of them), see {@link TraceSamplers}.
+       */
+      public @NotNull Builder sampler(@Nullable TraceSampler sampler) {
+        this.sampler = sampler;
+        return this;
+      }
+
+      /**
+       * Maximum number of nodes reported in a single trace (default: unlimited). Nodes are kept in
+       * breadth first order, i.e. the deepest fields are omitted first.
+       */
+      public @NotNull Builder maxTraceNodes(int maxTraceNodes) {
+        this.maxTraceNodes = positive(maxTraceNodes, "Max trace nodes");
+        return this;
+      }
+
+      /**
+       * Maximum size of a single serialized trace, before base64 encoding (default: unlimited).
+       * Traces exceeding this size only report errors and operation level timings.
+       */
+      public @NotNull Builder maxTraceBytes(int maxTraceBytes) {
+        this.maxTraceBytes = positive(maxTraceBytes, "Max trace bytes");
+        return this;
+      }
+
+      /**
+       * Maximum number of elements reported for each list (default: unlimited). Elements beyond
+       * the threshold are omitted from the trace unless they contain errors, the timing of the
+       * list field itself is always reported.
+       */
+      public @NotNull Builder listElementThreshold(int listElementThreshold) {
+        this.listElementThreshold = positive(listElementThreshold, "List element threshold");
+        return this;
+      }
+
+      /**
+       * Leaf fields that resolved faster than the given duration are omitted from the trace unless
+       * they contain errors (default: zero, i.e. all fields are reported).
+       */
+      public @NotNull Builder minLeafFieldDuration(@NotNull Duration minLeafFieldDuration) {
+        this.minLeafFieldDuration = minLeafFieldDuration;
+        return this;
+      }
+
+      /**
+       * Report only the fields that took at least the given duration, together with their
+       * ancestors and the fields with errors (default: zero, i.e. all fields are reported). Unlike
+       * {@link #minLeafFieldDuration(Duration)}, fast fields are never materialized as trace nodes,
+       * which keeps the tracing overhead low for large responses.
+       */
+      public @NotNull Builder slowFieldThreshold(@NotNull Duration slowFieldThreshold) {
+        this.slowFieldThreshold = slowFieldThreshold;
+        return this;
+      }
+
+      /**
+       * Do not time fields resolved by trivial data fetchers, e.g. {@link
+       * graphql.schema.PropertyDataFetcher} (default: false). Such fields are only reported when
+       * they contain errors, or as the ancestors of the timed fields.
+       */
+      public @NotNull Builder skipTrivialDataFetchers(boolean skipTrivialDataFetchers) {
+        this.skipTrivialDataFetchers = skipTrivialDataFetchers;
+        return this;
+      }
+
+      public @NotNull Options build() {
+        return new Options(this);
+      }
+
+      private static int positive(int value, String name) {
+        if (value <= 0) {
+          throw new IllegalArgumentException(name + " has to be positive, got " + value);
+        }
+        return value;
+      }
+    }
   }
 }
@@ -0,0 +1,143 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQLError;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.ResultPath;
+import graphql.language.SourceLocation;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Trace recorder that reports only the slow fields.
+ *
+ * <p>Every successful field fetch is recorded cheaply, as a start/end pair in a chunked primitive
+ * array, without allocating a record per field. Trace nodes are materialized only for the fields
+ * that took at least the configured threshold, for the fields with errors and for all of their
+ * ancestors, so the trace still shows the full path to every slow field.
+ */
+final class SlowFieldTraceRecorder extends TraceRecorder {
+  private static final int CHUNK_BITS = 8;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private final long thresholdNanos;
+  private final AtomicInteger size = new AtomicInteger();
+  private final Chunk head = new Chunk(0);
+  private final AtomicReference<Chunk> tail = new AtomicReference<>(head);
+
+  SlowFieldTraceRecorder(long thresholdNanos) {
+    this.thresholdNanos = thresholdNanos;
+  }
+
+  @Override
+  void recordField(
+      @NotNull ExecutionStepInfo stepInfo,
+      long startNanos,
+      long endNanos,
+      @NotNull List<GraphQLError> errors,
+      @Nullable SourceLocation fieldLocation) {
+    if (!errors.isEmpty()) {
+      // fields with errors are always reported and are rare enough to keep the full record
+      super.recordField(stepInfo, startNanos, endNanos, errors, fieldLocation);
+      return;
+    }
+
+    final int slot = size.getAndIncrement();
+    final Chunk chunk = chunkFor(slot >>> CHUNK_BITS);
+    final int offset = slot & (CHUNK_SIZE - 1);
+    chunk.timings[offset << 1] = startNanos;
+    chunk.timings[(offset << 1) + 1] = endNanos;
+    chunk.steps[offset] = stepInfo;
+  }
+
+  /**
+   * Create nodes only for slow and failed fields and their ancestors. Execution result is
+   * assembled only after all the field fetches completed, so the plain array writes are visible
+   * here.
+   */
+  @Override
+  void assembleFields(Map<ResultPath, TraceNode> nodesByPath) {
+    final int recorded = size.get();
+    final Set<ResultPath> reported = new HashSet<>();
+    for (Chunk chunk = head; chunk != null; chunk = chunk.next.get()) {
+      final int count = Math.min(CHUNK_SIZE, recorded - chunk.index * CHUNK_SIZE);
+      for (int i = 0; i < count; i++) {
+        if (chunk.steps[i] != null
+            && chunk.timings[(i << 1) + 1] - chunk.timings[i << 1] >= thresholdNanos) {
+          addPath(reported, chunk.steps[i]);
+        }
+      }
+    }
+    for (FieldRecord field : fields) {
+      addPath(reported, field.stepInfo);
+    }
+    if (reported.isEmpty()) {
+      return;
+    }
+
+    // records are appended in execution order, so ancestors are materialized before descendants
+    for (Chunk chunk = head; chunk != null; chunk = chunk.next.get()) {
+      final int count = Math.min(CHUNK_SIZE, recorded - chunk.index * CHUNK_SIZE);
+      for (int i = 0; i < count; i++) {
+        final ExecutionStepInfo stepInfo = chunk.steps[i];
+        if (stepInfo != null && reported.contains(stepInfo.getPath())) {
+          writeField(
+              getOrCreateNode(nodesByPath, stepInfo.getPath()),
+              stepInfo,
+              chunk.timings[i << 1],
+              chunk.timings[(i << 1) + 1]);
+        }
+      }
+    }
+    super.assembleFields(nodesByPath);
+  }
+
+  /** Add path of the field and all of its ancestors, stopping at the first one already added. */
+  private static void addPath(Set<ResultPath> paths, ExecutionStepInfo stepInfo) {
+    for (ExecutionStepInfo current = stepInfo;
+        current != null && !current.getPath().isRootPath();
+        current = current.getParent()) {
+      if (!paths.add(current.getPath())) {
+        return;
+      }
+    }
+  }
+
+  private Chunk chunkFor(int index) {
+    Chunk chunk = tail.get();
+    if (chunk.index > index) {
+      // tail already moved past the slot that was claimed before the chunk was appended
+      chunk = head;
+    }
+    while (chunk.index < index) {
+      Chunk next = chunk.next.get();
+      if (next == null) {
+        final Chunk appended = new Chunk(chunk.index + 1);
+        next = chunk.next.compareAndSet(null, appended) ? appended : chunk.next.get();
+      }
+      chunk = next;
+    }
+    final Chunk current = tail.get();
+    if (current.index < chunk.index) {
+      tail.compareAndSet(current, chunk);
+    }
+    return chunk;
+  }
+
+  /** Fixed size block of field timings, chunks form a singly linked list. */
+  private static final class Chunk {
+    private final int index;
+    private final long[] timings = new long[CHUNK_SIZE << 1];
+    private final ExecutionStepInfo[] steps = new ExecutionStepInfo[CHUNK_SIZE];
+    private final AtomicReference<Chunk> next = new AtomicReference<>();
+
+    private Chunk(int index) {
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.Timestamp;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLTypeUtil;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Per-operation and per-field stats collected over a single flush interval. Recording is lock-free,
+ * counters are striped {@link LongAdder}s and the maps are only written when an operation or field
+ * is seen for the first time.
+ */
+final class StatsAggregator {
+  private final Instant startTime = Instant.now();
+  private final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+  /**
+   * Get stats of the given operation.
+   *
+   * @param statsKey operation key in the <code>StatsReport.per_query</code> format
+   */
+  @NotNull
+  OperationStats operation(@NotNull String statsKey) {
+    final OperationStats stats = operations.get(statsKey);
+    if (stats != null) {
+      return stats;
+    }
+    return operations.computeIfAbsent(statsKey, (ignored) -> new OperationStats());
+  }
+
+  boolean isEmpty() {
+    return operations.isEmpty();
+  }
+
+  @NotNull
+  Reports.StatsReport toReport(@Nullable Reports.ReportHeader header, @NotNull Instant endTime) {
+    final Reports.StatsReport.Builder report =
+        Reports.StatsReport.newBuilder()
+            .setStartTime(timestamp(startTime))
+            .setEndTime(timestamp(endTime));
+    if (header != null) {
+      report.setHeader(header);
+    }
+    for (Map.Entry<String, OperationStats> operation : operations.entrySet()) {
+      report.putPerQuery(operation.getKey(), operation.getValue().toQueryStats());
+    }
+    return report.build();
+  }
+
+  private static Timestamp timestamp(Instant instant) {
+    return Timestamp.newBuilder()
+        .setSeconds(instant.getEpochSecond())
+        .setNanos(instant.getNano())
+        .build();
+  }
+
+  /** Request level latency and the stats of all the fields resolved by a single operation. */
+  static final class OperationStats {
+    private final DurationHistogram latency = new DurationHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestsWithErrors = new LongAdder();
+    private final ConcurrentMap<String, ConcurrentMap<String, FieldStats>> types =
+        new ConcurrentHashMap<>();
+
+    void recordRequest(long durationNanos, boolean hasErrors) {
+      latency.record(durationNanos);
+      requests.increment();
+      if (hasErrors) {
+        requestsWithErrors.increment();
+      }
+    }
+
+    @NotNull
+    FieldStats field(@NotNull String parentType, @NotNull GraphQLFieldDefinition field) {
+      ConcurrentMap<String, FieldStats> fields = types.get(parentType);
+      if (fields == null) {
+        fields = types.computeIfAbsent(parentType, (ignored) -> new ConcurrentHashMap<>());
+      }
+      final FieldStats stats = fields.get(field.getName());
+      if (stats != null) {
+        return stats;
+      }
+      final String returnType = GraphQLTypeUtil.simplePrint(field.getType());
+      return fields.computeIfAbsent(field.getName(), (ignored) -> new FieldStats(returnType));
+    }
+
+    private Reports.QueryStats toQueryStats() {
+      final Reports.ContextualizedTypeStats.Builder typeStats =
+          Reports.ContextualizedTypeStats.newBuilder()
+              .setContext(Reports.StatsContext.getDefaultInstance());
+      for (Map.Entry<String, ConcurrentMap<String, FieldStats>> type : types.entrySet()) {
+        final Reports.TypeStat.Builder typeStat = Reports.TypeStat.newBuilder();
+        for (Map.Entry<String, FieldStats> field : type.getValue().entrySet()) {
+          typeStat.putPerFieldStat(field.getKey(), field.getValue().toFieldStat());
+        }
+        typeStats.putPerTypeStat(type.getKey(), typeStat.build());
+      }
+
+      final Reports.QueryLatencyStats.Builder latencyStats =
+          Reports.QueryLatencyStats.newBuilder()
+              .setRequestCount(requests.sum())
+              .setRequestsWithErrorsCount(requestsWithErrors.sum());
+      latency.writeLatencyCounts(latencyStats::addLatencyCount);
+
+      return Reports.QueryStats.newBuilder()
+          .addQueryStatsWithContext(
+              Reports.ContextualizedQueryLatencyStats.newBuilder()
+                  .setContext(Reports.StatsContext.getDefaultInstance())
+                  .setQueryLatencyStats(latencyStats))
+          .addTypeStatsWithContext(typeStats)
+          .build();
+    }
+  }
+
+  /** Latency and error stats of a single field. */
+  static final class FieldStats {
+    private final String returnType;
+    private final DurationHistogram latency = new DurationHistogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder requestsWithErrors = new LongAdder();
+
+    private FieldStats(String returnType) {
+      this.returnType = returnType;
+    }
+
+    void record(long durationNanos, int errorCount) {
+      latency.record(durationNanos);
+      count.increment();
+      if (errorCount > 0) {
+        errors.add(errorCount);
+      }
+    }
+
+    void recordRequestWithErrors() {
+      requestsWithErrors.increment();
+    }
+
+    private Reports.FieldStat toFieldStat() {
+      final Reports.FieldStat.Builder fieldStat =
+          Reports.FieldStat.newBuilder()
+              .setReturnType(returnType)
+              .setCount(count.sum())
+              .setErrorsCount(errors.sum())
+              .setRequestsWithErrorsCount(requestsWithErrors.sum());
+      latency.writeLatencyCounts(fieldStat::addLatencyCount);
+      return fieldStat.build();
+    }
+  }
+}
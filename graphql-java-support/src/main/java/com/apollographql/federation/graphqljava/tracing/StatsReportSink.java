@@ -0,0 +1,22 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the stats aggregated by {@link FederatedStatsInstrumentation}, e.g. to export them to a
+ * metrics backend or to forward them to Apollo usage reporting.
+ *
+ * <p>Reports are delivered from the flushing thread and the sink should not block for long, as the
+ * next report is not produced until the sink returns.
+ */
+@FunctionalInterface
+public interface StatsReportSink {
+
+  /**
+   * Handle stats aggregated over a single flush interval.
+   *
+   * @param report aggregated stats, never empty
+   */
+  void send(@NotNull Reports.StatsReport report);
+}
@@ -0,0 +1,140 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Limits the size of the generated traces.
+ *
+ * <p>Budget is applied to the assembled trace tree in the following order
+ *
+ * <ol>
+ *   <li>list elements beyond the configured threshold are omitted, unless they contain errors
+ *   <li>leaf fields resolved faster than the configured minimum duration are omitted, unless they
+ *       contain errors
+ *   <li>if the trace still contains more than the max number of nodes, nodes are kept in breadth
+ *       first order, i.e. deepest nodes are omitted first
+ *   <li>if the serialized trace still exceeds the max number of bytes, only the errors (and their
+ *       ancestor paths) are kept, and if that is still too large only the root node is kept
+ * </ol>
+ *
+ * Operation level timings (start, end and duration) are always reported.
+ */
+final class TraceBudget {
+  static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private final int maxNodes;
+  private final int maxBytes;
+  private final int listElementThreshold;
+  private final long minLeafDurationNanos;
+
+  TraceBudget(int maxNodes, int maxBytes, int listElementThreshold, long minLeafDurationNanos) {
+    this.maxNodes = maxNodes;
+    this.maxBytes = maxBytes;
+    this.listElementThreshold = listElementThreshold;
+    this.minLeafDurationNanos = minLeafDurationNanos;
+  }
+
+  boolean isUnlimited() {
+    return maxNodes == UNLIMITED
+        && maxBytes == UNLIMITED
+        && listElementThreshold == UNLIMITED
+        && minLeafDurationNanos <= 0;
+  }
+
+  /** Trim the trace tree to fit the budget, the tree is modified in place. */
+  @NotNull
+  TraceNode apply(@NotNull TraceNode root) {
+    if (listElementThreshold != UNLIMITED || minLeafDurationNanos > 0) {
+      prune(root);
+    }
+    if (maxNodes != UNLIMITED) {
+      limitNodes(root);
+    }
+    if (maxBytes != UNLIMITED && TraceEncoder.nodeSize(root) > maxBytes) {
+      keepErrorPaths(root);
+      if (TraceEncoder.nodeSize(root) > maxBytes) {
+        root.children = null;
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Omit list elements beyond the threshold and fast leaf fields.
+   *
+   * @return true if node or any of its descendants contains errors
+   */
+  private boolean prune(TraceNode node) {
+    boolean hasErrors = node.hasErrors();
+    if (node.children == null) {
+      return hasErrors;
+    }
+
+    final List<TraceNode> kept = new ArrayList<>(node.children.size());
+    int listElements = 0;
+    for (TraceNode child : node.children) {
+      final boolean childHasErrors = prune(child);
+      if (!childHasErrors) {
+        if (child.isListElement()) {
+          listElements++;
+          // drop elements over the threshold and the elements whose fields were all omitted
+          if (listElements > listElementThreshold || child.children == null) {
+            continue;
+          }
+        } else if (child.children == null && child.duration() < minLeafDurationNanos) {
+          continue;
+        }
+      }
+      kept.add(child);
+      hasErrors |= childHasErrors;
+    }
+    node.children = kept.isEmpty() ? null : kept;
+    return hasErrors;
+  }
+
+  /** Keep at most max nodes, in breadth first order. */
+  private void limitNodes(TraceNode root) {
+    int remaining = maxNodes - 1;
+    final Queue<TraceNode> queue = new ArrayDeque<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      final TraceNode node = queue.poll();
+      if (node.children == null) {
+        continue;
+      }
+      if (remaining <= 0) {
+        node.children = null;
+        continue;
+      }
+      if (node.children.size() > remaining) {
+        node.children = new ArrayList<>(node.children.subList(0, remaining));
+      }
+      remaining -= node.children.size();
+      queue.addAll(node.children);
+    }
+  }
+
+  /**
+   * Keep only the nodes with errors and their ancestors.
+   *
+   * @return true if node or any of its descendants contains errors
+   */
+  private static boolean keepErrorPaths(TraceNode node) {
+    boolean hasErrors = node.hasErrors();
+    if (node.children != null) {
+      final List<TraceNode> kept = new ArrayList<>();
+      for (TraceNode child : node.children) {
+        if (keepErrorPaths(child)) {
+          kept.add(child);
+          hasErrors = true;
+        }
+      }
+      node.children = kept.isEmpty() ? null : kept;
+    }
+    return hasErrors;
+  }
+}
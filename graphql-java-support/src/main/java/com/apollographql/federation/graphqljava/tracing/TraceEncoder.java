@@ -0,0 +1,299 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import graphql.language.SourceLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes <code>Reports.Trace</code> protobuf wire format directly from a {@link TraceNode} tree and
+ * encodes it as base64 <code>ftv1</code> extension value.
+ *
+ * <p>Message sizes are computed upfront, so the trace is written in a single pass into a reusable
+ * per-thread buffer and then base64 encoded into another reusable buffer. Compared to building
+ * <code>Reports.Trace</code> messages this avoids allocating a builder and an immutable message per
+ * node as well as the intermediate copies of the serialized trace. Fields are written in field
+ * number order, so the output is identical to the one produced by the generated message classes.
+ *
+ * <p>Only buffers of up to 64 KiB are kept per thread, larger traces allocate their buffers per
+ * call, so large request thread pools do not pin memory after an unusually large trace. As the
+ * buffers are reused, an {@link EncodedTrace} is only valid until the next trace is encoded on the
+ * same thread, i.e. it has to be consumed before the thread encodes another trace.
+ */
+final class TraceEncoder {
+  // Reports.Trace
+  private static final int TRACE_END_TIME = 3;
+  private static final int TRACE_START_TIME = 4;
+  private static final int TRACE_DURATION_NS = 11;
+  private static final int TRACE_ROOT = 14;
+  // google.protobuf.Timestamp
+  private static final int TIMESTAMP_SECONDS = 1;
+  private static final int TIMESTAMP_NANOS = 2;
+  // Reports.Trace.Node
+  private static final int NODE_RESPONSE_NAME = 1;
+  private static final int NODE_INDEX = 2;
+  private static final int NODE_TYPE = 3;
+  private static final int NODE_START_TIME = 8;
+  private static final int NODE_END_TIME = 9;
+  private static final int NODE_ERROR = 11;
+  private static final int NODE_CHILD = 12;
+  private static final int NODE_PARENT_TYPE = 13;
+  private static final int NODE_ORIGINAL_FIELD_NAME = 14;
+  // Reports.Trace.Error
+  private static final int ERROR_MESSAGE = 1;
+  private static final int ERROR_LOCATION = 2;
+  // Reports.Trace.Location
+  private static final int LOCATION_LINE = 1;
+  private static final int LOCATION_COLUMN = 2;
+
+  // typical traces fit in, larger buffers are not retained as every request thread keeps its own
+  private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+  private static final ThreadLocal<byte[]> wireBuffers = new ThreadLocal<>();
+  private static final ThreadLocal<byte[]> base64Buffers = new ThreadLocal<>();
+
+  private TraceEncoder() {}
+
+  /** Serialized trace, valid only until the next trace is encoded on the same thread. */
+  static final class EncodedTrace {
+    final byte[] buffer;
+    final int length;
+
+    private EncodedTrace(byte[] buffer, int length) {
+      this.buffer = buffer;
+      this.length = length;
+    }
+
+    /** Base64 encode the serialized trace. */
+    @NotNull
+    String toBase64() {
+      final byte[] base64 = buffer(base64Buffers, 4 * ((length + 2) / 3));
+      final ArraySink sink = new ArraySink(base64);
+      try (OutputStream encoder = Base64.getEncoder().wrap(sink)) {
+        encoder.write(buffer, 0, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return new String(base64, 0, sink.count, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  /** Write <code>Reports.Trace</code> message into a reusable per-thread buffer. */
+  @NotNull
+  static EncodedTrace encode(
+      @NotNull Instant startTime,
+      @NotNull Instant endTime,
+      long durationNs,
+      @NotNull TraceNode root) {
+    final int endTimeSize = timestampSize(endTime);
+    final int startTimeSize = timestampSize(startTime);
+    final int rootSize = nodeSize(root);
+    int size =
+        messageFieldSize(TRACE_END_TIME, endTimeSize)
+            + messageFieldSize(TRACE_START_TIME, startTimeSize)
+            + messageFieldSize(TRACE_ROOT, rootSize);
+    if (durationNs != 0) {
+      size += CodedOutputStream.computeUInt64Size(TRACE_DURATION_NS, durationNs);
+    }
+
+    final byte[] buffer = buffer(wireBuffers, size);
+    final CodedOutputStream output = CodedOutputStream.newInstance(buffer, 0, size);
+    try {
+      writeTimestamp(output, TRACE_END_TIME, endTime, endTimeSize);
+      writeTimestamp(output, TRACE_START_TIME, startTime, startTimeSize);
+      if (durationNs != 0) {
+        output.writeUInt64(TRACE_DURATION_NS, durationNs);
+      }
+      output.writeTag(TRACE_ROOT, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(rootSize);
+      writeNode(output, root);
+      output.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new EncodedTrace(buffer, size);
+  }
+
+  private static byte[] buffer(ThreadLocal<byte[]> pool, int size) {
+    byte[] buffer = pool.get();
+    if (buffer == null || buffer.length < size) {
+      buffer = new byte[Math.max(size, 1024)];
+      if (buffer.length <= MAX_POOLED_BUFFER_SIZE) {
+        pool.set(buffer);
+      }
+    }
+    return buffer;
+  }
+
+  private static int messageFieldSize(int fieldNumber, int messageSize) {
+    return CodedOutputStream.computeTagSize(fieldNumber)
+        + CodedOutputStream.computeUInt32SizeNoTag(messageSize)
+        + messageSize;
+  }
+
+  private static int timestampSize(Instant timestamp) {
+    int size = 0;
+    if (timestamp.getEpochSecond() != 0) {
+      size += CodedOutputStream.computeInt64Size(TIMESTAMP_SECONDS, timestamp.getEpochSecond());
+    }
+    if (timestamp.getNano() != 0) {
+      size += CodedOutputStream.computeInt32Size(TIMESTAMP_NANOS, timestamp.getNano());
+    }
+    return size;
+  }
+
+  private static void writeTimestamp(
+      CodedOutputStream output, int fieldNumber, Instant timestamp, int size) throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(size);
+    if (timestamp.getEpochSecond() != 0) {
+      output.writeInt64(TIMESTAMP_SECONDS, timestamp.getEpochSecond());
+    }
+    if (timestamp.getNano() != 0) {
+      output.writeInt32(TIMESTAMP_NANOS, timestamp.getNano());
+    }
+  }
+
+  /** Compute (and cache) serialized size of the node and all its descendants. */
+  static int nodeSize(@NotNull TraceNode node) {
+    int size = 0;
+    if (node.responseName != null) {
+      size += CodedOutputStream.computeStringSize(NODE_RESPONSE_NAME, node.responseName);
+    } else if (node.index != TraceNode.NO_INDEX) {
+      size += CodedOutputStream.computeUInt32Size(NODE_INDEX, node.index);
+    }
+    if (isNotEmpty(node.type)) {
+      size += CodedOutputStream.computeStringSize(NODE_TYPE, node.type);
+    }
+    if (node.startTime != 0) {
+      size += CodedOutputStream.computeUInt64Size(NODE_START_TIME, node.startTime);
+    }
+    if (node.endTime != 0) {
+      size += CodedOutputStream.computeUInt64Size(NODE_END_TIME, node.endTime);
+    }
+    if (node.errors != null) {
+      for (TraceNode.Error error : node.errors) {
+        size += messageFieldSize(NODE_ERROR, errorSize(error));
+      }
+    }
+    if (node.children != null) {
+      for (TraceNode child : node.children) {
+        size += messageFieldSize(NODE_CHILD, nodeSize(child));
+      }
+    }
+    if (isNotEmpty(node.parentType)) {
+      size += CodedOutputStream.computeStringSize(NODE_PARENT_TYPE, node.parentType);
+    }
+    if (isNotEmpty(node.originalFieldName)) {
+      size += CodedOutputStream.computeStringSize(NODE_ORIGINAL_FIELD_NAME, node.originalFieldName);
+    }
+    node.serializedSize = size;
+    return size;
+  }
+
+  private static void writeNode(CodedOutputStream output, TraceNode node) throws IOException {
+    if (node.responseName != null) {
+      output.writeString(NODE_RESPONSE_NAME, node.responseName);
+    } else if (node.index != TraceNode.NO_INDEX) {
+      output.writeUInt32(NODE_INDEX, node.index);
+    }
+    if (isNotEmpty(node.type)) {
+      output.writeString(NODE_TYPE, node.type);
+    }
+    if (node.startTime != 0) {
+      output.writeUInt64(NODE_START_TIME, node.startTime);
+    }
+    if (node.endTime != 0) {
+      output.writeUInt64(NODE_END_TIME, node.endTime);
+    }
+    if (node.errors != null) {
+      for (TraceNode.Error error : node.errors) {
+        output.writeTag(NODE_ERROR, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(errorSize(error));
+        writeError(output, error);
+      }
+    }
+    if (node.children != null) {
+      for (TraceNode child : node.children) {
+        output.writeTag(NODE_CHILD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(child.serializedSize);
+        writeNode(output, child);
+      }
+    }
+    if (isNotEmpty(node.parentType)) {
+      output.writeString(NODE_PARENT_TYPE, node.parentType);
+    }
+    if (isNotEmpty(node.originalFieldName)) {
+      output.writeString(NODE_ORIGINAL_FIELD_NAME, node.originalFieldName);
+    }
+  }
+
+  private static int errorSize(TraceNode.Error error) {
+    int size = 0;
+    if (isNotEmpty(error.message)) {
+      size += CodedOutputStream.computeStringSize(ERROR_MESSAGE, error.message);
+    }
+    for (SourceLocation location : error.locations) {
+      size += messageFieldSize(ERROR_LOCATION, locationSize(location));
+    }
+    return size;
+  }
+
+  private static void writeError(CodedOutputStream output, TraceNode.Error error)
+      throws IOException {
+    if (isNotEmpty(error.message)) {
+      output.writeString(ERROR_MESSAGE, error.message);
+    }
+    for (SourceLocation location : error.locations) {
+      output.writeTag(ERROR_LOCATION, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(locationSize(location));
+      if (location.getLine() != 0) {
+        output.writeUInt32(LOCATION_LINE, location.getLine());
+      }
+      if (location.getColumn() != 0) {
+        output.writeUInt32(LOCATION_COLUMN, location.getColumn());
+      }
+    }
+  }
+
+  private static int locationSize(SourceLocation location) {
+    int size = 0;
+    if (location.getLine() != 0) {
+      size += CodedOutputStream.computeUInt32Size(LOCATION_LINE, location.getLine());
+    }
+    if (location.getColumn() != 0) {
+      size += CodedOutputStream.computeUInt32Size(LOCATION_COLUMN, location.getColumn());
+    }
+    return size;
+  }
+
+  private static boolean isNotEmpty(String value) {
+    return value != null && !value.isEmpty();
+  }
+
+  /** Output stream writing into a fixed, sufficiently large, array. */
+  private static final class ArraySink extends OutputStream {
+    private final byte[] buffer;
+    private int count;
+
+    private ArraySink(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      System.arraycopy(bytes, offset, buffer, count, length);
+      count += length;
+    }
+  }
+}
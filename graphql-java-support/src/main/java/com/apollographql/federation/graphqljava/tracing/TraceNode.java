@@ -0,0 +1,96 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQLError;
+import graphql.language.SourceLocation;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lightweight mutable counterpart of <code>Reports.Trace.Node</code> that is assembled from the
+ * recorded field data and written directly to the protobuf wire format by {@link TraceEncoder}.
+ */
+final class TraceNode {
+  static final int NO_INDEX = -1;
+
+  // node id, either response name or list index (root node has neither)
+  @Nullable String responseName;
+  int index = NO_INDEX;
+
+  @Nullable String originalFieldName;
+  @Nullable String type;
+  @Nullable String parentType;
+  long startTime;
+  long endTime;
+
+  @Nullable List<Error> errors;
+  @Nullable List<TraceNode> children;
+
+  // serialized size cached by the encoder
+  int serializedSize = -1;
+
+  static TraceNode root() {
+    return new TraceNode();
+  }
+
+  static TraceNode field(@NotNull String responseName) {
+    final TraceNode node = new TraceNode();
+    node.responseName = responseName;
+    return node;
+  }
+
+  static TraceNode index(int index) {
+    final TraceNode node = new TraceNode();
+    node.index = index;
+    return node;
+  }
+
+  boolean isListElement() {
+    return responseName == null && index != NO_INDEX;
+  }
+
+  boolean hasErrors() {
+    return errors != null && !errors.isEmpty();
+  }
+
+  long duration() {
+    return endTime - startTime;
+  }
+
+  void addChild(@NotNull TraceNode child) {
+    if (children == null) {
+      children = new ArrayList<>();
+    }
+    children.add(child);
+  }
+
+  /**
+   * Add error to this node. Errors without locations are reported at the given field location.
+   *
+   * @param error GraphQL error
+   * @param fieldLocation location of the field that produced the error, if any
+   */
+  void addError(@NotNull GraphQLError error, @Nullable SourceLocation fieldLocation) {
+    if (errors == null) {
+      errors = new ArrayList<>(1);
+    }
+    final List<SourceLocation> locations = error.getLocations();
+    if ((locations == null || locations.isEmpty()) && fieldLocation != null) {
+      errors.add(new Error(error.getMessage(), List.of(fieldLocation)));
+    } else {
+      errors.add(new Error(error.getMessage(), locations != null ? locations : List.of()));
+    }
+  }
+
+  /** Trace error together with its source locations. */
+  static final class Error {
+    final @Nullable String message;
+    final List<SourceLocation> locations;
+
+    Error(@Nullable String message, @NotNull List<SourceLocation> locations) {
+      this.message = message;
+      this.locations = locations;
+    }
+  }
+}
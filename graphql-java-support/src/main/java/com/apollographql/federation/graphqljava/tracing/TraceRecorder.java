@@ -0,0 +1,148 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static graphql.schema.GraphQLTypeUtil.simplePrint;
+
+import graphql.GraphQLError;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.ResultPath;
+import graphql.language.SourceLocation;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lock-free recorder of field timings for a single traced request.
+ *
+ * <p>Field fetches (potentially running concurrently on multiple threads) only append immutable
+ * records to an unbounded lock-free queue. The trace node tree is assembled once, after execution
+ * completes, by {@link #assemble()}. Children are ordered by the order in which their records (or
+ * the records of their first descendant) were appended.
+ */
+class TraceRecorder {
+  final ConcurrentLinkedQueue<FieldRecord> fields = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<GraphQLError> rootErrors = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<GraphQLError> resultErrors = new ConcurrentLinkedQueue<>();
+
+  /** Record completed field fetch, start and end times are relative to the trace start time. */
+  void recordField(
+      @NotNull ExecutionStepInfo stepInfo,
+      long startNanos,
+      long endNanos,
+      @NotNull List<GraphQLError> errors,
+      @Nullable SourceLocation fieldLocation) {
+    fields.add(new FieldRecord(stepInfo, startNanos, endNanos, errors, fieldLocation));
+  }
+
+  /** Record request level error, e.g. parse or validation error. */
+  void recordRootError(@NotNull GraphQLError error) {
+    rootErrors.add(error);
+  }
+
+  /**
+   * Record error reported in the execution result. The error is added to the trace only if the
+   * field at its path was not recorded, e.g. because it was resolved by a trivial data fetcher that
+   * was not instrumented.
+   */
+  void recordResultError(@NotNull GraphQLError error) {
+    if (error.getPath() != null && !error.getPath().isEmpty()) {
+      resultErrors.add(error);
+    }
+  }
+
+  /** Assemble the trace node tree from all the records collected so far. */
+  @NotNull
+  TraceNode assemble() {
+    final TraceNode root = TraceNode.root();
+    for (GraphQLError error : rootErrors) {
+      root.addError(error, null);
+    }
+
+    final Map<ResultPath, TraceNode> nodesByPath = new HashMap<>();
+    nodesByPath.put(ResultPath.rootPath(), root);
+    assembleFields(nodesByPath);
+    for (GraphQLError error : resultErrors) {
+      final TraceNode node = getOrCreateNode(nodesByPath, ResultPath.fromList(error.getPath()));
+      // errors of the recorded fields were already captured when their fetch completed
+      if (node.type == null) {
+        node.addError(error, null);
+      }
+    }
+    return root;
+  }
+
+  /** Create nodes for all recorded fields. */
+  void assembleFields(Map<ResultPath, TraceNode> nodesByPath) {
+    for (FieldRecord field : fields) {
+      field.writeTo(getOrCreateNode(nodesByPath, field.stepInfo.getPath()));
+    }
+  }
+
+  /** Get node for the given path, creating it and its missing ancestors if needed. */
+  static TraceNode getOrCreateNode(Map<ResultPath, TraceNode> nodesByPath, ResultPath path) {
+    TraceNode node = nodesByPath.get(path);
+    if (node != null) {
+      return node;
+    }
+
+    final TraceNode parent = getOrCreateNode(nodesByPath, path.getParent());
+    if (path.isListSegment()) {
+      node = TraceNode.index(path.getSegmentIndex());
+    } else {
+      // field ancestors are recorded before their descendants, this is only a fallback in case the
+      // parent record was not captured, e.g. when it was resolved by a trivial data fetcher
+      node = TraceNode.field(path.getSegmentName());
+    }
+    parent.addChild(node);
+    nodesByPath.put(path, node);
+    return node;
+  }
+
+  /** Write field timing and type information to the node. */
+  static void writeField(
+      TraceNode node, ExecutionStepInfo stepInfo, long startNanos, long endNanos) {
+    node.startTime = startNanos;
+    node.endTime = endNanos;
+    node.parentType = simplePrint(stepInfo.getParent().getUnwrappedNonNullType());
+    node.type = stepInfo.simplePrint();
+    node.responseName = stepInfo.getResultKey();
+    node.index = TraceNode.NO_INDEX;
+
+    // set originalFieldName only when a field alias was used
+    final String originalFieldName = stepInfo.getField().getName();
+    if (!originalFieldName.equals(stepInfo.getResultKey())) {
+      node.originalFieldName = originalFieldName;
+    }
+  }
+
+  /** Immutable timing record of a single field fetch. */
+  static final class FieldRecord {
+    final ExecutionStepInfo stepInfo;
+    private final long startNanos;
+    private final long endNanos;
+    private final List<GraphQLError> errors;
+    private final @Nullable SourceLocation fieldLocation;
+
+    private FieldRecord(
+        ExecutionStepInfo stepInfo,
+        long startNanos,
+        long endNanos,
+        List<GraphQLError> errors,
+        @Nullable SourceLocation fieldLocation) {
+      this.stepInfo = stepInfo;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+      this.errors = errors;
+      this.fieldLocation = fieldLocation;
+    }
+
+    void writeTo(TraceNode node) {
+      writeField(node, stepInfo, startNanos, endNanos);
+      for (GraphQLError error : errors) {
+        node.addError(error, fieldLocation);
+      }
+    }
+  }
+}
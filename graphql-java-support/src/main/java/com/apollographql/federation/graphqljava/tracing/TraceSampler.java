@@ -0,0 +1,25 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.ExecutionInput;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides whether a request that asked for a federated trace (see {@link
+ * FederatedTracingInstrumentation.Options#shouldTrace(ExecutionInput)}) is actually traced.
+ * Samplers can only reduce the number of traced requests, they are never consulted for requests
+ * that did not ask for a trace.
+ *
+ * <p>Samplers are invoked concurrently from all request threads and must be thread safe. See
+ * {@link TraceSamplers} for the built-in sampling strategies.
+ */
+@FunctionalInterface
+public interface TraceSampler {
+
+  /**
+   * Decide whether to trace the given request.
+   *
+   * @param executionInput request that asked for a trace
+   * @return true if request should be traced
+   */
+  boolean sample(@NotNull ExecutionInput executionInput);
+}
@@ -0,0 +1,290 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.ExecutionInput;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Built-in {@link TraceSampler} implementations. Samplers can be combined with {@link
+ * #all(TraceSampler...)}, e.g. to sample a fixed fraction of requests while also capping the
+ * number of traces per second.
+ *
+ * <pre>{@code
+ * FederatedTracingInstrumentation.Options options =
+ *     FederatedTracingInstrumentation.Options.newBuilder()
+ *         .sampler(
+ *             TraceSamplers.all(
+ *                 TraceSamplers.rateLimited(50),
+ *                 TraceSamplers.adaptive(TraceSamplers.systemLoad(), 0.7, 0.95)))
+ *         .build();
+ * }</pre>
+ */
+public final class TraceSamplers {
+  // keeps the per operation state bounded when clients send arbitrary operation names
+  static final int MAX_TRACKED_OPERATIONS = 10_000;
+  private static final String OVERFLOW_OPERATION = "\u0000overflow";
+
+  private TraceSamplers() {}
+
+  /** Sample all requests that asked for a trace. */
+  @NotNull
+  public static TraceSampler always() {
+    return executionInput -> true;
+  }
+
+  /**
+   * Sample fixed fraction of requests.
+   *
+   * @param rate sampling rate between 0 (never) and 1 (always)
+   * @return fixed rate sampler
+   */
+  @NotNull
+  public static TraceSampler fixedRate(double rate) {
+    if (!(rate >= 0 && rate <= 1)) {
+      throw new IllegalArgumentException("Sampling rate has to be between 0 and 1, got " + rate);
+    }
+    if (rate == 1) {
+      return always();
+    }
+    return executionInput -> ThreadLocalRandom.current().nextDouble() < rate;
+  }
+
+  /**
+   * Sample at most the given number of requests per second. Requests are admitted using a token
+   * bucket that allows bursts of up to one second worth of traces.
+   *
+   * @param tracesPerSecond maximum number of sampled requests per second
+   * @return rate limiting sampler
+   */
+  @NotNull
+  public static TraceSampler rateLimited(double tracesPerSecond) {
+    return rateLimited(tracesPerSecond, System::nanoTime);
+  }
+
+  static TraceSampler rateLimited(double tracesPerSecond, LongSupplier nanoClock) {
+    if (!(tracesPerSecond > 0)) {
+      throw new IllegalArgumentException(
+          "Traces per second has to be positive, got " + tracesPerSecond);
+    }
+    return new RateLimitedSampler(tracesPerSecond, nanoClock);
+  }
+
+  /**
+   * Sample at most the given number of requests of each operation within every interval, so
+   * frequent operations do not crowd out the rare ones. Operations are distinguished by the
+   * operation name of the {@link ExecutionInput}, all anonymous operations share a single quota.
+   *
+   * @param tracesPerInterval maximum number of sampled requests per operation and interval
+   * @param interval sampling interval
+   * @return per operation sampler
+   */
+  @NotNull
+  public static TraceSampler perOperation(int tracesPerInterval, @NotNull Duration interval) {
+    return perOperation(tracesPerInterval, interval, System::nanoTime);
+  }
+
+  static TraceSampler perOperation(
+      int tracesPerInterval, Duration interval, LongSupplier nanoClock) {
+    if (tracesPerInterval <= 0) {
+      throw new IllegalArgumentException(
+          "Traces per interval has to be positive, got " + tracesPerInterval);
+    }
+    if (interval.isZero() || interval.isNegative()) {
+      throw new IllegalArgumentException("Sampling interval has to be positive, got " + interval);
+    }
+    return new PerOperationSampler(tracesPerInterval, interval.toNanos(), nanoClock);
+  }
+
+  /**
+   * Sample fewer requests as the load increases. All requests are sampled while the load is at or
+   * below the low watermark, none are sampled at or above the high watermark, and the sampling
+   * probability decreases linearly in between.
+   *
+   * @param load current load, e.g. {@link #systemLoad()} or utilization of a request queue
+   * @param lowWatermark load up to which all requests are sampled
+   * @param highWatermark load from which no requests are sampled
+   * @return adaptive sampler
+   */
+  @NotNull
+  public static TraceSampler adaptive(
+      @NotNull DoubleSupplier load, double lowWatermark, double highWatermark) {
+    if (!(lowWatermark < highWatermark)) {
+      throw new IllegalArgumentException(
+          "Low watermark has to be lower than high watermark, got "
+              + lowWatermark
+              + " and "
+              + highWatermark);
+    }
+    return executionInput -> {
+      final double current = load.getAsDouble();
+      if (current <= lowWatermark) {
+        return true;
+      } else if (current >= highWatermark) {
+        return false;
+      }
+      final double rate = (highWatermark - current) / (highWatermark - lowWatermark);
+      return ThreadLocalRandom.current().nextDouble() < rate;
+    };
+  }
+
+  /**
+   * System load average per available processor, refreshed at most once per second. Load is
+   * reported as 0 on platforms where the load average is not available.
+   *
+   * @return load supplier for {@link #adaptive(DoubleSupplier, double, double)}
+   */
+  @NotNull
+  public static DoubleSupplier systemLoad() {
+    final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    return new CachedLoad(
+        () -> Math.max(0, os.getSystemLoadAverage()) / os.getAvailableProcessors(),
+        TimeUnit.SECONDS.toNanos(1),
+        System::nanoTime);
+  }
+
+  /**
+   * Sample requests accepted by all the given samplers. Samplers are evaluated in order and
+   * evaluation stops at the first sampler that rejects the request, so cheap and restrictive
+   * samplers should go first.
+   *
+   * @param samplers samplers to combine
+   * @return combined sampler
+   */
+  @NotNull
+  public static TraceSampler all(@NotNull TraceSampler... samplers) {
+    final TraceSampler[] copy = samplers.clone();
+    return executionInput -> {
+      for (TraceSampler sampler : copy) {
+        if (!sampler.sample(executionInput)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  /**
+   * Lock-free token bucket implemented using the generic cell rate algorithm, i.e. tracking the
+   * theoretical arrival time of the next request instead of the number of tokens.
+   */
+  private static final class RateLimitedSampler implements TraceSampler {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong theoreticalArrivalTime;
+
+    private RateLimitedSampler(double tracesPerSecond, LongSupplier nanoClock) {
+      this.emissionIntervalNanos =
+          Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tracesPerSecond));
+      // allow bursts of up to one second worth of traces (and at least a single trace)
+      this.burstToleranceNanos = Math.max(0, TimeUnit.SECONDS.toNanos(1) - emissionIntervalNanos);
+      this.nanoClock = nanoClock;
+      this.theoreticalArrivalTime = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public boolean sample(@NotNull ExecutionInput executionInput) {
+      final long now = nanoClock.getAsLong();
+      while (true) {
+        final long current = theoreticalArrivalTime.get();
+        final long arrival = current - now > 0 ? current : now;
+        if (arrival - now > burstToleranceNanos) {
+          return false;
+        }
+        if (theoreticalArrivalTime.compareAndSet(current, arrival + emissionIntervalNanos)) {
+          return true;
+        }
+      }
+    }
+  }
+
+  private static final class PerOperationSampler implements TraceSampler {
+    private final int tracesPerInterval;
+    private final long intervalNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private PerOperationSampler(int tracesPerInterval, long intervalNanos, LongSupplier nanoClock) {
+      this.tracesPerInterval = tracesPerInterval;
+      this.intervalNanos = intervalNanos;
+      this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public boolean sample(@NotNull ExecutionInput executionInput) {
+      final String operationName =
+          executionInput.getOperationName() != null ? executionInput.getOperationName() : "";
+      Window window = windows.get(operationName);
+      if (window == null) {
+        final String key =
+            windows.size() < MAX_TRACKED_OPERATIONS ? operationName : OVERFLOW_OPERATION;
+        window = windows.computeIfAbsent(key, (ignored) -> new Window(nanoClock.getAsLong()));
+      }
+      return window.tryAcquire(nanoClock.getAsLong(), tracesPerInterval, intervalNanos);
+    }
+  }
+
+  /** Number of traces sampled within the current interval of a single operation. */
+  private static final class Window {
+    private final AtomicLong start;
+    private final AtomicInteger count = new AtomicInteger();
+
+    private Window(long start) {
+      this.start = new AtomicLong(start);
+    }
+
+    private boolean tryAcquire(long now, int limit, long intervalNanos) {
+      final long windowStart = start.get();
+      if (now - windowStart >= intervalNanos && start.compareAndSet(windowStart, now)) {
+        // only the thread that moved the window resets the counter
+        count.set(0);
+      }
+      while (true) {
+        final int current = count.get();
+        if (current >= limit) {
+          return false;
+        }
+        if (count.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+  }
+
+  /** Caches the load value so that expensive load probes are not executed for every request. */
+  private static final class CachedLoad implements DoubleSupplier {
+    private final DoubleSupplier load;
+    private final long refreshIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong lastRefresh;
+    private volatile double value;
+
+    private CachedLoad(DoubleSupplier load, long refreshIntervalNanos, LongSupplier nanoClock) {
+      this.load = load;
+      this.refreshIntervalNanos = refreshIntervalNanos;
+      this.nanoClock = nanoClock;
+      this.lastRefresh = new AtomicLong(nanoClock.getAsLong());
+      this.value = load.getAsDouble();
+    }
+
+    @Override
+    public double getAsDouble() {
+      final long now = nanoClock.getAsLong();
+      final long last = lastRefresh.get();
+      if (now - last >= refreshIntervalNanos && lastRefresh.compareAndSet(last, now)) {
+        value = load.getAsDouble();
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event recorded by {@link FederatedTracingInstrumentation} for every generated trace. */
+@Name("com.apollographql.federation.TraceSerialization")
+@Label("Federated Trace Serialization")
+@Category("Apollo Federation")
+@Description("Assembly, serialization and base64 encoding of a federated (ftv1) trace")
+final class TraceSerializationEvent extends Event {
+  @Label("Trace Size")
+  @Description("Size of the serialized trace")
+  @DataAmount(DataAmount.BYTES)
+  long traceSize;
+
+  @Label("Encoded Size")
+  @Description("Size of the base64 encoded ftv1 extension")
+  @DataAmount(DataAmount.BYTES)
+  long encodedSize;
+}
@@ -13,6 +13,8 @@ import graphql.language.ObjectValue;
 import graphql.language.StringValue;
 import graphql.language.Value;
 import graphql.schema.Coercing;
+import graphql.schema.GraphQLScalarType;
+import graphql.schema.GraphQLSchema;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -137,4 +139,131 @@ public class AnyTest {
     Assertions.assertEquals(BigInteger.valueOf(123), result.get("intField"));
     Assertions.assertEquals("foo", result.get("stringField"));
   }
+
+  @Test
+  public void verifyOptimizedCoercingCanParseLiteralScalars() {
+    Coercing coercing = _Any.optimizedCoercing();
+
+    Assertions.assertNull(
+        coercing.parseLiteral(
+            NullValue.of(),
+            CoercedVariables.emptyVariables(),
+            GraphQLContext.getDefault(),
+            Locale.US));
+    Assertions.assertEquals(
+        BigDecimal.valueOf(1.5),
+        coercing.parseLiteral(
+            FloatValue.of(1.5),
+            CoercedVariables.emptyVariables(),
+            GraphQLContext.getDefault(),
+            Locale.US));
+    Assertions.assertEquals(
+        BigInteger.valueOf(123),
+        coercing.parseLiteral(
+            IntValue.of(123),
+            CoercedVariables.emptyVariables(),
+            GraphQLContext.getDefault(),
+            Locale.US));
+    Assertions.assertEquals(
+        "MyEnum",
+        coercing.parseLiteral(
+            EnumValue.of("MyEnum"),
+            CoercedVariables.emptyVariables(),
+            GraphQLContext.getDefault(),
+            Locale.US));
+  }
+
+  @Test
+  public void verifyOptimizedCoercingCanParseLiteralObjectValues() {
+    Coercing coercing = _Any.optimizedCoercing();
+
+    List<Value> values = new ArrayList<>();
+    values.add(StringValue.of("one"));
+    values.add(BooleanValue.of(true));
+
+    List<ObjectField> fields = new ArrayList<>();
+    fields.add(new ObjectField("__typename", StringValue.of("Product")));
+    fields.add(new ObjectField("id", IntValue.of(123)));
+    fields.add(new ObjectField("list", new ArrayValue(values)));
+    // last value wins
+    fields.add(new ObjectField("id", IntValue.of(456)));
+
+    Object objectResult =
+        coercing.parseLiteral(
+            new ObjectValue(fields),
+            CoercedVariables.emptyVariables(),
+            GraphQLContext.getDefault(),
+            Locale.US);
+    Assertions.assertTrue(objectResult instanceof Map);
+
+    Map<String, Object> result = (Map<String, Object>) objectResult;
+    Assertions.assertEquals(3, result.size());
+    Assertions.assertEquals("Product", result.get("__typename"));
+    Assertions.assertEquals(BigInteger.valueOf(456), result.get("id"));
+    Assertions.assertEquals(List.of("one", true), result.get("list"));
+  }
+
+  @Test
+  public void verifyOptimizedCoercingSharesObjectKeys() {
+    Coercing coercing = _Any.optimizedCoercing();
+
+    List<ObjectField> fields = new ArrayList<>();
+    fields.add(new ObjectField(new String("__typename"), StringValue.of("Product")));
+    Map<String, Object> first =
+        (Map<String, Object>)
+            coercing.parseLiteral(
+                new ObjectValue(fields),
+                CoercedVariables.emptyVariables(),
+                GraphQLContext.getDefault(),
+                Locale.US);
+    Map<String, Object> second =
+        (Map<String, Object>)
+            coercing.parseLiteral(
+                new ObjectValue(fields),
+                CoercedVariables.emptyVariables(),
+                GraphQLContext.getDefault(),
+                Locale.US);
+
+    Assertions.assertSame(
+        first.keySet().iterator().next(), second.keySet().iterator().next(), "keys are shared");
+  }
+
+  @Test
+  public void verifyOptimizedCoercingSharesOnlyKeyFieldNames() {
+    GraphQLSchema schema =
+        Federation.transform(
+                "type Product @key(fields: \"id variation { sku }\") {"
+                    + " id: ID! variation: Variation }\n"
+                    + "type Variation { sku: String }")
+            .coercingForAny(_Any.optimizedCoercing())
+            .fetchEntities(env -> null)
+            .resolveEntityType(env -> null)
+            .build();
+    Coercing coercing = ((GraphQLScalarType) schema.getType(_Any.typeName)).getCoercing();
+
+    List<String> first = keys(coercing);
+    List<String> second = keys(coercing);
+
+    Assertions.assertSame(first.get(0), second.get(0), "key field names are shared");
+    Assertions.assertNotSame(first.get(1), second.get(1), "client provided keys are not shared");
+    Assertions.assertNotSame(
+        first.get(0),
+        keys(_Any.optimizedCoercing()).get(0),
+        "schema key field names do not leak into the default optimized coercing");
+  }
+
+  /** Parse a representation with freshly allocated keys, so only shared keys are the same. */
+  private static List<String> keys(Coercing coercing) {
+    List<ObjectField> fields = new ArrayList<>();
+    fields.add(new ObjectField(new String("sku"), StringValue.of("A-1")));
+    fields.add(new ObjectField(new String("bogus"), StringValue.of("B-1")));
+    Map<String, Object> result =
+        (Map<String, Object>)
+            coercing.parseLiteral(
+                new ObjectValue(fields),
+                CoercedVariables.emptyVariables(),
+                GraphQLContext.getDefault(),
+                Locale.US);
+    return new ArrayList<>(result.keySet());
+  }
 }
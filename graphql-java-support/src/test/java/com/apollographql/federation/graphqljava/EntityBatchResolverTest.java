@@ -0,0 +1,245 @@
+package com.apollographql.federation.graphqljava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.TypeResolver;
+import graphql.schema.idl.errors.SchemaProblem;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class EntityBatchResolverTest {
+  private static final String SDL =
+      "type Product @key(fields: \"id\") { id: ID! name: String }\n"
+          + "type User @key(fields: \"id\") { id: ID! name: String }";
+
+  private static final String QUERY =
+      "{ _entities(representations: ["
+          + "{__typename: \"Product\", id: \"1\"}, "
+          + "{__typename: \"User\", id: \"1\"}, "
+          + "{__typename: \"Product\", id: \"2\"}, "
+          + "{__typename: \"Product\", id: \"1\"}, "
+          + "{__typename: \"Product\", id: \"404\"}"
+          + "]) { ... on Product { name } ... on User { name } } }";
+
+  private static final TypeResolver typeResolver =
+      env -> env.getSchema().getObjectType((String) ((Map<?, ?>) env.getObject()).get("type"));
+
+  @Test
+  public void resolveEntities_groupsByTypename_preservesOrder() {
+    final AtomicInteger productCalls = new AtomicInteger();
+    final List<Object> productKeys = new ArrayList<>();
+
+    final GraphQLSchema schema =
+        Federation.transform(SDL)
+            .resolveEntityType(typeResolver)
+            .resolveEntities(
+                "Product",
+                representation -> representation.get("id"),
+                (keys, env) -> {
+                  productCalls.incrementAndGet();
+                  productKeys.addAll(keys);
+                  final Map<Object, Object> products = new HashMap<>();
+                  for (Object key : keys) {
+                    if (!"404".equals(key)) {
+                      products.put(key, entity("Product", "product-" + key));
+                    }
+                  }
+                  return products;
+                })
+            .resolveEntities(
+                "User",
+                representation -> representation.get("id"),
+                (keys, env) -> Map.of(keys.get(0), entity("User", "user-" + keys.get(0))))
+            .build();
+
+    final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+    assertEquals(0, result.getErrors().size(), "No errors");
+    assertEquals(1, productCalls.get());
+    assertEquals(List.of("1", "2", "404"), productKeys);
+
+    final List<Map<String, Object>> entities = entities(result);
+    assertEquals(5, entities.size());
+    assertEquals("product-1", entities.get(0).get("name"));
+    assertEquals("user-1", entities.get(1).get("name"));
+    assertEquals("product-2", entities.get(2).get("name"));
+    assertEquals("product-1", entities.get(3).get("name"));
+    assertNull(entities.get(4));
+  }
+
+  @Test
+  public void resolveEntities_decodedKeys() {
+    final List<EntityKey> productKeys = new ArrayList<>();
+    final GraphQLSchema schema =
+        Federation.transform(SDL)
+            .resolveEntityType(typeResolver)
+            .resolveEntities(
+                "Product",
+                (List<EntityKey> keys, DataFetchingEnvironment env) -> {
+                  productKeys.addAll(keys);
+                  final Map<EntityKey, Object> products = new HashMap<>();
+                  for (EntityKey key : keys) {
+                    products.put(key, entity("Product", "product-" + key.get(0)));
+                  }
+                  return products;
+                })
+            .resolveEntities(
+                "User",
+                (List<EntityKey> keys, DataFetchingEnvironment env) ->
+                    Map.of(keys.get(0), entity("User", "user-" + keys.get(0).get("id"))))
+            .build();
+
+    final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+    assertEquals(0, result.getErrors().size(), "No errors");
+    assertEquals(3, productKeys.size());
+    assertEquals("Product", productKeys.get(0).getTypeName());
+    assertEquals("1", productKeys.get(0).get("id"));
+
+    final List<Map<String, Object>> entities = entities(result);
+    assertEquals("product-1", entities.get(0).get("name"));
+    assertEquals("user-1", entities.get(1).get("name"));
+    assertEquals("product-1", entities.get(3).get("name"));
+    assertEquals("product-404", entities.get(4).get("name"));
+  }
+
+  @Test
+  public void resolveEntities_failingBatch_reportsErrorPerRepresentation() {
+    final GraphQLSchema schema =
+        Federation.transform(SDL)
+            .resolveEntityType(typeResolver)
+            .resolveEntities(
+                "Product",
+                representation -> representation.get("id"),
+                (keys, env) -> {
+                  throw new IllegalStateException("database unavailable");
+                })
+            .build();
+
+    final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+    final List<GraphQLError> errors = result.getErrors();
+    // 4 product representations failed to resolve and there is no User resolver
+    assertEquals(5, errors.size());
+    assertEquals(List.of("_entities", 1), errors.get(0).getPath());
+    assertEquals(List.of("_entities", 0), errors.get(1).getPath());
+    assertEquals(
+        "Failed to resolve Product entities: database unavailable", errors.get(1).getMessage());
+
+    final List<Map<String, Object>> entities = entities(result);
+    assertEquals(5, entities.size());
+    entities.forEach(entity -> assertNull(entity));
+  }
+
+  @Test
+  public void resolveEntitiesConcurrently_dispatchesTypesInParallel() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    // each resolver waits for the other one to start, so this only completes when run in parallel
+    // and a failed wait is reported as a resolution error
+    final CountDownLatch started = new CountDownLatch(2);
+    try {
+      final GraphQLSchema schema =
+          Federation.transform(SDL)
+              .resolveEntityType(typeResolver)
+              .resolveEntitiesConcurrently(executor)
+              .resolveEntities(
+                  "Product",
+                  representation -> representation.get("id"),
+                  (keys, env) -> {
+                    started.countDown();
+                    assertTrue(started.await(5, TimeUnit.SECONDS), "Resolvers run in parallel");
+                    final Map<Object, Object> products = new HashMap<>();
+                    keys.forEach(key -> products.put(key, entity("Product", "product-" + key)));
+                    return products;
+                  })
+              .resolveEntities(
+                  "User",
+                  representation -> representation.get("id"),
+                  (keys, env) -> {
+                    started.countDown();
+                    assertTrue(started.await(5, TimeUnit.SECONDS), "Resolvers run in parallel");
+                    return Map.of(keys.get(0), entity("User", "user-" + keys.get(0)));
+                  })
+              .build();
+
+      final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+      assertEquals(0, result.getErrors().size(), "No errors");
+      assertEquals(0, started.getCount());
+
+      final List<Map<String, Object>> entities = entities(result);
+      assertEquals("product-1", entities.get(0).get("name"));
+      assertEquals("user-1", entities.get(1).get("name"));
+      assertEquals("product-404", entities.get(4).get("name"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void resolveEntitiesConcurrently_failingBatch_reportsErrorPerRepresentation() {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final GraphQLSchema schema =
+          Federation.transform(SDL)
+              .resolveEntityType(typeResolver)
+              .resolveEntitiesConcurrently(executor)
+              .resolveEntities(
+                  "Product",
+                  representation -> representation.get("id"),
+                  (keys, env) -> {
+                    throw new AssertionError("invariant violated");
+                  })
+              .resolveEntities(
+                  "User",
+                  representation -> representation.get("id"),
+                  (keys, env) -> Map.of(keys.get(0), entity("User", "user-" + keys.get(0))))
+              .build();
+
+      final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+      assertEquals(4, result.getErrors().size());
+      assertEquals(
+          "Failed to resolve Product entities: invariant violated",
+          result.getErrors().get(0).getMessage());
+      assertEquals("user-1", entities(result).get(1).get("name"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void resolveEntities_unknownEntityType_throwsException() {
+    assertThrows(
+        SchemaProblem.class,
+        () ->
+            Federation.transform(SDL)
+                .resolveEntityType(typeResolver)
+                .resolveEntities(
+                    "Review", representation -> representation, (keys, env) -> Map.of())
+                .build());
+  }
+
+  private static Map<String, Object> entity(String type, String name) {
+    final Map<String, Object> entity = new HashMap<>();
+    entity.put("type", type);
+    entity.put("name", name);
+    return entity;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Object>> entities(ExecutionResult result) {
+    final Map<String, Object> data = result.getData();
+    return (List<Map<String, Object>>) data.get("_entities");
+  }
+}
@@ -0,0 +1,351 @@
+package com.apollographql.federation.graphqljava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.apollographql.federation.graphqljava.caching.CacheTagIndex;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherResult;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.TypeResolver;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class EntityCacheTest {
+  private static final String SDL =
+      "enum CacheControlScope { PUBLIC PRIVATE }\n"
+          + "directive @cacheControl(maxAge: Int scope: CacheControlScope inheritMaxAge: Boolean)"
+          + " on FIELD_DEFINITION | OBJECT | INTERFACE | UNION\n"
+          + "type Product @key(fields: \"id\") @cacheControl(maxAge: 60) { id: ID! name: String }\n"
+          + "type User @key(fields: \"id\") { id: ID! name: String }";
+
+  private static final String QUERY =
+      "{ _entities(representations: ["
+          + "{__typename: \"Product\", id: \"1\"}, "
+          + "{__typename: \"User\", id: \"1\"}, "
+          + "{__typename: \"Product\", id: \"2\"}, "
+          + "{__typename: \"Product\", id: \"1\"}"
+          + "]) { ... on Product { name } ... on User { name } } }";
+
+  private static final TypeResolver typeResolver =
+      env -> env.getSchema().getObjectType((String) ((Map<?, ?>) env.getObject()).get("type"));
+
+  @Test
+  public void cacheEntities_resolvesOnlyMisses() {
+    final List<Object> productKeys = new ArrayList<>();
+    final AtomicInteger userCalls = new AtomicInteger();
+    final EntityCache cache = EntityCache.newBuilder().build();
+    final GraphQLSchema schema =
+        Federation.transform(SDL)
+            .resolveEntityType(typeResolver)
+            .resolveEntities(
+                "Product",
+                representation -> representation.get("id"),
+                (keys, env) -> {
+                  productKeys.addAll(keys);
+                  final Map<Object, Object> products = new HashMap<>();
+                  keys.forEach(key -> products.put(key, entity("Product", "product-" + key)));
+                  return products;
+                })
+            .resolveEntities(
+                "User",
+                representation -> representation.get("id"),
+                (keys, env) -> {
+                  userCalls.incrementAndGet();
+                  return Map.of(keys.get(0), entity("User", "user-" + keys.get(0)));
+                })
+            .cacheEntities(cache)
+            .build();
+
+    for (int i = 0; i < 2; i++) {
+      final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+      assertEquals(0, result.getErrors().size(), "No errors");
+      final List<Map<String, Object>> entities = entities(result);
+      assertEquals("product-1", entities.get(0).get("name"));
+      assertEquals("user-1", entities.get(1).get("name"));
+      assertEquals("product-2", entities.get(2).get("name"));
+      assertEquals("product-1", entities.get(3).get("name"));
+    }
+
+    // products are resolved once, users have no max age and are never cached
+    assertEquals(List.of("1", "2"), productKeys);
+    assertEquals(2, userCalls.get());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void cacheEntities_remapsErrorsAndExpiresEntities() {
+    final AtomicLong millis = new AtomicLong(1_000_000);
+    final EntityCache cache = EntityCache.newBuilder().clock(new TestClock(millis)).build();
+    final List<List<Map<String, Object>>> fetched = new ArrayList<>();
+    final GraphQLSchema schema =
+        Federation.transform(SDL)
+            .resolveEntityType(typeResolver)
+            .fetchEntities(
+                env -> {
+                  final List<Map<String, Object>> representations =
+                      env.getArgument(_Entity.argumentName);
+                  fetched.add(representations);
+                  final List<Object> entities = new ArrayList<>();
+                  final List<GraphQLError> errors = new ArrayList<>();
+                  for (int i = 0; i < representations.size(); i++) {
+                    final Object id = representations.get(i).get("id");
+                    if ("404".equals(id)) {
+                      entities.add(null);
+                      errors.add(
+                          GraphqlErrorBuilder.newError(env)
+                              .path(env.getExecutionStepInfo().getPath().segment(i))
+                              .message("Product 404 not found")
+                              .build());
+                    } else {
+                      entities.add(entity("Product", "product-" + id));
+                    }
+                  }
+                  return DataFetcherResult.newResult().data(entities).errors(errors).build();
+                })
+            .cacheEntities(cache)
+            .build();
+
+    FederatedSchemaVerifier.execute(schema, "{ _entities(" + products("1") + ") { __typename } }");
+    final ExecutionResult result =
+        FederatedSchemaVerifier.execute(
+            schema, "{ _entities(" + products("1", "404") + ") { ... on Product { name } } }");
+    assertEquals(1, fetched.get(1).size());
+    assertEquals(1, result.getErrors().size());
+    assertEquals(List.of("_entities", 1), result.getErrors().get(0).getPath());
+    assertEquals("product-1", entities(result).get(0).get("name"));
+    assertNull(entities(result).get(1));
+
+    millis.addAndGet(60_000);
+    FederatedSchemaVerifier.execute(schema, "{ _entities(" + products("1") + ") { __typename } }");
+    assertEquals(3, fetched.size());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void cacheEntities_invalidatesTags() {
+    final List<Object> productKeys = new ArrayList<>();
+    final CacheTagIndex tagIndex = new CacheTagIndex();
+    final EntityCache cache = EntityCache.newBuilder().maximumSize(2).tagIndex(tagIndex).build();
+    final GraphQLSchema schema =
+        Federation.transform(
+                "directive @cacheTag(format: String!) repeatable on FIELD_DEFINITION | OBJECT\n"
+                    + SDL.replace(
+                        "@cacheControl(maxAge: 60)",
+                        "@cacheControl(maxAge: 60) @cacheTag(format: \"products\")"
+                            + " @cacheTag(format: \"product-{$key.id}\")"))
+            .resolveEntityType(typeResolver)
+            .resolveEntities(
+                "Product",
+                representation -> representation.get("id"),
+                (keys, env) -> {
+                  productKeys.addAll(keys);
+                  final Map<Object, Object> products = new HashMap<>();
+                  keys.forEach(key -> products.put(key, entity("Product", "product-" + key)));
+                  return products;
+                })
+            .cacheEntities(cache)
+            .build();
+
+    final String query = "{ _entities(" + products("1", "2") + ") { __typename } }";
+    FederatedSchemaVerifier.execute(schema, query);
+    assertEquals(3, tagIndex.size());
+
+    assertEquals(1, tagIndex.invalidateTags(List.of("product-1")));
+    assertEquals(1, cache.size());
+    assertEquals(2, tagIndex.size());
+    FederatedSchemaVerifier.execute(schema, query);
+    assertEquals(List.of("1", "2", "1"), productKeys);
+
+    assertEquals(2, tagIndex.invalidateTags(List.of("products")));
+    assertEquals(0, cache.size());
+    assertEquals(0, tagIndex.size());
+
+    // evicted entities are removed from the index
+    FederatedSchemaVerifier.execute(
+        schema, "{ _entities(" + products("1", "2", "3") + ") { __typename } }");
+    assertEquals(2, cache.size());
+    assertEquals(3, tagIndex.size());
+    cache.invalidateAll();
+    assertEquals(0, tagIndex.size());
+  }
+
+  @Test
+  public void cacheEntities_skipsEntitiesInvalidatedWhileResolving() {
+    final CacheTagIndex tagIndex = new CacheTagIndex();
+    final EntityCache cache = EntityCache.newBuilder().tagIndex(tagIndex).build();
+    final GraphQLSchema schema =
+        Federation.transform(
+                "directive @cacheTag(format: String!) repeatable on FIELD_DEFINITION | OBJECT\n"
+                    + SDL.replace(
+                        "@cacheControl(maxAge: 60)",
+                        "@cacheControl(maxAge: 60) @cacheTag(format: \"product-{$key.id}\")"))
+            .resolveEntityType(typeResolver)
+            .resolveEntities(
+                "Product",
+                representation -> representation.get("id"),
+                (keys, env) -> {
+                  // product 1 is updated after it was resolved, but before it is cached
+                  tagIndex.invalidateTags(List.of("product-1"));
+                  final Map<Object, Object> products = new HashMap<>();
+                  keys.forEach(key -> products.put(key, entity("Product", "product-" + key)));
+                  return products;
+                })
+            .cacheEntities(cache)
+            .build();
+
+    FederatedSchemaVerifier.execute(
+        schema, "{ _entities(" + products("1", "2") + ") { __typename } }");
+    assertEquals(1, cache.size());
+    assertEquals(1, tagIndex.size());
+  }
+
+  @Test
+  public void cacheEntities_skipsTypesWithRequiresFields() {
+    final EntityCache cache = EntityCache.newBuilder().build();
+    final List<Object> prices = new ArrayList<>();
+    final GraphQLSchema schema =
+        Federation.transform(
+                SDL.replace(
+                    "@cacheControl(maxAge: 60) { id: ID! name: String }",
+                    "@cacheControl(maxAge: 60) { id: ID! name: String price: Int @external"
+                        + " tax: Int @requires(fields: \"price\") }"))
+            .resolveEntityType(typeResolver)
+            .fetchEntities(
+                env -> {
+                  final List<Map<String, Object>> representations =
+                      env.getArgument(_Entity.argumentName);
+                  final List<Object> entities = new ArrayList<>();
+                  for (Map<String, Object> representation : representations) {
+                    prices.add(representation.get("price"));
+                    entities.add(entity("Product", "product-" + representation.get("id")));
+                  }
+                  return entities;
+                })
+            .cacheEntities(cache)
+            .build();
+
+    // same key with different required fields has to be resolved again
+    for (String price : List.of("10", "20")) {
+      FederatedSchemaVerifier.execute(
+          schema,
+          "{ _entities(representations: [{__typename: \"Product\", id: \"1\", price: \""
+              + price
+              + "\"}]) { __typename } }");
+    }
+    assertEquals(List.of("10", "20"), prices);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void cacheEntities_skipsTypesWithPrivateFields() {
+    final EntityCache cache = EntityCache.newBuilder().build();
+    final AtomicInteger fetches = new AtomicInteger();
+    final GraphQLSchema schema =
+        Federation.transform(
+                SDL.replace(
+                    "@cacheControl(maxAge: 60) { id: ID! name: String }",
+                    "@cacheControl(maxAge: 60) { id: ID! name: String"
+                        + " email: String @cacheControl(scope: PRIVATE) }"))
+            .resolveEntityType(typeResolver)
+            .fetchEntities(
+                env -> {
+                  fetches.incrementAndGet();
+                  return List.of(entity("Product", "product-1"));
+                })
+            .cacheEntities(cache)
+            .build();
+
+    final String query = "{ _entities(" + products("1") + ") { __typename } }";
+    for (int i = 0; i < 2; i++) {
+      FederatedSchemaVerifier.execute(schema, query);
+    }
+    assertEquals(2, fetches.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void cacheEntities_capsMaxAgeAtFieldMaxAge() {
+    final AtomicLong millis = new AtomicLong(1_000_000);
+    final EntityCache cache = EntityCache.newBuilder().clock(new TestClock(millis)).build();
+    final AtomicInteger fetches = new AtomicInteger();
+    final GraphQLSchema schema =
+        Federation.transform(
+                SDL.replace(
+                    "@cacheControl(maxAge: 60) { id: ID! name: String }",
+                    "@cacheControl(maxAge: 60) { id: ID! name: String @cacheControl(maxAge: 10) }"))
+            .resolveEntityType(typeResolver)
+            .fetchEntities(
+                env -> {
+                  fetches.incrementAndGet();
+                  return List.of(entity("Product", "product-1"));
+                })
+            .cacheEntities(cache)
+            .build();
+
+    final String query = "{ _entities(" + products("1") + ") { __typename } }";
+    FederatedSchemaVerifier.execute(schema, query);
+    millis.addAndGet(9_999);
+    FederatedSchemaVerifier.execute(schema, query);
+    assertEquals(1, fetches.get());
+
+    // entity expires after the max age of its name, not of its type
+    millis.addAndGet(1);
+    FederatedSchemaVerifier.execute(schema, query);
+    assertEquals(2, fetches.get());
+  }
+
+  private static final class TestClock extends Clock {
+    private final AtomicLong millis;
+
+    private TestClock(AtomicLong millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis.get());
+    }
+  }
+
+  private static String products(String... ids) {
+    final StringBuilder representations = new StringBuilder("representations: [");
+    for (String id : ids) {
+      representations.append("{__typename: \"Product\", id: \"").append(id).append("\"} ");
+    }
+    return representations.append("]").toString();
+  }
+
+  private static Map<String, Object> entity(String type, String name) {
+    final Map<String, Object> entity = new HashMap<>();
+    entity.put("type", type);
+    entity.put("name", name);
+    return entity;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Object>> entities(ExecutionResult result) {
+    return (List<Map<String, Object>>) result.<Map<String, Object>>getData().get("_entities");
+  }
+}
@@ -0,0 +1,132 @@
+package com.apollographql.federation.graphqljava;
+
+import static com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation.FEDERATED_TRACING_HEADER_NAME;
+import static com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation.FEDERATED_TRACING_HEADER_VALUE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+class FlightRecorderEventsTest {
+  private static final String SDL =
+      "type Query { product: Product }\n"
+          + "type Product @key(fields: \"id\") { id: ID! name: String }";
+
+  private static final String QUERY =
+      "{ _entities(representations: ["
+          + "{__typename: \"Product\", id: \"1\"}, "
+          + "{__typename: \"Product\", id: \"2\"}, "
+          + "{__typename: \"Product\", id: \"1\"}"
+          + "]) { ... on Product { name } } }";
+
+  @Test
+  public void recordsFederationEvents() throws Exception {
+    final List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable("com.apollographql.federation.SchemaBuild");
+      recording.enable("com.apollographql.federation.EntitiesResolution");
+      recording.enable("com.apollographql.federation.ServiceSdlPrint");
+      recording.start();
+
+      final GraphQLSchema schema =
+          Federation.transform(SDL)
+              .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+              .resolveEntities(
+                  "Product",
+                  representation -> representation.get("id"),
+                  (keys, env) -> Map.of("1", Map.of("name", "federation")))
+              .build();
+      final ExecutionResult result = FederatedSchemaVerifier.execute(schema, QUERY);
+      assertTrue(result.getErrors().isEmpty());
+
+      events = stop(recording);
+    }
+
+    final RecordedEvent schemaBuild = single(events, "com.apollographql.federation.SchemaBuild");
+    assertFalse(schemaBuild.getBoolean("federation2"));
+    assertEquals(1, schemaBuild.getInt("entityTypeCount"));
+    assertTrue(schemaBuild.getInt("typeCount") > 0);
+
+    final RecordedEvent sdlPrint = single(events, "com.apollographql.federation.ServiceSdlPrint");
+    assertFalse(sdlPrint.getBoolean("federation2"));
+    assertTrue(sdlPrint.getLong("sdlLength") > 0);
+
+    final RecordedEvent entities =
+        single(events, "com.apollographql.federation.EntitiesResolution");
+    assertEquals("Product", entities.getString("typeName"));
+    assertEquals(3, entities.getInt("representations"));
+    assertEquals(2, entities.getInt("distinctKeys"));
+    assertEquals(1, entities.getInt("resolved"));
+    assertFalse(entities.getBoolean("failed"));
+  }
+
+  @Test
+  public void recordsTraceSerializationEvents() throws Exception {
+    final GraphQLSchema schema =
+        Federation.transform(SDL)
+            .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+            .fetchEntities(env -> List.of())
+            .build();
+    final GraphQL graphQL =
+        GraphQL.newGraphQL(schema).instrumentation(new FederatedTracingInstrumentation()).build();
+
+    final List<RecordedEvent> events;
+    final ExecutionResult result;
+    try (Recording recording = new Recording()) {
+      recording.enable("com.apollographql.federation.TraceSerialization");
+      recording.start();
+
+      result =
+          graphQL.execute(
+              ExecutionInput.newExecutionInput("{ _service { sdl } }")
+                  .graphQLContext(
+                      Map.of(FEDERATED_TRACING_HEADER_NAME, FEDERATED_TRACING_HEADER_VALUE))
+                  .build());
+      assertTrue(result.getErrors().isEmpty());
+
+      events = stop(recording);
+    }
+
+    final RecordedEvent serialization =
+        single(events, "com.apollographql.federation.TraceSerialization");
+    final String ftv1 = result.getExtensions().get("ftv1").toString();
+    assertEquals(Base64.getDecoder().decode(ftv1).length, serialization.getLong("traceSize"));
+    assertEquals(ftv1.length(), serialization.getLong("encodedSize"));
+  }
+
+  private static List<RecordedEvent> stop(Recording recording) throws IOException {
+    recording.stop();
+    final Path dump = Files.createTempFile("federation", ".jfr");
+    try {
+      recording.dump(dump);
+      return RecordingFile.readAllEvents(dump);
+    } finally {
+      Files.delete(dump);
+    }
+  }
+
+  private static RecordedEvent single(List<RecordedEvent> events, String name) {
+    final List<RecordedEvent> matching =
+        events.stream()
+            .filter(event -> name.equals(event.getEventType().getName()))
+            .collect(Collectors.toList());
+    assertEquals(1, matching.size(), name);
+    return matching.get(0);
+  }
+}
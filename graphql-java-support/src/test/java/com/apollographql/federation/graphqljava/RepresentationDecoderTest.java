@@ -0,0 +1,77 @@
+package com.apollographql.federation.graphqljava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RepresentationDecoderTest {
+  private RepresentationDecoder productDecoder;
+
+  @BeforeEach
+  void setup() {
+    final String sdl = FileUtils.readResource("schemas/fedV2/schema.graphql");
+    final SchemaTransformer transformer =
+        Federation.transform(sdl).resolveEntityType(env -> null).fetchEntities(env -> null);
+    transformer.build();
+
+    productDecoder = transformer.getRepresentationDecoders().get("Product");
+    assertNotNull(productDecoder);
+  }
+
+  @Test
+  public void decode_simpleKey() {
+    final EntityKey key = productDecoder.decode(Map.of("__typename", "Product", "id", "1"));
+    assertNotNull(key);
+    assertEquals("Product", key.getTypeName());
+    assertEquals("id", key.getFieldSet());
+    assertEquals(1, key.size());
+    assertEquals("1", key.get("id"));
+    assertEquals("Product{id=1}", key.toString());
+  }
+
+  @Test
+  public void decode_compositeKey() {
+    final EntityKey key =
+        productDecoder.decode(Map.of("__typename", "Product", "sku", "fed", "package", "jvm"));
+    assertNotNull(key);
+    assertEquals("sku package", key.getFieldSet());
+    assertEquals(List.of("sku", "package"), key.getPaths());
+    assertEquals("fed", key.get(0));
+    assertEquals("jvm", key.get(1));
+  }
+
+  @Test
+  public void decode_nestedKey() {
+    final EntityKey key =
+        productDecoder.decode(
+            Map.of("__typename", "Product", "sku", "fed", "variation", Map.of("id", "v1")));
+    assertNotNull(key);
+    assertEquals("sku variation { id }", key.getFieldSet());
+    assertEquals("v1", key.get("variation.id"));
+    assertNull(key.get("variation"));
+  }
+
+  @Test
+  public void decode_equalRepresentations_equalKeys() {
+    final EntityKey first = productDecoder.decode(Map.of("__typename", "Product", "id", "1"));
+    final EntityKey second =
+        productDecoder.decode(Map.of("__typename", "Product", "id", "1", "extra", "ignored"));
+    final EntityKey third = productDecoder.decode(Map.of("__typename", "Product", "id", "2"));
+
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    assertNotEquals(first, third);
+  }
+
+  @Test
+  public void decode_missingKeyFields_returnsNull() {
+    assertNull(productDecoder.decode(Map.of("__typename", "Product", "sku", "fed")));
+    assertNull(productDecoder.decode("Product"));
+  }
+}
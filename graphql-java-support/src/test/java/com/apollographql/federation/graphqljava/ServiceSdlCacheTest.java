@@ -0,0 +1,170 @@
+package com.apollographql.federation.graphqljava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graphql.ExecutionResult;
+import graphql.schema.GraphQLSchema;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+public class ServiceSdlCacheTest {
+
+  @Test
+  public void matchesServiceSdlQuery() {
+    final ServiceSdlCache cache = ServiceSdlCache.of("type Query { hello: String }");
+
+    assertTrue(cache.matches("{_service{sdl}}"));
+    assertTrue(cache.matches("{ _service { sdl } }"));
+    assertTrue(cache.matches("query { _service { sdl } }"));
+    assertTrue(
+        cache.matches(
+            "# router introspection\n"
+                + "query SubgraphIntrospectQuery {\n  _service {\n    sdl\n  }\n}"));
+
+    assertFalse(cache.matches(null));
+    assertFalse(cache.matches("{_service{sdl} other}"));
+    assertFalse(cache.matches("{_service{sdl}}{_service{sdl}}"));
+    assertFalse(cache.matches("mutation{_service{sdl}}"));
+    assertFalse(cache.matches("query($a: Int){_service{sdl}}"));
+    assertFalse(cache.matches("{_service{ ... on _Service { sdl } }}"));
+    // whitespace separates names, it is never removed from within a token
+    assertFalse(cache.matches("{ _ser vice { sdl } }"));
+    assertFalse(cache.matches("{ _service { s dl } }"));
+    assertFalse(cache.matches("queryFoo{_service{sdl}}"));
+    assertFalse(cache.matches("query Foo Bar {_service{sdl}}"));
+    assertFalse(cache.matches("query { {_service{sdl}}"));
+    assertTrue(cache.matches("query\nFoo,{_service # comment\n{sdl}}"));
+  }
+
+  @Test
+  public void precomputesResponses() throws IOException {
+    final ServiceSdlCache cache = ServiceSdlCache.of("type Query {\n  \"\\\" hello\"\n}");
+
+    final String expectedJson =
+        "{\"data\":{\"_service\":{\"sdl\":\"type Query {\\n  \\\"\\\\\\\" hello\\\"\\n}\"}}}";
+    assertEquals(expectedJson, utf8(cache.getResponseBytes()));
+
+    final ByteBuffer gzipped = cache.getGzippedResponseBytes();
+    final byte[] compressed = new byte[gzipped.remaining()];
+    gzipped.get(compressed);
+    try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      assertEquals(expectedJson, new String(gunzip.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    final ExecutionResult result = cache.getExecutionResult();
+    assertEquals(
+        Map.of("_service", Map.of("sdl", cache.getSdl())), result.getData(), "cached result");
+  }
+
+  @Test
+  public void etagIsStableForSameSdl() {
+    final ServiceSdlCache first = ServiceSdlCache.of("type Query { hello: String }");
+    final ServiceSdlCache second = ServiceSdlCache.of("type Query { hello: String }");
+    final ServiceSdlCache other = ServiceSdlCache.of("type Query { goodbye: String }");
+
+    assertTrue(first.getETag().matches("\"[0-9a-f]{64}\""), first.getETag());
+    assertEquals(first.getETag(), second.getETag());
+    assertNotEquals(first.getETag(), other.getETag());
+  }
+
+  @Test
+  public void transformerExposesServiceSdlCache() {
+    final String sdl = FileUtils.readResource("schemas/fedV2/schema.graphql");
+    final SchemaTransformer transformer =
+        Federation.transform(sdl)
+            .resolveEntityType(env -> null)
+            .fetchEntities(environment -> null);
+    assertNull(transformer.getServiceSdlCache());
+
+    final GraphQLSchema schema = transformer.build();
+    final ServiceSdlCache cache = transformer.getServiceSdlCache();
+    assertNotNull(cache);
+
+    final ExecutionResult result = FederatedSchemaVerifier.execute(schema, "{_service{sdl}}");
+    assertTrue(result.getErrors().isEmpty());
+    final Map<String, Map<String, Object>> data = result.getData();
+    assertEquals(cache.getSdl(), data.get("_service").get("sdl"));
+  }
+
+  @Test
+  public void lazyCacheGeneratesSdlOnFirstAccess() {
+    final AtomicInteger invocations = new AtomicInteger();
+    final ServiceSdlCache cache =
+        ServiceSdlCache.lazy(
+            () -> {
+              invocations.incrementAndGet();
+              return "type Query { hello: String }";
+            });
+    assertFalse(cache.isComputed());
+    assertEquals(0, invocations.get());
+
+    assertEquals("type Query { hello: String }", cache.getSdl());
+    assertNotNull(cache.getETag());
+    assertTrue(cache.isComputed());
+    assertEquals(1, invocations.get());
+  }
+
+  @Test
+  public void transformerGeneratesSdlLazily() {
+    final String sdl = FileUtils.readResource("schemas/fedV2/schema.graphql");
+    final String eagerSdl =
+        FederatedSchemaVerifier.execute(
+                Federation.transform(sdl)
+                    .resolveEntityType(env -> null)
+                    .fetchEntities(environment -> null)
+                    .build(),
+                "{_service{sdl}}")
+            .<Map<String, Map<String, Object>>>getData()
+            .get("_service")
+            .get("sdl")
+            .toString();
+
+    final SchemaTransformer transformer =
+        Federation.transform(sdl)
+            .resolveEntityType(env -> null)
+            .fetchEntities(environment -> null)
+            .lazyServiceSdl(true);
+    final GraphQLSchema schema = transformer.build();
+    assertFalse(transformer.getServiceSdlCache().isComputed());
+
+    final ExecutionResult result = FederatedSchemaVerifier.execute(schema, "{_service{sdl}}");
+    final Map<String, Map<String, Object>> data = result.getData();
+    assertEquals(eagerSdl, data.get("_service").get("sdl"));
+    assertTrue(transformer.getServiceSdlCache().isComputed());
+  }
+
+  @Test
+  public void transformerPrecomputesSdlInBackground() {
+    final List<Runnable> tasks = new ArrayList<>();
+    final SchemaTransformer transformer =
+        Federation.transform(FileUtils.readResource("schemas/fedV2/schema.graphql"))
+            .resolveEntityType(env -> null)
+            .fetchEntities(environment -> null)
+            .precomputeServiceSdl(tasks::add);
+    transformer.build();
+
+    final ServiceSdlCache cache = transformer.getServiceSdlCache();
+    assertFalse(cache.isComputed());
+    assertEquals(1, tasks.size());
+
+    tasks.get(0).run();
+    assertTrue(cache.isComputed());
+  }
+
+  private static String utf8(ByteBuffer buffer) {
+    return StandardCharsets.UTF_8.decode(buffer).toString();
+  }
+}
@@ -0,0 +1,67 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BoundedExpiringMapTest {
+  private final List<String> inserted = new ArrayList<>();
+  private final List<String> removed = new ArrayList<>();
+  private final BoundedExpiringMap<String, Integer> map =
+      new BoundedExpiringMap<>(
+          3, (key, value) -> inserted.add(key + value), (key, value) -> removed.add(key + value));
+
+  @Test
+  void evictsLeastRecentlyUsedEntries() {
+    map.put("a", 1, 100, 0);
+    map.put("b", 1, 100, 0);
+    map.put("c", 1, 100, 0);
+    assertEquals(1, map.get("a", 0));
+    map.put("d", 1, 100, 0);
+    assertEquals(List.of("b1"), removed);
+    assertNull(map.get("b", 0));
+    assertEquals(3, map.size());
+
+    map.put("a", 2, 100, 0);
+    assertEquals(List.of("a1", "b1", "c1", "d1", "a2"), inserted);
+    assertEquals(List.of("b1", "a1"), removed);
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(5, removed.size());
+  }
+
+  @Test
+  void evictsExpiredEntriesFirst() {
+    map.put("a", 1, 100, 0);
+    map.put("b", 1, 10, 0);
+    map.put("c", 1, 100, 0);
+    assertNull(map.get("b", 10));
+    assertEquals(List.of("b1"), removed);
+
+    map.put("b", 2, 10, 0);
+    map.put("d", 1, 100, 20);
+    assertEquals(List.of("b1", "b2"), removed);
+    assertEquals(1, map.get("a", 20));
+
+    assertThrows(IllegalArgumentException.class, () -> new BoundedExpiringMap<>(0));
+  }
+
+  @Test
+  void boundsLargeMaps() {
+    final BoundedExpiringMap<Integer, Integer> large = new BoundedExpiringMap<>(1_000);
+    for (int i = 0; i < 10_000; i++) {
+      large.put(i, i, Long.MAX_VALUE, 0);
+      // first entry is always used, so it is never evicted
+      assertEquals(0, large.get(0, 0));
+    }
+    // sweeps evict 1/16 of the maximum size on top of the excess
+    assertTrue(large.size() <= 1_000, "Map is bounded");
+    assertTrue(large.size() >= 1_000 - 1_000 / 16, "Sweeps evict only the least recently used");
+  }
+}
@@ -2,6 +2,8 @@ package com.apollographql.federation.graphqljava.caching;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.apollographql.federation.graphqljava.Federation;
 import com.apollographql.federation.graphqljava._Entity;
@@ -19,20 +21,27 @@ import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.FieldWiringEnvironment;
 import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.schema.idl.WiringFactory;
+import graphql.schema.idl.errors.SchemaProblem;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Test;
 
 public class CacheControlInstrumentationTest {
   private static final String DIRECTIVE_DEF =
       "enum CacheControlScope { PUBLIC PRIVATE }\n"
-          + "directive @cacheControl(maxAge: Int scope: CacheControlScope inheritMaxAge: Boolean) on FIELD_DEFINITION | OBJECT | INTERFACE | UNION\n";
+          + "directive @cacheControl(maxAge: Int scope: CacheControlScope inheritMaxAge: Boolean staleWhileRevalidate: Int staleIfError: Int) on FIELD_DEFINITION | OBJECT | INTERFACE | UNION\n";
 
   static GraphQL makeExecutor(String sdl, int defaultMaxAge, boolean allowZeroMaxAge) {
     TypeDefinitionRegistry typeDefs = new SchemaParser().parse(DIRECTIVE_DEF + sdl);
@@ -503,4 +512,196 @@ public class CacheControlInstrumentationTest {
     variables.put("rs", rs);
     assertEquals("max-age=30, public", execute(schema, query, 0, false, variables));
   }
+
+  @Test
+  void cacheTags() {
+    String schema =
+        "directive @cacheTag(format: String!) repeatable on FIELD_DEFINITION | OBJECT\n"
+            + "type Query {"
+            + "  products(category: String!): [Product]"
+            + "    @cacheTag(format: \"products\") @cacheTag(format: \"products-{$args.category}\")"
+            + "  product(id: ID!): Product @cacheTag(format: \"product-{$args.id}\")"
+            + "}"
+            + "type Product @key(fields: \"id\") @cacheControl(maxAge: 60)"
+            + "    @cacheTag(format: \"product-{$key.id}\") {"
+            + "  id: ID!"
+            + "  name: String"
+            + "}";
+    GraphQL graphql = makeExecutor(schema, 0, false);
+
+    ExecutionInput input =
+        ExecutionInput.newExecutionInput()
+            .query(
+                "{ products(category: \"books\") { id } product(id: 3) { id }"
+                    + " _entities(representations: ["
+                    + "{__typename: \"Product\", id: \"1\"}, {__typename: \"Product\", id: \"3\"}"
+                    + "]) { ... on Product { name } } }")
+            .build();
+    assertNull(graphql.execute(input).toSpecification().get("errors"));
+    GraphQLContext context = input.getGraphQLContext();
+    assertEquals(
+        Set.of("products", "products-books", "product-1", "product-3"),
+        CacheControlInstrumentation.cacheTagsFromGraphQLContext(context));
+    assertEquals(
+        "product-1 product-3 products products-books",
+        CacheControlInstrumentation.surrogateKeyHeaderFromGraphQLContext(context));
+
+    ExecutionInput untagged = ExecutionInput.newExecutionInput().query("{ __typename }").build();
+    graphql.execute(untagged);
+    assertEquals(
+        Set.of(),
+        CacheControlInstrumentation.cacheTagsFromGraphQLContext(untagged.getGraphQLContext()));
+    assertNull(
+        CacheControlInstrumentation.surrogateKeyHeaderFromGraphQLContext(
+            untagged.getGraphQLContext()));
+  }
+
+  @Test
+  void invalidCacheTags() {
+    String schema =
+        "directive @cacheTag(format: String!) repeatable on FIELD_DEFINITION | OBJECT\n"
+            + "type Query {"
+            + "  product(id: ID!): Product @cacheControl(maxAge: 60)"
+            + "    @cacheTag(format: \"product-{$args.id\")"
+            + "}"
+            + "type Product { id: ID! }";
+    SchemaProblem problem = assertThrows(SchemaProblem.class, () -> makeExecutor(schema, 0, false));
+    assertEquals(1, problem.getErrors().size());
+    assertTrue(problem.getErrors().get(0).getMessage().startsWith("Invalid @cacheTag on Query."));
+
+    // schemas that were not built by SchemaTransformer skip the invalid formats
+    GraphQLSchema unvalidated =
+        new SchemaGenerator()
+            .makeExecutableSchema(
+                new SchemaParser().parse(DIRECTIVE_DEF + schema),
+                RuntimeWiring.newRuntimeWiring().wiringFactory(new WiringFactoryImpl()).build());
+    GraphQL graphql =
+        GraphQL.newGraphQL(unvalidated).instrumentation(new CacheControlInstrumentation()).build();
+    ExecutionInput input =
+        ExecutionInput.newExecutionInput().query("{ product(id: 1) { id } }").build();
+    assertNull(graphql.execute(input).toSpecification().get("errors"));
+    assertEquals(
+        "max-age=60, public",
+        CacheControlInstrumentation.cacheControlHeaderFromGraphQLContext(
+            input.getGraphQLContext()));
+    assertEquals(
+        Set.of(),
+        CacheControlInstrumentation.cacheTagsFromGraphQLContext(input.getGraphQLContext()));
+  }
+
+  @Test
+  void surrogateKeyHeaderIsCapped() {
+    Set<String> tags = new TreeSet<>(List.of("a", "bbbb", "cc", "d d", "eeeeeeee"));
+    assertEquals("a bbbb cc", CacheControlInstrumentation.surrogateKeyHeader(tags, 9));
+    assertEquals("a cc", CacheControlInstrumentation.surrogateKeyHeader(tags, 5));
+    assertEquals("", CacheControlInstrumentation.surrogateKeyHeader(Set.of("d d"), 100));
+  }
+
+  @Test
+  void staleDirectives() {
+    String schema =
+        "type Query {"
+            + "  catalog: Catalog"
+            + "    @cacheControl(maxAge: 60, staleWhileRevalidate: 120, staleIfError: 600)"
+            + "  featured: Catalog @cacheControl(maxAge: 120, staleWhileRevalidate: 30)"
+            + "  archive: Archive"
+            + "}"
+            + "type Catalog { name: String }"
+            + "type Archive @cacheControl(maxAge: 300, staleIfError: 900) {"
+            + "  name: String"
+            + "  latest: Catalog @cacheControl(maxAge: 100, staleIfError: 1200)"
+            + "}";
+
+    assertEquals(
+        "max-age=60, public, stale-while-revalidate=120, stale-if-error=600",
+        execute(schema, "{ catalog { name } }"));
+    // featured has no staleIfError, so stale responses are not allowed on errors
+    assertEquals(
+        "max-age=60, public, stale-while-revalidate=30",
+        execute(schema, "{ catalog { name } featured { name } }"));
+    assertEquals(
+        "max-age=300, public, stale-if-error=900", execute(schema, "{ archive { name } }"));
+    assertEquals(
+        "max-age=100, public, stale-if-error=900",
+        execute(schema, "{ archive { latest { name } } }"));
+  }
+
+  @Test
+  void policiesFollowSchema() {
+    CacheControlInstrumentation instrumentation = new CacheControlInstrumentation();
+    String query = "{ droid(id: 2001) { name } }";
+    String first =
+        "type Query { droid(id: ID!): Droid }\n"
+            + "type Droid @cacheControl(maxAge: 60) { id: ID! name: String }";
+    String second =
+        "type Query { droid(id: ID!): Droid @cacheControl(maxAge: 30, scope: PRIVATE) }\n"
+            + "type Droid { id: ID! name: String }";
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals("max-age=60, public", execute(instrumentation, first, query));
+      assertEquals("max-age=30, private", execute(instrumentation, second, query));
+    }
+  }
+
+  @Test
+  void concurrentFieldExecution() {
+    StringBuilder sdl = new StringBuilder("type Query {");
+    StringBuilder query = new StringBuilder("{");
+    for (int i = 0; i < 16; i++) {
+      String scope = i == 7 ? ", scope: PRIVATE" : "";
+      sdl.append(String.format(" droid%d: Droid @cacheControl(maxAge: %d%s)", i, 100 + i, scope));
+      query.append(String.format(" droid%d { name friend { name } }", i));
+    }
+    sdl.append(" }\n");
+    sdl.append("type Droid { name: String friend: Droid @cacheControl(maxAge: 120) }");
+    query.append(" }");
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      RuntimeWiring wiring =
+          RuntimeWiring.newRuntimeWiring()
+              .wiringFactory(
+                  new WiringFactoryImpl() {
+                    @Override
+                    public DataFetcher<?> getDataFetcher(FieldWiringEnvironment environment) {
+                      Object value =
+                          environment.getFieldType() instanceof GraphQLObjectType
+                              ? new Object()
+                              : "hello";
+                      return env -> CompletableFuture.supplyAsync(() -> value, executor);
+                    }
+                  })
+              .build();
+      GraphQL graphql =
+          GraphQL.newGraphQL(
+                  Federation.transform(new SchemaParser().parse(DIRECTIVE_DEF + sdl), wiring)
+                      .build())
+              .instrumentation(new CacheControlInstrumentation())
+              .build();
+
+      for (int i = 0; i < 50; i++) {
+        ExecutionInput input = ExecutionInput.newExecutionInput().query(query.toString()).build();
+        assertNull(graphql.execute(input).toSpecification().get("errors"));
+        assertEquals(
+            "max-age=100, private",
+            CacheControlInstrumentation.cacheControlHeaderFromGraphQLContext(
+                input.getGraphQLContext()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static @Nullable String execute(
+      CacheControlInstrumentation instrumentation, String sdl, String query) {
+    GraphQLSchema schema =
+        Federation.transform(
+                new SchemaParser().parse(DIRECTIVE_DEF + sdl),
+                RuntimeWiring.newRuntimeWiring().wiringFactory(new WiringFactoryImpl()).build())
+            .build();
+    ExecutionInput input = ExecutionInput.newExecutionInput().query(query).build();
+    GraphQL.newGraphQL(schema).instrumentation(instrumentation).build().execute(input);
+    return CacheControlInstrumentation.cacheControlHeaderFromGraphQLContext(
+        input.getGraphQLContext());
+  }
 }
@@ -0,0 +1,88 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class CacheTagIndexTest {
+  @Test
+  void rendersTemplates() {
+    final CacheTagTemplate constant = CacheTagTemplate.parse("products");
+    assertEquals("products", constant.render(null, null));
+    assertFalse(constant.usesArguments());
+    assertFalse(constant.usesKey());
+
+    final CacheTagTemplate arguments =
+        CacheTagTemplate.parse("products-{$args.filter.category}-{ $args.page }");
+    assertTrue(arguments.usesArguments());
+    assertEquals(
+        "products-books-2",
+        arguments.render(null, Map.of("filter", Map.of("category", "books"), "page", 2)));
+    assertNull(arguments.render(null, Map.of("page", 2)));
+    assertNull(arguments.render(null, null));
+
+    assertTrue(CacheTagTemplate.parse("product-{$key.id}").usesKey());
+    assertThrows(IllegalArgumentException.class, () -> CacheTagTemplate.parse("product-{$key.id"));
+    assertThrows(IllegalArgumentException.class, () -> CacheTagTemplate.parse("product-{id}"));
+    assertThrows(IllegalArgumentException.class, () -> CacheTagTemplate.parse("product-{$key.}"));
+  }
+
+  @Test
+  void invalidatesTaggedEntries() {
+    final CacheTagIndex index = new CacheTagIndex();
+    final Map<String, String> cache = new HashMap<>();
+    final List<String> invalidated = new ArrayList<>();
+    final Consumer<String> invalidator =
+        key -> {
+          invalidated.add(key);
+          cache.remove(key);
+        };
+
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.put("c", "C");
+    index.tag(invalidator, "a", List.of("products", "product-1"));
+    index.tag(invalidator, "b", List.of("products", "product-2"));
+    index.tag(invalidator, "c", List.of("product-3"));
+    assertEquals(4, index.size());
+
+    index.untag(invalidator, "c", List.of("product-3"));
+    assertEquals(3, index.size());
+    assertEquals(0, index.invalidateTags(List.of("product-3")));
+
+    assertEquals(1, index.invalidateTags(List.of("product-1")));
+    assertEquals(List.of("a"), invalidated);
+    // "a" was not untagged by the invalidator, so it is still indexed under "products"
+    assertEquals(2, index.invalidateTags(List.of("products", "product-2")));
+    assertEquals(Map.of("c", "C"), cache);
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void tracksInvalidationsSinceGeneration() {
+    final CacheTagIndex index = new CacheTagIndex();
+    final Map<String, String> cache = new HashMap<>();
+    final Consumer<String> invalidator = cache::remove;
+
+    final long generation = index.generation();
+    assertFalse(index.invalidatedSince(generation, List.of("product-1")));
+
+    // entry resolved before the invalidation is tagged only after it, so it is not evicted
+    assertEquals(0, index.invalidateTags(List.of("product-1")));
+    cache.put("a", "A");
+    index.tag(invalidator, "a", List.of("product-1"));
+    assertTrue(index.invalidatedSince(generation, List.of("products", "product-1")));
+    assertFalse(index.invalidatedSince(generation, List.of("product-2")));
+    assertFalse(index.invalidatedSince(index.generation(), List.of("product-1")));
+    assertEquals(Map.of("a", "A"), cache);
+  }
+}
@@ -0,0 +1,238 @@
+package com.apollographql.federation.graphqljava.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.apollographql.federation.graphqljava.Federation;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaParser;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+class ResponseCacheTest {
+  private static final String SDL =
+      "enum CacheControlScope { PUBLIC PRIVATE }\n"
+          + "directive @cacheControl(maxAge: Int scope: CacheControlScope inheritMaxAge: Boolean)"
+          + " on FIELD_DEFINITION | OBJECT | INTERFACE | UNION\n"
+          + "directive @cacheTag(format: String!) repeatable on FIELD_DEFINITION | OBJECT\n"
+          + "type Query {\n"
+          + "  product(id: ID!): Product @cacheControl(maxAge: 60)"
+          + " @cacheTag(format: \"product-{$args.id}\")\n"
+          + "  me: User @cacheControl(maxAge: 30, scope: PRIVATE)\n"
+          + "  random: Product\n"
+          + "}\n"
+          + "type Mutation { update: Product @cacheControl(maxAge: 60) }\n"
+          + "type Product { id: ID! name: String }\n"
+          + "type User { name: String }";
+
+  private final AtomicInteger executions = new AtomicInteger();
+  private Runnable onFetch = () -> {};
+  private final AtomicLong millis = new AtomicLong(1_000_000);
+  private final GraphQL graphQL =
+      GraphQL.newGraphQL(
+              Federation.transform(
+                      new SchemaParser().parse(SDL),
+                      RuntimeWiring.newRuntimeWiring()
+                          .type(
+                              "Query",
+                              builder ->
+                                  builder
+                                      .dataFetcher("product", env -> product(env.getArgument("id")))
+                                      .dataFetcher("me", env -> product("me"))
+                                      .dataFetcher("random", env -> product("random")))
+                          .type("Mutation", builder -> builder.dataFetcher("update", env -> null))
+                          .build())
+                  .build())
+          .instrumentation(new CacheControlInstrumentation())
+          .build();
+  private final ResponseCache cache =
+      ResponseCache.newBuilder()
+          .maximumSize(2)
+          .clock(new TestClock())
+          .sessionKey(input -> input.getGraphQLContext().get("session"))
+          .build();
+
+  @Test
+  void cachesResponsesForMaxAge() {
+    assertEquals("max-age=60, public", executeHeader("{ product(id: 1) { name } }"));
+    assertEquals(1, executions.get());
+
+    millis.addAndGet(20_500);
+    final ExecutionInput input =
+        ExecutionInput.newExecutionInput("{\n  product(id: 1) {\n    name\n  }\n}").build();
+    final ExecutionResult cached = cache.executeAsync(graphQL, input).join();
+    assertEquals(1, executions.get());
+    assertEquals(Map.of("product", Map.of("name", "product-1")), cached.getData());
+    assertEquals(
+        "max-age=40, public",
+        CacheControlInstrumentation.cacheControlHeaderFromGraphQLContext(
+            input.getGraphQLContext()));
+
+    millis.addAndGet(40_000);
+    assertEquals("max-age=60, public", executeHeader("{ product(id: 1) { name } }"));
+    assertEquals(2, executions.get());
+  }
+
+  @Test
+  void keysResponsesByVariables() {
+    final String query = "query ($id: ID!) { product(id: $id) { name } }";
+    executeWithVariables(query, "1");
+    executeWithVariables(query, "2");
+    executeWithVariables(query, "1");
+    assertEquals(2, executions.get());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedResponses() {
+    executeHeader("{ product(id: 1) { name } }");
+    executeHeader("{ product(id: 2) { name } }");
+    executeHeader("{ product(id: 1) { name } }");
+    executeHeader("{ product(id: 3) { name } }");
+    assertEquals(3, executions.get());
+
+    executeHeader("{ product(id: 1) { name } }");
+    assertEquals(3, executions.get());
+    executeHeader("{ product(id: 2) { name } }");
+    assertEquals(4, executions.get());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void cachesPrivateResponsesPerSession() {
+    final String query = "{ me { name } }";
+    executeWithSession(query, null);
+    executeWithSession(query, null);
+    assertEquals(2, executions.get());
+
+    executeWithSession(query, "alice");
+    executeWithSession(query, "alice");
+    assertEquals(3, executions.get());
+    executeWithSession(query, "bob");
+    assertEquals(4, executions.get());
+  }
+
+  @Test
+  void invalidatesTaggedResponses() {
+    final CacheTagIndex tagIndex = new CacheTagIndex();
+    final ResponseCache taggedCache =
+        ResponseCache.newBuilder().maximumSize(2).tagIndex(tagIndex).build();
+    final String query = "{ product(id: 1) { name } }";
+    for (int i = 0; i < 2; i++) {
+      final ExecutionInput input = ExecutionInput.newExecutionInput(query).build();
+      taggedCache.executeAsync(graphQL, input).join();
+      assertEquals(
+          Set.of("product-1"),
+          CacheControlInstrumentation.cacheTagsFromGraphQLContext(input.getGraphQLContext()));
+      assertEquals(
+          "product-1",
+          CacheControlInstrumentation.surrogateKeyHeaderFromGraphQLContext(
+              input.getGraphQLContext()));
+    }
+    assertEquals(1, executions.get());
+
+    execute(taggedCache, "{ product(id: 2) { id } }");
+    assertEquals(2, tagIndex.size());
+    assertEquals(1, tagIndex.invalidateTags(List.of("product-1")));
+    assertEquals(1, taggedCache.size());
+    execute(taggedCache, query);
+    assertEquals(3, executions.get());
+
+    taggedCache.invalidateAll();
+    assertEquals(0, tagIndex.size());
+  }
+
+  @Test
+  void skipsResponsesInvalidatedWhileExecuting() {
+    final CacheTagIndex tagIndex = new CacheTagIndex();
+    final ResponseCache taggedCache = ResponseCache.newBuilder().tagIndex(tagIndex).build();
+
+    // product is updated after it was fetched, but before its response is cached
+    onFetch = () -> tagIndex.invalidateTags(List.of("product-1"));
+    execute(taggedCache, "{ product(id: 1) { name } }");
+    assertEquals(0, taggedCache.size());
+    assertEquals(0, tagIndex.size());
+
+    onFetch = () -> tagIndex.invalidateTags(List.of("product-2"));
+    execute(taggedCache, "{ product(id: 1) { name } }");
+    assertEquals(1, taggedCache.size());
+    assertEquals(1, tagIndex.size());
+  }
+
+  @Test
+  void skipsUncacheableResponses() {
+    assertNull(executeHeader("{ random { name } }"));
+    assertNull(executeHeader("{ random { name } }"));
+    assertEquals(2, executions.get());
+
+    executeHeader("mutation { update { name } }");
+    executeHeader("{ product(id: 1) { name");
+    assertEquals(0, cache.size());
+
+    assertThrows(IllegalArgumentException.class, () -> ResponseCache.newBuilder().maximumSize(0));
+  }
+
+  private @Nullable String executeHeader(String query) {
+    final ExecutionInput input = ExecutionInput.newExecutionInput(query).build();
+    cache.executeAsync(graphQL, input).join();
+    return CacheControlInstrumentation.cacheControlHeaderFromGraphQLContext(
+        input.getGraphQLContext());
+  }
+
+  private void execute(ResponseCache responseCache, String query) {
+    responseCache.executeAsync(graphQL, ExecutionInput.newExecutionInput(query).build()).join();
+  }
+
+  private void executeWithVariables(String query, String id) {
+    cache
+        .executeAsync(
+            graphQL, ExecutionInput.newExecutionInput(query).variables(Map.of("id", id)).build())
+        .join();
+  }
+
+  private void executeWithSession(String query, @Nullable String session) {
+    final ExecutionInput input = ExecutionInput.newExecutionInput(query).build();
+    if (session != null) {
+      input.getGraphQLContext().put("session", session);
+    }
+    cache.executeAsync(graphQL, input).join();
+  }
+
+  private Map<String, Object> product(String id) {
+    executions.incrementAndGet();
+    onFetch.run();
+    return Map.of("id", id, "name", "product-" + id);
+  }
+
+  private final class TestClock extends Clock {
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis.get());
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import mdg.engine.proto.Reports;
+import org.junit.jupiter.api.Test;
+
+class DurationHistogramTest {
+
+  @Test
+  void bucketsDurations() {
+    assertEquals(0, DurationHistogram.bucket(-1));
+    assertEquals(0, DurationHistogram.bucket(0));
+    assertEquals(0, DurationHistogram.bucket(1_000));
+    assertEquals(1, DurationHistogram.bucket(1_050));
+    assertEquals(2, DurationHistogram.bucket(1_200));
+    // 1ms = 1.1^72.47 us
+    assertEquals(73, DurationHistogram.bucket(TimeUnit.MILLISECONDS.toNanos(1)));
+    assertEquals(
+        DurationHistogram.BUCKET_COUNT - 1, DurationHistogram.bucket(TimeUnit.DAYS.toNanos(30)));
+  }
+
+  @Test
+  void writesLatencyCounts() {
+    final long[] buckets = new long[DurationHistogram.BUCKET_COUNT];
+    buckets[1] = 3;
+    buckets[3] = 1;
+    buckets[4] = 2;
+    buckets[10] = 5;
+
+    final List<Long> latencyCounts = new ArrayList<>();
+    DurationHistogram.writeLatencyCounts(buckets, latencyCounts::add);
+    assertEquals(List.of(0L, 3L, 0L, 1L, 2L, -5L, 5L), latencyCounts);
+
+    final DurationHistogram histogram = new DurationHistogram();
+    histogram.merge(buckets);
+    final Reports.FieldStat.Builder fieldStat = Reports.FieldStat.newBuilder();
+    histogram.writeLatencyCounts(fieldStat::addLatencyCount);
+    assertEquals(latencyCounts, fieldStat.getLatencyCountList());
+  }
+
+  @Test
+  void mergesAndResetsHistograms() {
+    final DurationHistogram first = new DurationHistogram();
+    first.record(500);
+    first.record(TimeUnit.MILLISECONDS.toNanos(1));
+    final DurationHistogram second = new DurationHistogram();
+    second.record(TimeUnit.MILLISECONDS.toNanos(1));
+    second.merge(first);
+
+    final long[] snapshot = second.snapshotAndReset();
+    assertEquals(1, snapshot[0]);
+    assertEquals(2, snapshot[73]);
+    assertEquals(0, second.count());
+    assertEquals(2, first.count());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> first.merge(new long[DurationHistogram.BUCKET_COUNT + 1]));
+  }
+
+  @Test
+  void recordsConcurrently() throws InterruptedException {
+    final DurationHistogram histogram = new DurationHistogram();
+    final int threads = 8;
+    final int recordsPerThread = 10_000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      final Thread worker =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                for (int j = 0; j < recordsPerThread; j++) {
+                  histogram.record(j * 100L);
+                }
+              });
+      worker.start();
+      workers.add(worker);
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals((long) threads * recordsPerThread, histogram.count());
+  }
+}
@@ -0,0 +1,125 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.apollographql.federation.graphqljava.FileUtils;
+import graphql.GraphQL;
+import graphql.GraphQLException;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import mdg.engine.proto.Reports;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FederatedStatsInstrumentationTest {
+  private final String tracingSDL = FileUtils.readResource("schemas/tracingSchema.graphql");
+  private final List<Reports.StatsReport> reports = new ArrayList<>();
+  private FederatedStatsInstrumentation instrumentation;
+  private GraphQL graphql;
+
+  @BeforeEach
+  void setupSchema() {
+    RuntimeWiring resolvers =
+        RuntimeWiring.newRuntimeWiring()
+            .type(
+                "Query",
+                builder ->
+                    builder.dataFetcher("widgets", env -> List.of(new Object(), new Object())))
+            .type(
+                "Widget",
+                builder ->
+                    builder
+                        .dataFetcher("foo", env -> "hello world")
+                        .dataFetcher(
+                            "bar",
+                            env -> {
+                              throw new GraphQLException("whoops");
+                            }))
+            .build();
+    GraphQLSchema graphQLSchema =
+        new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(tracingSDL), resolvers);
+
+    instrumentation =
+        new FederatedStatsInstrumentation(
+            FederatedStatsInstrumentation.Options.newBuilder().sink(reports::add).build());
+    graphql = GraphQL.newGraphQL(graphQLSchema).instrumentation(instrumentation).build();
+  }
+
+  @AfterEach
+  void close() {
+    instrumentation.close();
+  }
+
+  @Test
+  void aggregatesOperationAndFieldStats() {
+    graphql.execute("query Widgets { widgets { foo bar } }");
+    graphql.execute("query Widgets { widgets { foo bar } }");
+    graphql.execute("{ widgets { foo } }");
+    instrumentation.flush();
+
+    assertEquals(1, reports.size());
+    Map<String, Reports.QueryStats> perQuery = reports.get(0).getPerQueryMap();
+    assertEquals(2, perQuery.size());
+
+    Reports.QueryStats widgets = queryStats(perQuery, "# Widgets\n");
+    Reports.QueryLatencyStats latencyStats =
+        widgets.getQueryStatsWithContext(0).getQueryLatencyStats();
+    assertEquals(2, latencyStats.getRequestCount());
+    assertEquals(2, latencyStats.getRequestsWithErrorsCount());
+    assertEquals(2, histogramCount(latencyStats.getLatencyCountList()));
+
+    Map<String, Reports.TypeStat> types = widgets.getTypeStatsWithContext(0).getPerTypeStatMap();
+    Reports.FieldStat widgetsField = types.get("Query").getPerFieldStatOrThrow("widgets");
+    assertEquals("[Widget!]", widgetsField.getReturnType());
+    assertEquals(2, widgetsField.getCount());
+    assertEquals(0, widgetsField.getErrorsCount());
+
+    Reports.FieldStat foo = types.get("Widget").getPerFieldStatOrThrow("foo");
+    assertEquals("String", foo.getReturnType());
+    assertEquals(4, foo.getCount());
+    assertEquals(4, histogramCount(foo.getLatencyCountList()));
+
+    Reports.FieldStat bar = types.get("Widget").getPerFieldStatOrThrow("bar");
+    assertEquals(4, bar.getCount());
+    assertEquals(4, bar.getErrorsCount());
+    assertEquals(2, bar.getRequestsWithErrorsCount());
+
+    Reports.QueryStats anonymous = queryStats(perQuery, "# -\n");
+    assertEquals(1, anonymous.getQueryStatsWithContext(0).getQueryLatencyStats().getRequestCount());
+
+    // stats are reset after every flush
+    instrumentation.flush();
+    assertEquals(1, reports.size());
+  }
+
+  @Test
+  void aggregatesFailedRequests() {
+    graphql.execute("{ widgets { foo }");
+    graphql.execute("{ widgets { unknown } }");
+    instrumentation.flush();
+
+    Map<String, Reports.QueryStats> perQuery = reports.get(0).getPerQueryMap();
+    assertTrue(perQuery.containsKey(FederatedStatsInstrumentation.PARSE_FAILURE_KEY));
+    assertTrue(perQuery.containsKey(FederatedStatsInstrumentation.VALIDATION_FAILURE_KEY));
+  }
+
+  private static Reports.QueryStats queryStats(
+      Map<String, Reports.QueryStats> perQuery, String keyPrefix) {
+    return perQuery.entrySet().stream()
+        .filter(entry -> entry.getKey().startsWith(keyPrefix))
+        .map(Map.Entry::getValue)
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static long histogramCount(List<Long> latencyCounts) {
+    return latencyCounts.stream().filter(count -> count > 0).mapToLong(Long::longValue).sum();
+  }
+}
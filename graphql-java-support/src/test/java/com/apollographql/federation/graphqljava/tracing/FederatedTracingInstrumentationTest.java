@@ -13,15 +13,24 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import graphql.ExecutionInput;
 import graphql.GraphQL;
 import graphql.GraphQLException;
+import graphql.TrivialDataFetcher;
 import graphql.schema.GraphQLSchema;
+import graphql.schema.PropertyDataFetcher;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import mdg.engine.proto.Reports;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -214,6 +223,63 @@ class FederatedTracingInstrumentationTest {
     assertEquals(13, error.getLocation(0).getColumn());
   }
 
+  @Test
+  void testTracingWithConcurrentDataFetchers() throws InvalidProtocolBufferException {
+    final int widgetCount = 100;
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      RuntimeWiring resolvers =
+          RuntimeWiring.newRuntimeWiring()
+              .type(
+                  "Query",
+                  builder ->
+                      builder.dataFetcher(
+                          "widgets",
+                          env -> {
+                            ArrayList<Object> objects = new ArrayList<>(widgetCount);
+                            for (int i = 0; i < widgetCount; i++) {
+                              objects.add(new Object());
+                            }
+                            return objects;
+                          }))
+              .type(
+                  "Widget",
+                  builder ->
+                      builder.dataFetcher(
+                          "foo",
+                          env -> CompletableFuture.supplyAsync(() -> "hello world", executor)))
+              .build();
+      GraphQLSchema graphQLSchema =
+          new SchemaGenerator()
+              .makeExecutableSchema(new SchemaParser().parse(tracingSDL), resolvers);
+      GraphQL concurrentGraphQL =
+          GraphQL.newGraphQL(graphQLSchema)
+              .instrumentation(new FederatedTracingInstrumentation())
+              .build();
+
+      Map<String, Object> result =
+          concurrentGraphQL.execute(createExecutionInput("{ widgets { foo } }")).toSpecification();
+      String ftv1 = ((Map) result.get("extensions")).get("ftv1").toString();
+      Reports.Trace trace = Reports.Trace.parseFrom(Base64.getDecoder().decode(ftv1));
+
+      assertEquals(1, trace.getRoot().getChildCount());
+      Reports.Trace.Node widgets = trace.getRoot().getChild(0);
+      assertEquals("widgets", widgets.getResponseName());
+      assertEquals(widgetCount, widgets.getChildCount());
+
+      Set<Integer> indices = new HashSet<>();
+      for (Reports.Trace.Node item : widgets.getChildList()) {
+        indices.add(item.getIndex());
+        assertEquals(1, item.getChildCount());
+        assertEquals("foo", item.getChild(0).getResponseName());
+        assertEquals("Widget", item.getChild(0).getParentType());
+      }
+      assertEquals(widgetCount, indices.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   void testOptions() {
     // This test primarily exists so that IntelliJ doesn't encourage you to take 'public' off
@@ -263,6 +329,132 @@ class FederatedTracingInstrumentationTest {
     assertTrue(((Map) extensions).containsKey("ftv1"));
   }
 
+  @Test
+  void testSamplerCapsRequestedTraces() {
+    Options options = Options.newBuilder().sampler(TraceSamplers.fixedRate(0)).build();
+    graphql =
+        graphql.transform(
+            (GraphQL.Builder builder) ->
+                builder.instrumentation(new FederatedTracingInstrumentation(options)));
+
+    Map<String, Object> result =
+        graphql.execute(createExecutionInput("{widgets {foo}}")).toSpecification();
+    assertNull(result.get("extensions"));
+
+    // sampler is never consulted for requests that did not ask for a trace
+    Options failingSampler =
+        Options.newBuilder()
+            .sampler(
+                input -> {
+                  throw new AssertionError("sampler should not be called");
+                })
+            .build();
+    assertFalse(
+        failingSampler.shouldTrace(ExecutionInput.newExecutionInput("{widgets {foo}}").build()));
+  }
+
+  @Test
+  void testTraceBudget() throws InvalidProtocolBufferException {
+    Options options = Options.newBuilder().listElementThreshold(1).build();
+    graphql =
+        graphql.transform(
+            (GraphQL.Builder builder) ->
+                builder.instrumentation(new FederatedTracingInstrumentation(options)));
+
+    Map<String, Object> result =
+        graphql.execute(createExecutionInput("{ widgets { foo } }")).toSpecification();
+    String ftv1 = ((Map) result.get("extensions")).get("ftv1").toString();
+    Reports.Trace trace = Reports.Trace.parseFrom(Base64.getDecoder().decode(ftv1));
+
+    Reports.Trace.Node widgets = trace.getRoot().getChild(0);
+    assertEquals("widgets", widgets.getResponseName());
+    assertEquals(1, widgets.getChildCount());
+    assertEquals(0, widgets.getChild(0).getIndex());
+    assertEquals("foo", widgets.getChild(0).getChild(0).getResponseName());
+  }
+
+  @Test
+  void testSlowFieldThreshold() throws InvalidProtocolBufferException {
+    Options options = Options.newBuilder().slowFieldThreshold(Duration.ofHours(1)).build();
+    graphql =
+        graphql.transform(
+            (GraphQL.Builder builder) ->
+                builder.instrumentation(new FederatedTracingInstrumentation(options)));
+
+    Map<String, Object> result =
+        graphql.execute(createExecutionInput("{ widgets { foo } }")).toSpecification();
+    String ftv1 = ((Map) result.get("extensions")).get("ftv1").toString();
+    Reports.Trace trace = Reports.Trace.parseFrom(Base64.getDecoder().decode(ftv1));
+    assertEquals(0, trace.getRoot().getChildCount());
+    assertTrue(trace.getDurationNs() > 0);
+
+    // fields with errors are reported together with their ancestors
+    result = graphql.execute(createExecutionInput("{ widgets { foo bar } }")).toSpecification();
+    ftv1 = ((Map) result.get("extensions")).get("ftv1").toString();
+    trace = Reports.Trace.parseFrom(Base64.getDecoder().decode(ftv1));
+
+    assertEquals(1, trace.getRoot().getChildCount());
+    Reports.Trace.Node widgets = trace.getRoot().getChild(0);
+    assertEquals("widgets", widgets.getResponseName());
+    assertEquals("[Widget!]", widgets.getType());
+    assertTrue(widgets.getEndTime() >= widgets.getStartTime());
+    assertEquals(2, widgets.getChildCount());
+    for (Reports.Trace.Node item : widgets.getChildList()) {
+      assertEquals(1, item.getChildCount());
+      Reports.Trace.Node bar = item.getChild(0);
+      assertEquals("bar", bar.getResponseName());
+      assertEquals("whoops", bar.getError(0).getMessage());
+    }
+  }
+
+  @Test
+  void testSkipTrivialDataFetchers() throws InvalidProtocolBufferException {
+    RuntimeWiring resolvers =
+        RuntimeWiring.newRuntimeWiring()
+            .type(
+                "Query",
+                builder ->
+                    builder.dataFetcher(
+                        "widgets", env -> List.of(Map.of("foo", "one"), Map.of("foo", "two"))))
+            .type(
+                "Widget",
+                builder ->
+                    builder
+                        .dataFetcher("foo", PropertyDataFetcher.fetching("foo"))
+                        .dataFetcher(
+                            "bar",
+                            (TrivialDataFetcher<Object>)
+                                env -> {
+                                  throw new GraphQLException("whoops");
+                                }))
+            .build();
+    GraphQLSchema graphQLSchema =
+        new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(tracingSDL), resolvers);
+    Options options = Options.newBuilder().skipTrivialDataFetchers(true).build();
+    GraphQL trivialGraphQL =
+        GraphQL.newGraphQL(graphQLSchema)
+            .instrumentation(new FederatedTracingInstrumentation(options))
+            .build();
+
+    Map<String, Object> result =
+        trivialGraphQL.execute(createExecutionInput("{ widgets { foo bar } }")).toSpecification();
+    String ftv1 = ((Map) result.get("extensions")).get("ftv1").toString();
+    Reports.Trace trace = Reports.Trace.parseFrom(Base64.getDecoder().decode(ftv1));
+
+    Reports.Trace.Node widgets = trace.getRoot().getChild(0);
+    assertEquals("widgets", widgets.getResponseName());
+    assertEquals("[Widget!]", widgets.getType());
+    assertEquals(2, widgets.getChildCount());
+    for (Reports.Trace.Node item : widgets.getChildList()) {
+      // trivial fields are reported only when they fail
+      assertEquals(1, item.getChildCount());
+      Reports.Trace.Node bar = item.getChild(0);
+      assertEquals("bar", bar.getResponseName());
+      assertEquals(1, bar.getErrorCount());
+      assertTrue(bar.getError(0).getMessage().contains("whoops"));
+    }
+  }
+
   @Test
   void testTracingWithGraphQLContextMap() {
     ExecutionInput input = ExecutionInput.newExecutionInput("{widgets {foo}}").build();
@@ -0,0 +1,115 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graphql.GraphqlErrorBuilder;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TraceBudgetTest {
+  private static final int UNLIMITED = TraceBudget.UNLIMITED;
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  void unlimitedBudget() {
+    assertTrue(new TraceBudget(UNLIMITED, UNLIMITED, UNLIMITED, 0).isUnlimited());
+    assertFalse(new TraceBudget(UNLIMITED, UNLIMITED, 10, 0).isUnlimited());
+  }
+
+  @Test
+  void omitsListElementsBeyondThreshold() {
+    final TraceNode root = list(10, 2 * MILLIS);
+    // element with errors is always kept
+    final TraceNode failing = root.children.get(0).children.get(7).children.get(0);
+    failing.addError(GraphqlErrorBuilder.newError().message("boom").build(), null);
+
+    new TraceBudget(UNLIMITED, UNLIMITED, 3, 0).apply(root);
+
+    final TraceNode items = root.children.get(0);
+    assertEquals(4, items.children.size());
+    assertEquals(0, items.children.get(0).index);
+    assertEquals(1, items.children.get(1).index);
+    assertEquals(2, items.children.get(2).index);
+    assertEquals(7, items.children.get(3).index);
+  }
+
+  @Test
+  void omitsFastLeafFields() {
+    final TraceNode root = TraceNode.root();
+    root.addChild(field("fast", 0, MILLIS / 2));
+    root.addChild(field("slow", 0, 2 * MILLIS));
+    final TraceNode fastWithError = field("fastWithError", 0, 10);
+    fastWithError.addError(GraphqlErrorBuilder.newError().message("boom").build(), null);
+    root.addChild(fastWithError);
+    // list whose elements only contain fast fields
+    root.addChild(list(5, 10).children.get(0));
+
+    new TraceBudget(UNLIMITED, UNLIMITED, UNLIMITED, MILLIS).apply(root);
+
+    assertEquals(3, root.children.size());
+    assertEquals("slow", root.children.get(0).responseName);
+    assertEquals("fastWithError", root.children.get(1).responseName);
+    // list field is kept, its elements are all omitted
+    assertEquals("items", root.children.get(2).responseName);
+    assertNull(root.children.get(2).children);
+  }
+
+  @Test
+  void limitsNodesBreadthFirst() {
+    final TraceNode root = list(10, MILLIS);
+
+    // root + items + 10 elements + 3 leaf fields
+    new TraceBudget(15, UNLIMITED, UNLIMITED, 0).apply(root);
+
+    final TraceNode items = root.children.get(0);
+    assertEquals(10, items.children.size());
+    assertEquals(1, items.children.get(0).children.size());
+    assertEquals(1, items.children.get(2).children.size());
+    assertNull(items.children.get(3).children);
+  }
+
+  @Test
+  void fallsBackToErrorsWhenOverMaxBytes() {
+    final TraceNode root = list(100, MILLIS);
+    final TraceNode failing = root.children.get(0).children.get(42).children.get(0);
+    failing.addError(GraphqlErrorBuilder.newError().message("boom").build(), null);
+
+    new TraceBudget(UNLIMITED, 200, UNLIMITED, 0).apply(root);
+
+    final TraceNode items = root.children.get(0);
+    assertEquals(1, items.children.size());
+    assertEquals(42, items.children.get(0).index);
+    assertEquals("boom", items.children.get(0).children.get(0).errors.get(0).message);
+
+    final TraceNode tooLarge = list(100, MILLIS);
+    tooLarge.addError(GraphqlErrorBuilder.newError().message("root error").build(), null);
+    new TraceBudget(UNLIMITED, 10, UNLIMITED, 0).apply(tooLarge);
+    assertNull(tooLarge.children);
+    assertEquals(1, tooLarge.errors.size());
+  }
+
+  /** Root with <code>items</code> list field with the given number of single field elements. */
+  private static TraceNode list(int size, long fieldDuration) {
+    final TraceNode items = field("items", 0, MILLIS);
+    for (int i = 0; i < size; i++) {
+      final TraceNode element = TraceNode.index(i);
+      element.addChild(field("name", MILLIS, MILLIS + fieldDuration));
+      items.addChild(element);
+    }
+    final TraceNode root = TraceNode.root();
+    root.addChild(items);
+    return root;
+  }
+
+  private static TraceNode field(String name, long startTime, long endTime) {
+    final TraceNode node = TraceNode.field(name);
+    node.parentType = "Query";
+    node.type = "String";
+    node.startTime = startTime;
+    node.endTime = endTime;
+    return node;
+  }
+}
@@ -0,0 +1,128 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import graphql.GraphqlErrorBuilder;
+import graphql.language.SourceLocation;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import mdg.engine.proto.Reports;
+import org.junit.jupiter.api.Test;
+
+class TraceEncoderTest {
+
+  @Test
+  void encodesSameBytesAsGeneratedMessages() throws InvalidProtocolBufferException {
+    final Instant start = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+    final Instant end = Instant.ofEpochSecond(1_700_000_001L, 0);
+
+    final TraceNode root = TraceNode.root();
+    root.addError(
+        GraphqlErrorBuilder.newError()
+            .message("root error")
+            .location(new SourceLocation(1, 2))
+            .build(),
+        null);
+
+    final TraceNode widgets = field("widgets", "Query", "[Widget!]", 10, 200);
+    root.addChild(widgets);
+    // index 0 has to be written even though it is a default value
+    final TraceNode first = TraceNode.index(0);
+    widgets.addChild(first);
+    final TraceNode aliased = field("baz", "Widget", "String", 300, 400);
+    aliased.originalFieldName = "bar";
+    aliased.addError(
+        GraphqlErrorBuilder.newError().message("whoops ünïcödé").build(),
+        new SourceLocation(3, 18));
+    first.addChild(aliased);
+    // empty response name is still written as part of the oneof
+    root.addChild(field("", "Query", "String", 0, 0));
+
+    final Reports.Trace expected =
+        Reports.Trace.newBuilder()
+            .setStartTime(
+                Timestamp.newBuilder().setSeconds(1_700_000_000L).setNanos(123_456_789).build())
+            .setEndTime(Timestamp.newBuilder().setSeconds(1_700_000_001L).build())
+            .setDurationNs(1_000_000L)
+            .setRoot(
+                Reports.Trace.Node.newBuilder()
+                    .addError(
+                        Reports.Trace.Error.newBuilder()
+                            .setMessage("root error")
+                            .addLocation(
+                                Reports.Trace.Location.newBuilder().setLine(1).setColumn(2)))
+                    .addChild(
+                        Reports.Trace.Node.newBuilder()
+                            .setResponseName("widgets")
+                            .setParentType("Query")
+                            .setType("[Widget!]")
+                            .setStartTime(10)
+                            .setEndTime(200)
+                            .addChild(
+                                Reports.Trace.Node.newBuilder()
+                                    .setIndex(0)
+                                    .addChild(
+                                        Reports.Trace.Node.newBuilder()
+                                            .setResponseName("baz")
+                                            .setOriginalFieldName("bar")
+                                            .setParentType("Widget")
+                                            .setType("String")
+                                            .setStartTime(300)
+                                            .setEndTime(400)
+                                            .addError(
+                                                Reports.Trace.Error.newBuilder()
+                                                    .setMessage("whoops ünïcödé")
+                                                    .addLocation(
+                                                        Reports.Trace.Location.newBuilder()
+                                                            .setLine(3)
+                                                            .setColumn(18))))))
+                    .addChild(
+                        Reports.Trace.Node.newBuilder()
+                            .setResponseName("")
+                            .setParentType("Query")
+                            .setType("String")))
+            .build();
+
+    final TraceEncoder.EncodedTrace encoded = TraceEncoder.encode(start, end, 1_000_000L, root);
+    final byte[] actual = Arrays.copyOf(encoded.buffer, encoded.length);
+    assertArrayEquals(expected.toByteArray(), actual);
+    assertEquals(expected, Reports.Trace.parseFrom(actual));
+    assertEquals(Base64.getEncoder().encodeToString(actual), encoded.toBase64());
+  }
+
+  @Test
+  void reusesBuffersForSubsequentTraces() throws InvalidProtocolBufferException {
+    final TraceNode large = TraceNode.root();
+    for (int i = 0; i < 1000; i++) {
+      large.addChild(field("field" + i, "Query", "String", i + 1, i + 2));
+    }
+    final String largeTrace =
+        TraceEncoder.encode(Instant.now(), Instant.now(), 1L, large).toBase64();
+
+    final TraceNode small = TraceNode.root();
+    small.addChild(field("hello", "Query", "String", 1, 2));
+    final String smallTrace =
+        TraceEncoder.encode(Instant.now(), Instant.now(), 1L, small).toBase64();
+
+    final Reports.Trace parsedLarge =
+        Reports.Trace.parseFrom(Base64.getDecoder().decode(largeTrace));
+    assertEquals(1000, parsedLarge.getRoot().getChildCount());
+    final Reports.Trace trace = Reports.Trace.parseFrom(Base64.getDecoder().decode(smallTrace));
+    assertEquals(1, trace.getRoot().getChildCount());
+    assertEquals("hello", trace.getRoot().getChild(0).getResponseName());
+  }
+
+  private static TraceNode field(
+      String responseName, String parentType, String type, long startTime, long endTime) {
+    final TraceNode node = TraceNode.field(responseName);
+    node.parentType = parentType;
+    node.type = type;
+    node.startTime = startTime;
+    node.endTime = endTime;
+    return node;
+  }
+}
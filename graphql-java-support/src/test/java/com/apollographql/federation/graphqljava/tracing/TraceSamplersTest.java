@@ -0,0 +1,132 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graphql.ExecutionInput;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TraceSamplersTest {
+  private static final ExecutionInput QUERY = ExecutionInput.newExecutionInput("{ foo }").build();
+
+  @Test
+  void fixedRate() {
+    final TraceSampler never = TraceSamplers.fixedRate(0);
+    final TraceSampler always = TraceSamplers.fixedRate(1);
+    for (int i = 0; i < 100; i++) {
+      assertFalse(never.sample(QUERY));
+      assertTrue(always.sample(QUERY));
+    }
+
+    final TraceSampler half = TraceSamplers.fixedRate(0.5);
+    int sampled = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (half.sample(QUERY)) {
+        sampled++;
+      }
+    }
+    assertTrue(sampled > 4_000 && sampled < 6_000, "sampled " + sampled);
+
+    assertThrows(IllegalArgumentException.class, () -> TraceSamplers.fixedRate(1.5));
+    assertThrows(IllegalArgumentException.class, () -> TraceSamplers.fixedRate(Double.NaN));
+  }
+
+  @Test
+  void rateLimited() {
+    final AtomicLong clock = new AtomicLong();
+    final TraceSampler sampler = TraceSamplers.rateLimited(10, clock::get);
+
+    // initial burst of one second worth of traces
+    assertEquals(10, sampleTimes(sampler, 100));
+
+    // tokens are replenished at the configured rate
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    assertEquals(1, sampleTimes(sampler, 100));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(5, sampleTimes(sampler, 100));
+
+    // idle time does not accumulate more than one second worth of traces
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertEquals(10, sampleTimes(sampler, 100));
+  }
+
+  @Test
+  void rateLimitedBelowOnePerSecond() {
+    final AtomicLong clock = new AtomicLong();
+    final TraceSampler sampler = TraceSamplers.rateLimited(0.5, clock::get);
+
+    assertEquals(1, sampleTimes(sampler, 10));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(0, sampleTimes(sampler, 10));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(1, sampleTimes(sampler, 10));
+  }
+
+  @Test
+  void perOperation() {
+    final AtomicLong clock = new AtomicLong();
+    final TraceSampler sampler = TraceSamplers.perOperation(2, Duration.ofSeconds(1), clock::get);
+    final ExecutionInput frequent =
+        ExecutionInput.newExecutionInput("query Frequent { foo }")
+            .operationName("Frequent")
+            .build();
+    final ExecutionInput rare =
+        ExecutionInput.newExecutionInput("query Rare { foo }").operationName("Rare").build();
+
+    assertEquals(2, sampleTimes(sampler, frequent, 100));
+    assertEquals(2, sampleTimes(sampler, rare, 100));
+    assertEquals(2, sampleTimes(sampler, QUERY, 100));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(2, sampleTimes(sampler, frequent, 100));
+  }
+
+  @Test
+  void adaptive() {
+    final double[] load = {0.1};
+    final TraceSampler sampler = TraceSamplers.adaptive(() -> load[0], 0.5, 0.9);
+
+    assertEquals(100, sampleTimes(sampler, 100));
+    load[0] = 0.95;
+    assertEquals(0, sampleTimes(sampler, 100));
+    load[0] = 0.7;
+    final int sampled = sampleTimes(sampler, 10_000);
+    assertTrue(sampled > 4_000 && sampled < 6_000, "sampled " + sampled);
+
+    assertThrows(IllegalArgumentException.class, () -> TraceSamplers.adaptive(() -> 0, 1, 0.5));
+  }
+
+  @Test
+  void systemLoadIsNotNegative() {
+    assertTrue(TraceSamplers.systemLoad().getAsDouble() >= 0);
+  }
+
+  @Test
+  void all() {
+    final AtomicLong clock = new AtomicLong();
+    final TraceSampler sampler =
+        TraceSamplers.all(TraceSamplers.always(), TraceSamplers.rateLimited(3, clock::get));
+    assertEquals(3, sampleTimes(sampler, 10));
+    assertFalse(
+        TraceSamplers.all(TraceSamplers.fixedRate(0), TraceSamplers.always()).sample(QUERY));
+  }
+
+  private static int sampleTimes(TraceSampler sampler, int times) {
+    return sampleTimes(sampler, QUERY, times);
+  }
+
+  private static int sampleTimes(TraceSampler sampler, ExecutionInput input, int times) {
+    int sampled = 0;
+    for (int i = 0; i < times; i++) {
+      if (sampler.sample(input)) {
+        sampled++;
+      }
+    }
+    return sampled;
+  }
+}
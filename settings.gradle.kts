@@ -1,7 +1,11 @@
 rootProject.name = "federation-jvm"
 
 include(":federation-graphql-java-support")
+include(":federation-graphql-java-support-micrometer")
 include(":federation-spring-subscription-callback")
+include(":federation-jmh")
 
 project(":federation-graphql-java-support").projectDir = file("graphql-java-support")
+project(":federation-graphql-java-support-micrometer").projectDir = file("graphql-java-support-micrometer")
 project(":federation-spring-subscription-callback").projectDir = file("spring-subscription-callback")
+project(":federation-jmh").projectDir = file("benchmarks")
@@ -0,0 +1,83 @@
+package com.apollographql.subscription.callback;
+
+import com.apollographql.subscription.message.SubscritionCallbackMessage;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+/** JFR event recorded by {@link SubscriptionCallbackHandler} for every callback request. */
+@Name("com.apollographql.federation.SubscriptionCallback")
+@Label("Subscription Callback")
+@Category("Apollo Federation")
+@Description("HTTP callback request sent to the router, from the request until its response")
+final class SubscriptionCallbackEvent extends Event {
+  @Label("Subscription ID")
+  String subscriptionId;
+
+  @Label("Action")
+  @Description("Callback message action, i.e. check, next or complete")
+  String action;
+
+  @Label("Status Code")
+  @Description("HTTP status code of the response, 0 if no response was received")
+  int statusCode;
+
+  @Label("Response Size")
+  @Description("Content length of the response, -1 if unknown")
+  @DataAmount(DataAmount.BYTES)
+  long responseSize;
+
+  @Label("Failure")
+  @Description("Exception that failed the request before its response, or cancelled")
+  String failure;
+
+  // event is committed at most once, either with its response or with its failure
+  private final AtomicBoolean completed = new AtomicBoolean();
+
+  static SubscriptionCallbackEvent start(SubscritionCallbackMessage message) {
+    var event = new SubscriptionCallbackEvent();
+    if (event.isEnabled()) {
+      event.subscriptionId = message.getId();
+      event.action = message.getAction().name().toLowerCase(Locale.ROOT);
+    }
+    event.begin();
+    return event;
+  }
+
+  void complete(ClientResponse response) {
+    if (!completed.compareAndSet(false, true)) {
+      return;
+    }
+    end();
+    if (shouldCommit()) {
+      statusCode = response.statusCode().value();
+      responseSize = response.headers().contentLength().orElse(-1);
+      commit();
+    }
+  }
+
+  /**
+   * Commit event of a request that did not receive a response, e.g. because of a connection
+   * failure or a timeout. Does nothing if the response was already received.
+   *
+   * @param error request failure, null if the request was cancelled
+   */
+  void fail(@Nullable Throwable error) {
+    if (!completed.compareAndSet(false, true)) {
+      return;
+    }
+    end();
+    if (shouldCommit()) {
+      failure = error != null ? error.getClass().getName() : "cancelled";
+      responseSize = -1;
+      commit();
+    }
+  }
+}
@@ -55,36 +55,38 @@ public class SubscriptionCallbackHandler {
 
     // check
     var checkMessage = new CallbackMessageCheck(callback.subscription_id(), callback.verifier());
-    return client
-        .post()
-        .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-        .header(SUBSCRIPTION_PROTOCOL_HEADER, SUBSCRIPTION_PROTOCOL_HEADER_VALUE)
-        .headers(httpHeaders -> httpHeaders.putAll(callback.context()))
-        .bodyValue(checkMessage)
-        .exchangeToMono(
-            checkResponse -> {
-              var responseStatusCode = checkResponse.statusCode();
-              // var subscriptionProtocol =
-              // checkResponse.headers().header(SUBSCRIPTION_PROTOCOL_HEADER);
-
-              if (responseStatusCode.is2xxSuccessful()) {
-                //  && !subscriptionProtocol.isEmpty() &&
-                // "callback".equals(subscriptionProtocol.get(0)))
-                if (logger.isDebugEnabled()) {
-                  logger.debug("Subscription callback init successful: " + callback);
-                }
-
-                Flux<SubscritionCallbackMessage> subscription =
-                    startSubscription(client, graphQlRequest, callback);
-                return Mono.just(emptyResult())
-                    .publishOn(scheduler)
-                    .doOnSubscribe((subscribed) -> subscription.subscribe());
-              } else {
-                return Mono.error(
-                    new CallbackInitializationFailedException(
-                        callback, responseStatusCode.value()));
-              }
-            });
+    return Mono.defer(
+        () -> {
+          var event = SubscriptionCallbackEvent.start(checkMessage);
+          return callbackRequest(client, callback, checkMessage)
+              .exchangeToMono(
+                  checkResponse -> {
+                    event.complete(checkResponse);
+                    var responseStatusCode = checkResponse.statusCode();
+                    // var subscriptionProtocol =
+                    // checkResponse.headers().header(SUBSCRIPTION_PROTOCOL_HEADER);
+
+                    if (responseStatusCode.is2xxSuccessful()) {
+                      //  && !subscriptionProtocol.isEmpty() &&
+                      // "callback".equals(subscriptionProtocol.get(0)))
+                      if (logger.isDebugEnabled()) {
+                        logger.debug("Subscription callback init successful: " + callback);
+                      }
+
+                      Flux<SubscritionCallbackMessage> subscription =
+                          startSubscription(client, graphQlRequest, callback);
+                      return Mono.just(emptyResult())
+                          .publishOn(scheduler)
+                          .doOnSubscribe((subscribed) -> subscription.subscribe());
+                    } else {
+                      return Mono.error(
+                          new CallbackInitializationFailedException(
+                              callback, responseStatusCode.value()));
+                    }
+                  })
+              .doOnError(event::fail)
+              .doOnCancel(() -> event.fail(null));
+        });
   }
 
   private ExecutionResult emptyResult() {
@@ -145,21 +147,21 @@ public class SubscriptionCallbackHandler {
                 })
             .publishOn(scheduler)
             .concatMap(
-                (message) ->
-                    callbackClient
-                        .post()
-                        .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                        .header(SUBSCRIPTION_PROTOCOL_HEADER, SUBSCRIPTION_PROTOCOL_HEADER_VALUE)
-                        .headers(httpHeaders -> httpHeaders.putAll(callback.context()))
-                        .bodyValue(message)
-                        .exchangeToMono(
-                            (routerResponse) -> {
-                              if (routerResponse.statusCode().is2xxSuccessful()) {
-                                return Mono.just(message);
-                              } else {
-                                return Mono.error(new InactiveSubscriptionException(callback));
-                              }
-                            }))
+                (message) -> {
+                  var event = SubscriptionCallbackEvent.start(message);
+                  return callbackRequest(callbackClient, callback, message)
+                      .exchangeToMono(
+                          (routerResponse) -> {
+                            event.complete(routerResponse);
+                            if (routerResponse.statusCode().is2xxSuccessful()) {
+                              return Mono.just(message);
+                            } else {
+                              return Mono.error(new InactiveSubscriptionException(callback));
+                            }
+                          })
+                      .doOnError(event::fail)
+                      .doOnCancel(() -> event.fail(null));
+                })
             .doOnError(
                 (e) -> {
                   if (logger.isErrorEnabled()) {
@@ -181,27 +183,36 @@ public class SubscriptionCallbackHandler {
         .delayElements(Duration.ofMillis(callback.heartbeatIntervalMs()))
         .publishOn(scheduler)
         .concatMap(
-            (heartbeat) ->
-                client
-                    .post()
-                    .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                    .header(SUBSCRIPTION_PROTOCOL_HEADER, SUBSCRIPTION_PROTOCOL_HEADER_VALUE)
-                    .headers(httpHeaders -> httpHeaders.putAll(callback.context()))
-                    .bodyValue(heartbeat)
-                    .exchangeToFlux(
-                        (heartBeatResponse) -> {
-                          if (heartBeatResponse.statusCode().is2xxSuccessful()) {
-                            if (logger.isDebugEnabled()) {
-                              logger.debug(
-                                  "Subscription callback heartbeat successful: " + callback);
-                            }
-                            return heartbeatFlux(client, heartbeat, callback);
-                          } else {
-                            if (logger.isWarnEnabled()) {
-                              logger.warn("Subscription callback heartbeat failed: " + callback);
-                            }
-                            return Flux.error(new InactiveSubscriptionException(callback));
+            (heartbeat) -> {
+              var event = SubscriptionCallbackEvent.start(heartbeat);
+              return callbackRequest(client, callback, heartbeat)
+                  .exchangeToFlux(
+                      (heartBeatResponse) -> {
+                        event.complete(heartBeatResponse);
+                        if (heartBeatResponse.statusCode().is2xxSuccessful()) {
+                          if (logger.isDebugEnabled()) {
+                            logger.debug("Subscription callback heartbeat successful: " + callback);
                           }
-                        }));
+                          return heartbeatFlux(client, heartbeat, callback);
+                        } else {
+                          if (logger.isWarnEnabled()) {
+                            logger.warn("Subscription callback heartbeat failed: " + callback);
+                          }
+                          return Flux.error(new InactiveSubscriptionException(callback));
+                        }
+                      })
+                  .doOnError(event::fail)
+                  .doOnCancel(() -> event.fail(null));
+            });
+  }
+
+  private WebClient.RequestHeadersSpec<?> callbackRequest(
+      WebClient client, SubscriptionCallback callback, SubscritionCallbackMessage message) {
+    return client
+        .post()
+        .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+        .header(SUBSCRIPTION_PROTOCOL_HEADER, SUBSCRIPTION_PROTOCOL_HEADER_VALUE)
+        .headers(httpHeaders -> httpHeaders.putAll(callback.context()))
+        .bodyValue(message);
   }
 }
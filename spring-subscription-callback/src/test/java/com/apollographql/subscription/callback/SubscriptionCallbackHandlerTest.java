@@ -11,6 +11,7 @@ import com.apollographql.subscription.message.CallbackMessageNext;
 import graphql.ExecutionResult;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -18,6 +19,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -40,6 +44,7 @@ import reactor.test.StepVerifier;
 import tools.jackson.databind.ObjectMapper;
 
 public class SubscriptionCallbackHandlerTest {
+  private static final String CALLBACK_EVENT = "com.apollographql.federation.SubscriptionCallback";
 
   static class MockExecutionEngine implements ExecutionGraphQlService {
 
@@ -375,6 +380,77 @@ public class SubscriptionCallbackHandlerTest {
     }
   }
 
+  @Test
+  public void callbackEvent_unsuccessfulResponse() throws IOException {
+    try (var recording = new Recording();
+        var server = new MockWebServer()) {
+      recording.enable(CALLBACK_EVENT);
+      recording.start();
+      mockServerResponses(server, HttpStatus.NOT_FOUND);
+
+      var subscriptionId = UUID.randomUUID().toString();
+      var callbackUrl = server.url("/callback/" + subscriptionId).toString();
+      var callback = new SubscriptionCallback(callbackUrl, subscriptionId, "junit", 5000);
+      var handler = new SubscriptionCallbackHandler(new MockExecutionEngine(Flux.empty()));
+      StepVerifier.create(
+              handler.handleSubscriptionUsingCallback(
+                  stubWebGraphQLRequest(subscriptionId, callbackUrl), callback))
+          .expectErrorMatches(error -> error instanceof CallbackInitializationFailedException)
+          .verify();
+
+      // response is recorded once, even though the request fails afterwards
+      var event = singleCallbackEvent(recording);
+      Assertions.assertEquals(subscriptionId, event.getString("subscriptionId"));
+      Assertions.assertEquals("check", event.getString("action"));
+      Assertions.assertEquals(HttpStatus.NOT_FOUND.value(), event.getInt("statusCode"));
+      Assertions.assertNull(event.getString("failure"));
+    }
+  }
+
+  @Test
+  public void callbackEvent_connectionFailure() throws IOException {
+    try (var recording = new Recording()) {
+      recording.enable(CALLBACK_EVENT);
+      recording.start();
+
+      var subscriptionId = UUID.randomUUID().toString();
+      String callbackUrl;
+      try (var server = new MockWebServer()) {
+        server.start();
+        callbackUrl = server.url("/callback/" + subscriptionId).toString();
+      }
+      var callback = new SubscriptionCallback(callbackUrl, subscriptionId, "junit", 5000);
+      var handler = new SubscriptionCallbackHandler(new MockExecutionEngine(Flux.empty()));
+      StepVerifier.create(
+              handler.handleSubscriptionUsingCallback(
+                  stubWebGraphQLRequest(subscriptionId, callbackUrl), callback))
+          .expectError()
+          .verify();
+
+      var event = singleCallbackEvent(recording);
+      Assertions.assertEquals("check", event.getString("action"));
+      Assertions.assertEquals(0, event.getInt("statusCode"));
+      Assertions.assertEquals(-1, event.getLong("responseSize"));
+      Assertions.assertNotNull(event.getString("failure"));
+    }
+  }
+
+  private RecordedEvent singleCallbackEvent(Recording recording) throws IOException {
+    recording.stop();
+    var dump = Files.createTempFile("subscription-callback", ".jfr");
+    try {
+      recording.dump(dump);
+      var events =
+          RecordingFile.readAllEvents(dump).stream()
+              .filter(event -> CALLBACK_EVENT.equals(event.getEventType().getName()))
+              .toList();
+      Assertions.assertEquals(1, events.size());
+      return events.get(0);
+    } finally {
+      Files.delete(dump);
+    }
+  }
+
   private void mockServerResponses(MockWebServer server, HttpStatus... codes) throws IOException {
     for (HttpStatus code : codes) {
       server.enqueue(